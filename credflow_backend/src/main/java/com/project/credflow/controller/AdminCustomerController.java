@@ -3,6 +3,12 @@ package com.project.credflow.controller;
 import com.project.credflow.dto.AiAdminSummaryDto; // <-- 1. Import new DTO
 import com.project.credflow.dto.CustomerDto;
 import com.project.credflow.dto.CustomerHistoryDto;
+import com.project.credflow.dto.CustomerHistorySummaryDto;
+import com.project.credflow.dto.DunningActionLogDto;
+import com.project.credflow.dto.HistoryPageDto;
+import com.project.credflow.dto.InvoiceDto;
+import com.project.credflow.dto.NotificationLogDto;
+import com.project.credflow.dto.PaymentDto;
 import com.project.credflow.dto.ManualCureRequestDto;
 import com.project.credflow.model.User;
 import com.project.credflow.service.inter.AdminAiService;
@@ -34,9 +40,53 @@ public class AdminCustomerController {
         return ResponseEntity.ok(history);
     }
 
+    /**
+     * Paginated history: this summary header, then each section page by page through
+     * {@code ?cursor=<nextCursor>&size=<n>} on the section endpoints below.
+     */
+    @GetMapping("/{customerId}/history/summary")
+    public ResponseEntity<CustomerHistorySummaryDto> getCustomerHistorySummary(@PathVariable UUID customerId) {
+        return ResponseEntity.ok(customerService.getCustomerHistorySummary(customerId));
+    }
+
+    @GetMapping("/{customerId}/history/invoices")
+    public ResponseEntity<HistoryPageDto<InvoiceDto>> getCustomerInvoiceHistory(
+            @PathVariable UUID customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(customerService.getCustomerInvoicePage(customerId, cursor, size));
+    }
+
+    @GetMapping("/{customerId}/history/payments")
+    public ResponseEntity<HistoryPageDto<PaymentDto>> getCustomerPaymentHistory(
+            @PathVariable UUID customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(customerService.getCustomerPaymentPage(customerId, cursor, size));
+    }
+
+    @GetMapping("/{customerId}/history/notifications")
+    public ResponseEntity<HistoryPageDto<NotificationLogDto>> getCustomerNotificationHistory(
+            @PathVariable UUID customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(customerService.getCustomerNotificationPage(customerId, cursor, size));
+    }
+
+    @GetMapping("/{customerId}/history/dunning-actions")
+    public ResponseEntity<HistoryPageDto<DunningActionLogDto>> getCustomerDunningActionHistory(
+            @PathVariable UUID customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(customerService.getCustomerDunningActionPage(customerId, cursor, size));
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<List<CustomerDto>> searchCustomers(@RequestParam("query") String query) {
-        List<CustomerDto> results = customerService.searchCustomers(query);
+    public ResponseEntity<List<CustomerDto>> searchCustomers(
+            @RequestParam("query") String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        List<CustomerDto> results = customerService.searchCustomers(query, page, size);
         return ResponseEntity.ok(results);
     }
 
@@ -1,7 +1,10 @@
 package com.project.credflow.controller;
 
+import com.project.credflow.dto.DunningSimulationRequestDto;
+import com.project.credflow.dto.DunningSimulationResultDto;
 import com.project.credflow.enums.InvoiceStatus;
 import com.project.credflow.enums.BpoTaskStatus;
+import com.project.credflow.exception.LeaseUnavailableException;
 import com.project.credflow.repository.BpoTaskRepository;
 import com.project.credflow.repository.DunningExecutionLogRepository;
 import com.project.credflow.repository.InvoiceRepository;
@@ -9,9 +12,12 @@ import com.project.credflow.repository.PaymentRepository;
 import com.project.credflow.service.inter.DunningEngineService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize; // <-- 2. MAKE SURE THIS IS IMPORTED
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -19,6 +25,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/admin/dashboard")
@@ -32,17 +39,42 @@ public class AdminDashboardController {
     private final PaymentRepository paymentRepository;
     private final BpoTaskRepository bpoTaskRepository;
 
-    // ... (manuallyRunDunningEngine method is fine) ...
+    /**
+     * Starts a dunning run in the background and returns its id right away; follow it on
+     * {@code /runs/{runId}/progress}. 409 if a run is already in progress anywhere in the cluster.
+     */
     @PostMapping("/run-engine")
     public ResponseEntity<Map<String, String>> manuallyRunDunningEngine() {
         try {
-            dunningEngineService.runDunningProcess();
-            return ResponseEntity.ok(Map.of("message", "Dunning process executed successfully."));
+            UUID runId = dunningEngineService.startDunningProcess();
+            return ResponseEntity.accepted().body(Map.of(
+                    "message", "Dunning process started.",
+                    "runId", runId.toString()));
+        } catch (LeaseUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
-            return ResponseEntity.internalServerError().body(Map.of("message", "Error executing dunning process: " + e.getMessage()));
+            return ResponseEntity.internalServerError().body(Map.of("message", "Error starting dunning process: " + e.getMessage()));
         }
     }
 
+    /**
+     * Live progress of a dunning run as server-sent events: "progress" (run totals),
+     * "chunk" (each committed chunk), "error" (a failed partition) and a final "finished".
+     */
+    @GetMapping(value = "/runs/{runId}/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDunningRunProgress(@PathVariable UUID runId) {
+        return dunningEngineService.streamRunProgress(runId);
+    }
+
+
+    /**
+     * Dry-runs the dunning engine: what the given rule set (default: the active rules) would do
+     * tonight, with no emails, SMS, tasks or suspensions and nothing written.
+     */
+    @PostMapping("/simulate-engine")
+    public ResponseEntity<DunningSimulationResultDto> simulateDunningEngine(@RequestBody(required = false) DunningSimulationRequestDto request) {
+        return ResponseEntity.ok(dunningEngineService.simulateDunningRun(request));
+    }
 
     /**
      * Endpoint to get LIVE stats (not affected by date).
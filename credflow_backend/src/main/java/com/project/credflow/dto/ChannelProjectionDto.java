@@ -0,0 +1,16 @@
+package com.project.credflow.dto;
+
+import com.project.credflow.enums.NotificationChannel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChannelProjectionDto {
+    private NotificationChannel channel;
+    private long volume;
+    private double messagesPerSecond; // Sustainable provider throughput from the configured limits
+    private double projectedSeconds;
+}
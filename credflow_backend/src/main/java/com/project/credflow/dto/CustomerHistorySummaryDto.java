@@ -0,0 +1,35 @@
+package com.project.credflow.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Header of the paginated customer history: the profile, the accounts and aggregate figures for
+ * each history section, whose rows are fetched page by page from the section endpoints.
+ */
+@Data
+@NoArgsConstructor
+public class CustomerHistorySummaryDto {
+    private CustomerDto customerProfile;
+    private List<AccountDto> accounts;
+
+    private long invoiceCount;
+    private long overdueInvoiceCount;
+    private BigDecimal outstandingAmount;   // Amount due on invoices that are not PAID
+    private BigDecimal overdueAmount;
+
+    private long paymentCount;
+    private BigDecimal totalPaid;           // SUCCESS payments only
+    private LocalDateTime lastPaymentAt;
+
+    private long notificationCount;
+    private long failedNotificationCount;
+    private LocalDateTime lastNotificationAt;
+
+    private long dunningActionCount;
+    private LocalDateTime lastDunningActionAt;
+}
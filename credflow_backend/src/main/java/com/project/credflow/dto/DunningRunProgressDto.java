@@ -0,0 +1,32 @@
+package com.project.credflow.dto;
+
+import com.project.credflow.enums.EngineRunStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One server-sent event about a dunning run. {@code event} is the SSE event name:
+ * "progress" (run totals so far), "chunk" (one committed chunk; the counts are the chunk's own),
+ * "error" (a partition or the run failed) or "finished" (final totals; the stream then ends).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DunningRunProgressDto {
+    private String event;
+    private UUID runId;
+    private EngineRunStatus status;
+    private Integer partitionIndex;     // Set on chunk and error events of partitioned runs
+    private Integer partitionsDone;     // Completed or failed partitions, on progress events of partitioned runs
+    private Integer partitionCount;
+    private Long chunksDone;            // Chunks committed so far by this node
+    private Long invoicesProcessed;
+    private Long actionsExecuted;
+    private Long actionFailures;
+    private String message;
+    private LocalDateTime timestamp;
+}
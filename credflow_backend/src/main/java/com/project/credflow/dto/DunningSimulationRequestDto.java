@@ -0,0 +1,17 @@
+package com.project.credflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DunningSimulationRequestDto {
+    private List<UUID> ruleIds; // Rule set to simulate, active or not; empty means the currently active rules
+    private LocalDate asOfDate; // Evaluation date; defaults to today
+}
@@ -0,0 +1,25 @@
+package com.project.credflow.dto;
+
+import com.project.credflow.enums.RuleActionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DunningSimulationResultDto {
+    private LocalDate asOfDate;
+    private int rulesSimulated;
+    private long invoicesScanned;
+    private long invoicesWithAction;
+    private long evaluationMillis; // Wall time the simulation itself took to evaluate the snapshot
+    private List<RuleSimulationDto> rules; // In priority order
+    private Map<RuleActionType, Long> actionVolumes;
+    private List<ChannelProjectionDto> channels;
+    private double projectedRunSeconds; // Evaluation time plus the slowest channel (channels deliver concurrently)
+}
@@ -0,0 +1,19 @@
+package com.project.credflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a customer history section. Pass {@code nextCursor} back as {@code cursor} to get
+ * the next page; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryPageDto<T> {
+    private List<T> items;
+    private String nextCursor;
+}
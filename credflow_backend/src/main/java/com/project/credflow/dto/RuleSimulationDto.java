@@ -0,0 +1,20 @@
+package com.project.credflow.dto;
+
+import com.project.credflow.enums.RuleActionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RuleSimulationDto {
+    private UUID ruleId;
+    private String ruleName;
+    private Integer priority;
+    private RuleActionType actionType;
+    private long matches;       // Invoices whose condition holds, whether or not this rule would be the one to run
+    private long wouldExecute;  // Invoices for which this rule is the first pending match, i.e. tonight's actions
+}
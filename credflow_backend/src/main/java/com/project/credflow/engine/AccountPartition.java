@@ -0,0 +1,40 @@
+package com.project.credflow.engine;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An inclusive slice [lowerAccountId, upperAccountId] of the account id space.
+ * <p>
+ * Account ids are random (v4) UUIDs stored as binary(16), so splitting the
+ * unsigned 128-bit space into equal ranges spreads accounts evenly - it behaves
+ * like hashing on account_id, but the range predicate can still use the index.
+ * All invoices of one account always land in the same partition, so two workers
+ * never act on the same account concurrently.
+ */
+public record AccountPartition(int index, UUID lowerAccountId, UUID upperAccountId) {
+
+    private static final BigInteger HIGH_BITS_RANGE = BigInteger.ONE.shiftLeft(64);
+
+    public static List<AccountPartition> split(int partitionCount) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount must be at least 1");
+        }
+        List<AccountPartition> partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            UUID lower = new UUID(boundary(i, partitionCount), 0L);
+            UUID upper = (i == partitionCount - 1)
+                    ? new UUID(-1L, -1L) // ffffffff-ffff-ffff-ffff-ffffffffffff
+                    : new UUID(boundary(i + 1, partitionCount) - 1, -1L);
+            partitions.add(new AccountPartition(i, lower, upper));
+        }
+        return partitions;
+    }
+
+    /** Unsigned floor(i * 2^64 / n), used as the most significant 64 bits of a range boundary. */
+    private static long boundary(int i, int n) {
+        return HIGH_BITS_RANGE.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(n)).longValue();
+    }
+}
@@ -0,0 +1,305 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.enums.NotificationChannel;
+import com.project.credflow.enums.OutboxStatus;
+import com.project.credflow.enums.RuleActionType;
+import com.project.credflow.exception.ActionExecutionException;
+import com.project.credflow.model.DunningActionOutbox;
+import com.project.credflow.repository.DunningActionOutboxRepository;
+import com.project.credflow.service.inter.RuleActionService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains dunning_action_outbox: claims due PENDING rows, executes each action through
+ * {@link RuleActionService#dispatchAction} on the {@link NotificationDispatcher}, and reschedules
+ * failures with exponential backoff until {@code dunning.outbox.max-attempts}, after which
+ * the row is dead-lettered for manual follow-up. The engine queues its SMS actions here even
+ * with {@code dunning.outbox.enabled} off, so the dispatcher polls either way.
+ * <p>
+ * Claiming uses SELECT ... FOR UPDATE SKIP LOCKED, so several application nodes can drain
+ * the same table. Actions are delivered at least once: a node that dies mid-action leaves an
+ * IN_PROGRESS row that is released again after {@code dunning.outbox.claim-timeout-ms}.
+ * Outcomes are only recorded while the claim (status and claimed_at) is still this node's, so a
+ * dispatcher that finishes after its claim was released never overwrites the next claimant's row.
+ * Since SMS are paced by the sender numbers' rate limit, a batch claims no more SMS than can be
+ * sent in half the claim timeout ({@code dunning.outbox.sms-batch-size} overrides that).
+ * <p>
+ * Polling runs on its own thread rather than the shared {@code @Scheduled} one, so a long
+ * dunning run, index refresh or aging job on this node never stalls the outbox (or the reverse).
+ * <p>
+ * The provider call itself runs outside any transaction: the entry's entity graph is loaded in
+ * one short transaction and its outcome recorded in another, so a slow SMTP server never holds
+ * a database connection.
+ */
+@Component
+@RequiredArgsConstructor
+public class ActionOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionOutboxDispatcher.class);
+
+    private final DunningActionOutboxRepository outboxRepository;
+    private final RuleActionService ruleActionService;
+    private final NotificationDispatcher notificationDispatcher;
+    private final TransactionTemplate transactionTemplate;
+
+    // With this off the engine still queues its SMS actions, so the dispatcher always polls
+    @Value("${dunning.outbox.enabled:false}")
+    private boolean enabled;
+
+    @Value("${dunning.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${dunning.outbox.email-batch-size:50}")
+    private int emailBatchSize;
+
+    @Value("${dunning.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${dunning.outbox.initial-backoff-ms:30000}")
+    private long initialBackoffMs;
+
+    @Value("${dunning.outbox.max-backoff-ms:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${dunning.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${dunning.outbox.claim-timeout-ms:600000}")
+    private long claimTimeoutMs;
+
+    // 0: derived from the SMS rate limit and the claim timeout
+    @Value("${dunning.outbox.sms-batch-size:0}")
+    private int smsBatchSize;
+
+    @Value("${sms.rate-per-second:1}")
+    private double smsRatePerSecond;
+
+    @Value("${sms.sender-numbers:}")
+    private String[] smsSenderNumbers;
+
+    private ScheduledExecutorService pollExecutor;
+
+    @PostConstruct
+    public void startPolling() {
+        if (smsBatchSize <= 0) {
+            double smsPerSecond = smsRatePerSecond * Math.max(1, smsSenderNumbers.length);
+            smsBatchSize = (int) Math.max(1, Math.min(batchSize, smsPerSecond * claimTimeoutMs / 1000 / 2));
+        }
+        log.info("Dunning action outbox {}: batches of {} (at most {} SMS), up to {} attempts.",
+                enabled ? "enabled" : "draining SMS actions only", batchSize, smsBatchSize, maxAttempts);
+        pollExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("outbox-poll-"));
+        pollExecutor.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopPolling() {
+        pollExecutor.shutdownNow(); // Claims in flight are released after the claim timeout
+    }
+
+    // An exception escaping a fixed-delay task would cancel all later polls
+    private void poll() {
+        try {
+            drain();
+        } catch (Exception e) {
+            log.error("Outbox poll failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public void drain() {
+        int released = transactionTemplate.execute(status ->
+                outboxRepository.releaseStaleClaims(LocalDateTime.now().minus(Duration.ofMillis(claimTimeoutMs))));
+        if (released > 0) {
+            log.warn("Released {} stale outbox claims back to PENDING.", released);
+        }
+
+        // Keep draining while full batches come back, so a large backlog doesn't wait for the next poll.
+        // Full means a full page of due rows, even if the SMS cap left some of them for the next batch.
+        ClaimedBatch batch;
+        do {
+            batch = claimBatch();
+            dispatchAll(batch.claimed());
+        } while (batch.due() == batchSize && !Thread.currentThread().isInterrupted());
+    }
+
+    // claimedAt identifies the claim; attempts is the count before this one
+    private record ClaimedEntry(UUID outboxId, RuleActionType actionType, LocalDateTime claimedAt, int attempts) {
+    }
+
+    // due: how many due rows the claim query returned, claimed or not
+    private record ClaimedBatch(List<ClaimedEntry> claimed, int due) {
+    }
+
+    private ClaimedBatch claimBatch() {
+        return transactionTemplate.execute(status -> {
+            // Whole seconds, so the claim compares equal whatever the column's fractional precision
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            List<DunningActionOutbox> due = outboxRepository.findDueForDispatch(now, PageRequest.of(0, batchSize));
+            List<ClaimedEntry> claimed = new ArrayList<>(due.size());
+            int sms = 0;
+            for (DunningActionOutbox entry : due) {
+                if (entry.getActionType() == RuleActionType.SEND_SMS && sms++ >= smsBatchSize) {
+                    continue; // Left PENDING for a later batch
+                }
+                entry.setStatus(OutboxStatus.IN_PROGRESS);
+                entry.setClaimedAt(now);
+                claimed.add(new ClaimedEntry(entry.getOutboxId(), entry.getActionType(), now, entry.getAttempts()));
+            }
+            return new ClaimedBatch(claimed, due.size());
+        });
+    }
+
+    private void dispatchAll(List<ClaimedEntry> claimed) {
+        List<Future<?>> futures = new ArrayList<>(claimed.size());
+        List<ClaimedEntry> emailBatch = new ArrayList<>();
+        for (ClaimedEntry entry : claimed) {
+            if (entry.actionType() == RuleActionType.SEND_EMAIL) {
+                // Emails go out in groups that share one SMTP connection
+                emailBatch.add(entry);
+                if (emailBatch.size() == emailBatchSize) {
+                    futures.add(submitEmailBatch(emailBatch));
+                    emailBatch = new ArrayList<>();
+                }
+            } else {
+                futures.add(notificationDispatcher.submit(channelFor(entry.actionType()), () -> dispatch(entry)));
+            }
+        }
+        if (!emailBatch.isEmpty()) {
+            futures.add(submitEmailBatch(emailBatch));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return; // Unfinished claims are released after the claim timeout
+            } catch (ExecutionException e) {
+                log.error("Outbox dispatch task failed unexpectedly: {}", e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    static NotificationChannel channelFor(RuleActionType actionType) {
+        return switch (actionType) {
+            case SEND_EMAIL -> NotificationChannel.EMAIL;
+            case SEND_SMS -> NotificationChannel.SMS;
+            default -> NotificationChannel.APP;
+        };
+    }
+
+    private void dispatch(ClaimedEntry claim) {
+        DunningActionOutbox entry = transactionTemplate.execute(status -> outboxRepository.findForDispatch(claim.outboxId()).orElse(null));
+        if (entry == null || !stillClaimed(entry, claim)) {
+            return; // Deleted, or re-claimed by another node after a stale release
+        }
+        try {
+            ruleActionService.dispatchAction(entry.getDunningRule(), entry.getInvoice());
+        } catch (Exception e) {
+            transactionTemplate.executeWithoutResult(status -> recordFailure(claim, e));
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> recordSuccess(claim));
+    }
+
+    private Future<?> submitEmailBatch(List<ClaimedEntry> claims) {
+        return notificationDispatcher.submit(NotificationChannel.EMAIL, () -> dispatchEmailBatch(claims));
+    }
+
+    private void dispatchEmailBatch(List<ClaimedEntry> claims) {
+        Map<UUID, ClaimedEntry> claimsById = new HashMap<>();
+        claims.forEach(claim -> claimsById.put(claim.outboxId(), claim));
+        List<DunningActionOutbox> entries = new ArrayList<>(transactionTemplate.execute(status -> outboxRepository.findAllForDispatch(claimsById.keySet())));
+        entries.removeIf(entry -> !stillClaimed(entry, claimsById.get(entry.getOutboxId())));
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<RuleActionService.RuleAction> actions = new ArrayList<>(entries.size());
+        for (DunningActionOutbox entry : entries) {
+            actions.add(new RuleActionService.RuleAction(entry.getDunningRule(), entry.getInvoice()));
+        }
+
+        List<Boolean> results;
+        try {
+            results = ruleActionService.dispatchEmailActions(actions);
+        } catch (Exception e) {
+            transactionTemplate.executeWithoutResult(status -> entries.forEach(entry -> recordFailure(claimsById.get(entry.getOutboxId()), e)));
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < entries.size(); i++) {
+                ClaimedEntry claim = claimsById.get(entries.get(i).getOutboxId());
+                if (results.get(i)) {
+                    recordSuccess(claim);
+                } else {
+                    recordFailure(claim, new ActionExecutionException("Failed to send dunning email (see notification log)"));
+                }
+            }
+        });
+    }
+
+    private static boolean stillClaimed(DunningActionOutbox entry, ClaimedEntry claim) {
+        return entry.getStatus() == OutboxStatus.IN_PROGRESS && claim.claimedAt().equals(entry.getClaimedAt());
+    }
+
+    private void recordSuccess(ClaimedEntry claim) {
+        if (outboxRepository.markDoneIfClaimed(claim.outboxId(), claim.claimedAt(), LocalDateTime.now()) == 0) {
+            log.warn("Outbox entry {} ({}) was sent after its claim had been released; not recording the outcome.",
+                    claim.outboxId(), claim.actionType());
+        }
+    }
+
+    private void recordFailure(ClaimedEntry claim, Exception failure) {
+        int attempts = claim.attempts() + 1;
+        boolean deadLetter = attempts >= maxAttempts;
+        OutboxStatus status = deadLetter ? OutboxStatus.DEAD_LETTER : OutboxStatus.PENDING;
+        // Dead-lettered rows are never polled again; next_attempt_at just records when that happened
+        LocalDateTime nextAttemptAt = deadLetter ? LocalDateTime.now() : LocalDateTime.now().plus(Duration.ofMillis(backoffMs(attempts)));
+        int updated = outboxRepository.markFailedIfClaimed(claim.outboxId(), claim.claimedAt(), status, attempts,
+                nextAttemptAt, truncate(failure.getMessage()));
+        if (updated == 0) {
+            log.warn("Outbox entry {} ({}) failed after its claim had been released; not recording the outcome: {}",
+                    claim.outboxId(), claim.actionType(), failure.getMessage());
+        } else if (deadLetter) {
+            log.error("Outbox entry {} ({}) dead-lettered after {} attempts: {}",
+                    claim.outboxId(), claim.actionType(), attempts, failure.getMessage());
+        } else {
+            log.warn("Outbox entry {} ({}) failed on attempt {}, retrying: {}",
+                    claim.outboxId(), claim.actionType(), attempts, failure.getMessage());
+        }
+    }
+
+    // initial * 2^(attempts - 1), capped
+    private long backoffMs(int attempts) {
+        int shift = Math.min(attempts - 1, 30);
+        return Math.min(initialBackoffMs << shift, maxBackoffMs);
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
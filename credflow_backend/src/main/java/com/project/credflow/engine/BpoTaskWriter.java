@@ -0,0 +1,49 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.enums.BpoTaskPriority;
+import com.project.credflow.enums.BpoTaskStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Inserts collector tasks (bpo_tasks) with one JDBC batch instead of a {@code save()} per task,
+ * for rules that raise thousands of tasks in one run. Runs on the caller's transaction.
+ * <p>
+ * As with {@link DunningAuditWriter}, add {@code rewriteBatchedStatements=true} to the MySQL
+ * JDBC URL so the batch becomes a multi-row INSERT.
+ */
+@Component
+@RequiredArgsConstructor
+public class BpoTaskWriter {
+
+    private static final String INSERT_TASK =
+            "INSERT INTO bpo_tasks (task_id, customer_id, invoice_id, status, priority, task_description, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** A NEW, unassigned task. */
+    public record NewTask(UUID customerId, UUID invoiceId, BpoTaskPriority priority, String description) {
+    }
+
+    public void insertAll(List<NewTask> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(tasks.size());
+        for (NewTask task : tasks) {
+            rows.add(new Object[]{
+                    UuidBytes.toBytes(UUID.randomUUID()), UuidBytes.toBytes(task.customerId()), UuidBytes.toBytes(task.invoiceId()),
+                    BpoTaskStatus.NEW.name(), task.priority().name(), task.description(), now, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_TASK, rows);
+    }
+}
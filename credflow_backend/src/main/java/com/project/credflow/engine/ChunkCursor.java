@@ -0,0 +1,17 @@
+package com.project.credflow.engine;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * A position in the (due_date, invoice_id) keyset order shared by {@link InvoiceCandidateSource}
+ * and {@link RuleQueryPlanner}: the last invoice of a committed chunk. Scans resumed from a
+ * cursor continue strictly after it.
+ */
+public record ChunkCursor(LocalDate dueDate, UUID invoiceId) {
+
+    /** The cursor stored on a run or partition, or null if it has not committed a chunk yet. */
+    public static ChunkCursor of(LocalDate dueDate, UUID invoiceId) {
+        return dueDate == null || invoiceId == null ? null : new ChunkCursor(dueDate, invoiceId);
+    }
+}
@@ -0,0 +1,402 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.enums.AccountType;
+import com.project.credflow.enums.InvoiceStatus;
+import com.project.credflow.enums.PlanType;
+import com.project.credflow.enums.RuleConditionType;
+import com.project.credflow.model.Account;
+import com.project.credflow.model.DunningRule;
+import com.project.credflow.model.Invoice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * The active dunning rules compiled once per run into buckets keyed by
+ * (plan type, invoice status, condition type).
+ * <p>
+ * Plan-type and status applicability are resolved when the index is built, and threshold
+ * conditions (DAYS_OVERDUE, DAYS_UNTIL_DUE, MIN_AMOUNT_DUE) are sorted by threshold, so the
+ * rules an invoice satisfies are found with a binary search instead of checking every rule.
+ * {@link #matchingRules(Invoice)} yields exactly the rules that
+ * {@code RuleConditionServiceImpl.checkCondition} plus the engine's applicability checks would
+ * accept, in the same priority order.
+ * <p>
+ * {@link #nextEvaluationDate} uses the same sorted DAYS_OVERDUE / DAYS_UNTIL_DUE thresholds to
+ * tell the incremental engine when an invoice next needs to be looked at.
+ * <p>
+ * Immutable once built and safe to share between partition workers.
+ */
+public final class CompiledRuleIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CompiledRuleIndex.class);
+
+    /** Stored as next_evaluation_date when no active rule can newly match unless the invoice changes. */
+    public static final LocalDate NO_FURTHER_EVALUATION = LocalDate.of(9999, 12, 31);
+
+    // The only conditions whose outcome changes with the calendar alone
+    private static final RuleConditionType[] DATE_CONDITIONS = {RuleConditionType.DAYS_OVERDUE, RuleConditionType.DAYS_UNTIL_DUE};
+
+    // Plan keys: PREPAID, POSTPAID, ALL by ordinal, plus one slot for invoices without a plan type
+    private static final int PLAN_KEYS = PlanType.values().length + 1;
+    private static final int STATUS_KEYS = InvoiceStatus.values().length + 1;
+    private static final int CONDITION_KEYS = RuleConditionType.values().length;
+
+    private final LocalDate today;
+    private final int ruleCount;
+    private final Bucket[] buckets = new Bucket[PLAN_KEYS * STATUS_KEYS * CONDITION_KEYS];
+    private int maxBlocksPerBucket = 1; // Upper bound on the rule lists one bucket contributes to a match
+
+    private CompiledRuleIndex(LocalDate today, int ruleCount) {
+        this.today = today;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * @param rulesInPriorityOrder active rules, highest priority first (list position breaks ties)
+     * @param today                the evaluation date for DAYS_OVERDUE / DAYS_UNTIL_DUE
+     */
+    public static CompiledRuleIndex compile(List<DunningRule> rulesInPriorityOrder, LocalDate today) {
+        CompiledRuleIndex index = new CompiledRuleIndex(today, rulesInPriorityOrder.size());
+        Map<Integer, List<RankedRule>> grouped = new HashMap<>();
+
+        for (int rank = 0; rank < rulesInPriorityOrder.size(); rank++) {
+            DunningRule rule = rulesInPriorityOrder.get(rank);
+            RankedRule ranked = RankedRule.of(rule, rank);
+            if (ranked == null) {
+                continue; // Incomplete rule: checkCondition would never accept it
+            }
+            for (int planKey : planKeysFor(rule.getAppliesToPlanType())) {
+                for (int statusKey : statusKeysFor(rule.getConditionType())) {
+                    grouped.computeIfAbsent(key(planKey, statusKey, rule.getConditionType().ordinal()), k -> new ArrayList<>())
+                            .add(ranked);
+                }
+            }
+        }
+        grouped.forEach((key, rules) -> {
+            index.buckets[key] = Bucket.of(rules);
+            index.maxBlocksPerBucket = Math.max(index.maxBlocksPerBucket, 32 - Integer.numberOfLeadingZeros(rules.size()));
+        });
+        log.debug("Compiled {} dunning rules into {} buckets.", rulesInPriorityOrder.size(), grouped.size());
+        return index;
+    }
+
+    public LocalDate getToday() {
+        return today;
+    }
+
+    public int size() {
+        return ruleCount;
+    }
+
+    /**
+     * The rules whose plan type, status applicability and condition all hold for this invoice,
+     * highest priority first. Evaluated lazily, so callers that stop at the first usable rule
+     * do not pay for the rest.
+     */
+    public Iterable<DunningRule> matchingRules(Invoice invoice) {
+        int planKey = planKeyOf(invoice);
+        int statusKey = invoice.getStatus() == null ? STATUS_KEYS - 1 : invoice.getStatus().ordinal();
+
+        DunningRule[][] sources = new DunningRule[CONDITION_KEYS * maxBlocksPerBucket][];
+        int[][] sourceRanks = new int[CONDITION_KEYS * maxBlocksPerBucket][];
+        int count = 0;
+        for (RuleConditionType type : RuleConditionType.values()) {
+            Bucket bucket = buckets[key(planKey, statusKey, type.ordinal())];
+            if (bucket != null) {
+                count = bucket.addMatches(type, invoice, today, sources, sourceRanks, count);
+            }
+        }
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        if (count == 1) {
+            return Arrays.asList(sources[0]);
+        }
+        int sourceCount = count;
+        return () -> new MergingIterator(sources, sourceRanks, sourceCount);
+    }
+
+    /**
+     * The first date on which this invoice could match a rule that has not run for it yet,
+     * assuming only the calendar moves: status, amount, plan and account type changes are
+     * handled by resetting next_evaluation_date instead.
+     * <p>
+     * Call after the invoice has been evaluated, with {@code executed} including the rule just
+     * run. A matching rule that is still pending (only one runs per invoice per night, and a
+     * failed one is retried) means tomorrow; otherwise the nearest unexecuted DAYS_OVERDUE or
+     * DAYS_UNTIL_DUE threshold ahead of today decides, or {@link #NO_FURTHER_EVALUATION}.
+     */
+    public LocalDate nextEvaluationDate(Invoice invoice, ExecutedActionSet executed) {
+        UUID invoiceId = invoice.getInvoiceId();
+        for (DunningRule rule : matchingRules(invoice)) {
+            if (!executed.contains(rule.getRuleId(), invoiceId)) {
+                return today.plusDays(1);
+            }
+        }
+        if (invoice.getDueDate() == null) {
+            return NO_FURTHER_EVALUATION;
+        }
+
+        int planKey = planKeyOf(invoice);
+        int statusKey = invoice.getStatus() == null ? STATUS_KEYS - 1 : invoice.getStatus().ordinal();
+        long daysAhead = Long.MAX_VALUE;
+        for (RuleConditionType type : DATE_CONDITIONS) {
+            Bucket bucket = buckets[key(planKey, statusKey, type.ordinal())];
+            if (bucket != null) {
+                daysAhead = Math.min(daysAhead, bucket.daysUntilNextThreshold(Bucket.dayValue(type, invoice, today), executed, invoiceId));
+            }
+        }
+        return daysAhead == Long.MAX_VALUE ? NO_FURTHER_EVALUATION : today.plusDays(daysAhead);
+    }
+
+    private static int planKeyOf(Invoice invoice) {
+        Account account = invoice.getAccount();
+        if (account == null || account.getPlan() == null || account.getPlan().getPlanType() == null) {
+            return PLAN_KEYS - 1;
+        }
+        return account.getPlan().getPlanType().ordinal();
+    }
+
+    // A rule for ALL applies to every invoice; a rule without a plan type only to invoices without one
+    private static int[] planKeysFor(PlanType appliesTo) {
+        if (appliesTo == null) {
+            return new int[]{PLAN_KEYS - 1};
+        }
+        if (appliesTo == PlanType.ALL) {
+            int[] all = new int[PLAN_KEYS];
+            for (int i = 0; i < PLAN_KEYS; i++) all[i] = i;
+            return all;
+        }
+        return new int[]{appliesTo.ordinal()};
+    }
+
+    // DAYS_OVERDUE only applies to OVERDUE and DAYS_UNTIL_DUE only to PENDING invoices
+    private static int[] statusKeysFor(RuleConditionType conditionType) {
+        if (conditionType == RuleConditionType.DAYS_OVERDUE) {
+            return new int[]{InvoiceStatus.OVERDUE.ordinal()};
+        }
+        if (conditionType == RuleConditionType.DAYS_UNTIL_DUE) {
+            return new int[]{InvoiceStatus.PENDING.ordinal()};
+        }
+        int[] all = new int[STATUS_KEYS];
+        for (int i = 0; i < STATUS_KEYS; i++) all[i] = i;
+        return all;
+    }
+
+    private static int key(int planKey, int statusKey, int conditionKey) {
+        return (planKey * STATUS_KEYS + statusKey) * CONDITION_KEYS + conditionKey;
+    }
+
+    /** A rule with its position in the priority order and its parsed condition value. */
+    private record RankedRule(DunningRule rule, int rank, Comparable<?> threshold) {
+
+        static RankedRule of(DunningRule rule, int rank) {
+            if (rule.getConditionType() == null) {
+                return null;
+            }
+            switch (rule.getConditionType()) {
+                case DAYS_OVERDUE:
+                    // Matches when daysOverdue >= value
+                    return rule.getConditionValueInteger() == null ? null
+                            : new RankedRule(rule, rank, rule.getConditionValueInteger().longValue());
+                case DAYS_UNTIL_DUE:
+                    // Matches when daysUntil <= value, i.e. -daysUntil >= -value: stored negated
+                    return rule.getConditionValueInteger() == null ? null
+                            : new RankedRule(rule, rank, -rule.getConditionValueInteger().longValue());
+                case MIN_AMOUNT_DUE:
+                    return rule.getConditionValueDecimal() == null ? null
+                            : new RankedRule(rule, rank, rule.getConditionValueDecimal());
+                case ACCOUNT_TYPE:
+                    String value = rule.getConditionValueString();
+                    if (value == null || value.isEmpty()) {
+                        return null;
+                    }
+                    for (AccountType type : AccountType.values()) {
+                        if (type.name().equalsIgnoreCase(value)) {
+                            return new RankedRule(rule, rank, type);
+                        }
+                    }
+                    return null; // No account type can ever equal it
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Rules of one (plan, status, condition) key. Threshold buckets keep the thresholds sorted
+     * ascending; the rules satisfied by a value are then a prefix. The rules are stored in
+     * Fenwick-tree blocks, each in priority order, so any prefix is the union of at most
+     * log2(n) + 1 blocks and the whole bucket takes O(n log n) space instead of one list per
+     * prefix length.
+     */
+    private static final class Bucket {
+
+        private record Match(DunningRule[] rules, int[] ranks) {
+        }
+
+        @SuppressWarnings("rawtypes")
+        private Comparable[] thresholds;   // Ascending; null for ACCOUNT_TYPE
+        private Match[] blocks;            // blocks[i - 1]: the rules of thresholds [i - (i & -i), i) by priority
+        private DunningRule[] byThreshold; // byThreshold[k]: the rule behind thresholds[k]
+        private Map<AccountType, Match> byAccountType; // ACCOUNT_TYPE only
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        static Bucket of(List<RankedRule> rules) {
+            Bucket bucket = new Bucket();
+            if (rules.get(0).threshold() instanceof AccountType) {
+                Map<AccountType, List<RankedRule>> byType = new EnumMap<>(AccountType.class);
+                for (RankedRule rule : rules) {
+                    byType.computeIfAbsent((AccountType) rule.threshold(), t -> new ArrayList<>()).add(rule);
+                }
+                bucket.byAccountType = new EnumMap<>(AccountType.class);
+                byType.forEach((type, list) -> bucket.byAccountType.put(type, byPriority(list)));
+                return bucket;
+            }
+            List<RankedRule> sorted = new ArrayList<>(rules);
+            sorted.sort((a, b) -> ((Comparable) a.threshold()).compareTo(b.threshold()));
+            bucket.thresholds = new Comparable[sorted.size()];
+            bucket.blocks = new Match[sorted.size()];
+            bucket.byThreshold = new DunningRule[sorted.size()];
+            for (int k = 0; k < sorted.size(); k++) {
+                bucket.thresholds[k] = (Comparable) sorted.get(k).threshold();
+                bucket.byThreshold[k] = sorted.get(k).rule();
+            }
+            for (int i = 1; i <= sorted.size(); i++) {
+                bucket.blocks[i - 1] = byPriority(sorted.subList(i - (i & -i), i));
+            }
+            return bucket;
+        }
+
+        private static Match byPriority(List<RankedRule> rules) {
+            List<RankedRule> ordered = new ArrayList<>(rules);
+            ordered.sort(Comparator.comparingInt(RankedRule::rank));
+            DunningRule[] result = new DunningRule[ordered.size()];
+            int[] ranks = new int[ordered.size()];
+            for (int i = 0; i < ordered.size(); i++) {
+                result[i] = ordered.get(i).rule();
+                ranks[i] = ordered.get(i).rank();
+            }
+            return new Match(result, ranks);
+        }
+
+        /**
+         * Appends the priority-ordered rule lists this invoice satisfies to sources / ranks,
+         * starting at count, and returns the new count.
+         */
+        int addMatches(RuleConditionType type, Invoice invoice, LocalDate today, DunningRule[][] sources, int[][] ranks, int count) {
+            switch (type) {
+                case DAYS_OVERDUE:
+                case DAYS_UNTIL_DUE:
+                    if (invoice.getDueDate() == null) return count;
+                    return addPrefix(upperBound(dayValue(type, invoice, today)), sources, ranks, count);
+                case MIN_AMOUNT_DUE:
+                    BigDecimal amountDue = invoice.getAmountDue();
+                    return amountDue == null ? count : addPrefix(upperBound(amountDue), sources, ranks, count);
+                case ACCOUNT_TYPE:
+                    Account account = invoice.getAccount();
+                    if (account == null || account.getAccountType() == null) return count;
+                    return add(byAccountType.get(account.getAccountType()), sources, ranks, count);
+                default:
+                    return count;
+            }
+        }
+
+        /**
+         * The value a DAYS_OVERDUE / DAYS_UNTIL_DUE threshold is compared with (daysUntil negated).
+         * Either way it grows by one per day, so a threshold t is reached t - value days from today.
+         */
+        static long dayValue(RuleConditionType type, Invoice invoice, LocalDate today) {
+            return type == RuleConditionType.DAYS_OVERDUE
+                    ? ChronoUnit.DAYS.between(invoice.getDueDate(), today)
+                    : -ChronoUnit.DAYS.between(today, invoice.getDueDate());
+        }
+
+        /** Days until the lowest threshold above value whose rule has not run for the invoice, or Long.MAX_VALUE. */
+        long daysUntilNextThreshold(long value, ExecutedActionSet executed, UUID invoiceId) {
+            for (int k = upperBound(value); k < thresholds.length; k++) {
+                if (!executed.contains(byThreshold[k].getRuleId(), invoiceId)) {
+                    return (Long) thresholds[k] - value;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /** The rules of the first length thresholds: one block per set bit of length. */
+        private int addPrefix(int length, DunningRule[][] sources, int[][] ranks, int count) {
+            for (int i = length; i > 0; i -= i & -i) {
+                count = add(blocks[i - 1], sources, ranks, count);
+            }
+            return count;
+        }
+
+        private static int add(Match match, DunningRule[][] sources, int[][] ranks, int count) {
+            if (match == null || match.rules.length == 0) {
+                return count;
+            }
+            sources[count] = match.rules;
+            ranks[count] = match.ranks;
+            return count + 1;
+        }
+
+        /** The number of thresholds <= value. */
+        @SuppressWarnings("unchecked")
+        private int upperBound(Comparable<?> value) {
+            int low = 0;
+            int high = thresholds.length; // Invariant: thresholds[0, low) <= value < thresholds[high, length)
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (thresholds[mid].compareTo(value) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /** Lazily merges the candidate lists of every condition (each already in priority order). */
+    private static final class MergingIterator implements Iterator<DunningRule> {
+
+        private final DunningRule[][] sources;
+        private final int[][] ranks;
+        private final int[] positions;
+        private final int sourceCount;
+
+        MergingIterator(DunningRule[][] sources, int[][] ranks, int sourceCount) {
+            this.sources = sources;
+            this.ranks = ranks;
+            this.positions = new int[sourceCount];
+            this.sourceCount = sourceCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (int s = 0; s < sourceCount; s++) {
+                if (positions[s] < sources[s].length) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public DunningRule next() {
+            int best = -1;
+            for (int s = 0; s < sourceCount; s++) {
+                if (positions[s] < sources[s].length
+                        && (best < 0 || ranks[s][positions[s]] < ranks[best][positions[best]])) {
+                    best = s;
+                }
+            }
+            if (best < 0) {
+                throw new NoSuchElementException();
+            }
+            return sources[best][positions[best]++];
+        }
+    }
+}
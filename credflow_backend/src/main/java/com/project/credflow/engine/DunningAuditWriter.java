@@ -0,0 +1,183 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.enums.RuleActionType;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Buffers dunning_execution_logs, dunning_action_logs and dunning_action_outbox rows and writes
+ * them with JDBC batch inserts instead of one {@code save()} per row (both entities use UUID ids generated
+ * by Hibernate, which rules out Hibernate's own insert batching).
+ * <p>
+ * Inside a transaction, rows are bound to that transaction: they are flushed whenever the
+ * buffer reaches {@code dunning.audit.batch-size}, and always just before commit, on the same
+ * connection - so audit rows commit or roll back together with the work they describe.
+ * Outside a transaction (e.g. the outbox dispatcher logging a sent action) each row is written
+ * at once, so it is in the database before the caller goes on to mark the action done.
+ * If a batch insert fails the transaction can only roll back (part of the batch may already
+ * be in it): the exception propagates, and the commit fails even if a caller swallowed it.
+ * <p>
+ * For MySQL, add {@code rewriteBatchedStatements=true} to the JDBC URL so each batch becomes
+ * a single multi-row INSERT.
+ */
+@Component
+@RequiredArgsConstructor
+public class DunningAuditWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(DunningAuditWriter.class);
+
+    private static final String INSERT_EXECUTION_LOG =
+            "INSERT INTO dunning_execution_logs (log_id, rule_id, invoice_id, executed_at) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_ACTION_LOG =
+            "INSERT INTO dunning_action_logs (log_id, action_type, invoice_id, created_at) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_OUTBOX_ENTRY =
+            "INSERT INTO dunning_action_outbox (outbox_id, rule_id, invoice_id, action_type, status, attempts, next_attempt_at, created_at) " +
+                    "VALUES (?, ?, ?, ?, 'PENDING', 0, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${dunning.audit.batch-size:500}")
+    private int batchSize;
+
+    public void recordExecution(UUID ruleId, UUID invoiceId) {
+        Object[] row = {UuidBytes.toBytes(UUID.randomUUID()), UuidBytes.toBytes(ruleId), UuidBytes.toBytes(invoiceId), Timestamp.valueOf(LocalDateTime.now())};
+        AuditBuffer buffer = currentBuffer();
+        if (buffer == null) {
+            jdbcTemplate.update(INSERT_EXECUTION_LOG, row);
+            return;
+        }
+        buffer.executionRows.add(row);
+        flushIfFull(buffer);
+    }
+
+    public void recordAction(RuleActionType actionType, UUID invoiceId) {
+        Object[] row = {UuidBytes.toBytes(UUID.randomUUID()), actionType.name(), UuidBytes.toBytes(invoiceId), Timestamp.valueOf(LocalDateTime.now())};
+        AuditBuffer buffer = currentBuffer();
+        if (buffer == null) {
+            jdbcTemplate.update(INSERT_ACTION_LOG, row);
+            return;
+        }
+        buffer.actionRows.add(row);
+        flushIfFull(buffer);
+    }
+
+    /** Queues the rule's action for the outbox dispatcher (see engine.ActionOutboxDispatcher). */
+    public void enqueueAction(UUID ruleId, UUID invoiceId, RuleActionType actionType) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Object[] row = {UuidBytes.toBytes(UUID.randomUUID()), UuidBytes.toBytes(ruleId), UuidBytes.toBytes(invoiceId), actionType.name(), now, now};
+        AuditBuffer buffer = currentBuffer();
+        if (buffer == null) {
+            jdbcTemplate.update(INSERT_OUTBOX_ENTRY, row);
+            return;
+        }
+        buffer.outboxRows.add(row);
+        flushIfFull(buffer);
+    }
+
+    /** Writes everything buffered for the current transaction (nothing is buffered outside one). */
+    public void flush() {
+        AuditBuffer buffer = currentBuffer();
+        if (buffer != null) {
+            flush(buffer);
+        }
+    }
+
+    private void flushIfFull(AuditBuffer buffer) {
+        if (buffer.size() >= batchSize) {
+            flush(buffer);
+        }
+    }
+
+    private void flush(AuditBuffer buffer) {
+        if (buffer.size() == 0) {
+            return;
+        }
+        List<Object[]> executionRows = buffer.executionRows;
+        List<Object[]> actionRows = buffer.actionRows;
+        List<Object[]> outboxRows = buffer.outboxRows;
+        buffer.executionRows = new ArrayList<>();
+        buffer.actionRows = new ArrayList<>();
+        buffer.outboxRows = new ArrayList<>();
+        try {
+            if (!executionRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_EXECUTION_LOG, executionRows);
+            }
+            if (!actionRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_ACTION_LOG, actionRows);
+            }
+            if (!outboxRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_OUTBOX_ENTRY, outboxRows);
+            }
+        } catch (RuntimeException e) {
+            buffer.failed = true;
+            throw e;
+        }
+        log.debug("Flushed {} execution log, {} action log and {} outbox rows.",
+                executionRows.size(), actionRows.size(), outboxRows.size());
+    }
+
+    /**
+     * The current transaction's buffer; null outside a transaction, where rows are written at once.
+     * Rows recorded once the buffer was flushed for commit (e.g. from an afterCommit callback) would
+     * never be written, and rows recorded after a failed batch would only be rolled back, so both
+     * are rejected.
+     */
+    private AuditBuffer currentBuffer() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        AuditBuffer buffer = (AuditBuffer) TransactionSynchronizationManager.getResource(this);
+        if (buffer != null && buffer.committed) {
+            throw new IllegalStateException("Audit rows recorded after the transaction's rows were flushed for commit");
+        }
+        if (buffer != null && buffer.failed) {
+            throw new IllegalStateException("Audit rows recorded after an audit batch failed in this transaction");
+        }
+        if (buffer == null) {
+            AuditBuffer transactionBuffer = new AuditBuffer();
+            TransactionSynchronizationManager.bindResource(this, transactionBuffer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    if (transactionBuffer.failed) {
+                        // Part of the failed batch may be in the transaction; committing would keep it
+                        throw new IllegalStateException("An audit batch failed in this transaction; rolling back");
+                    }
+                    DunningAuditWriter.this.flush(transactionBuffer); // Flush-on-commit: rows are written on the committing connection
+                    transactionBuffer.committed = true;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DunningAuditWriter.this);
+                }
+            });
+            buffer = transactionBuffer;
+        }
+        return buffer;
+    }
+
+    private static final class AuditBuffer {
+        private List<Object[]> executionRows = new ArrayList<>();
+        private List<Object[]> actionRows = new ArrayList<>();
+        private List<Object[]> outboxRows = new ArrayList<>();
+        private boolean committed;
+        private boolean failed;
+
+        private int size() {
+            return executionRows.size() + actionRows.size() + outboxRows.size();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.dto.ChannelProjectionDto;
+import com.project.credflow.dto.DunningSimulationResultDto;
+import com.project.credflow.dto.RuleSimulationDto;
+import com.project.credflow.enums.NotificationChannel;
+import com.project.credflow.enums.RuleActionType;
+import com.project.credflow.model.DunningRule;
+import com.project.credflow.repository.DunningExecutionLogRepository;
+import com.project.credflow.repository.InvoiceRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Dry-runs a rule set: evaluates it with {@link CompiledRuleIndex} over the same candidates
+ * the engine would scan, and reports what would happen without executing or recording anything.
+ * <p>
+ * Account-range partitions are evaluated in parallel, each inside one read-only transaction,
+ * which on MySQL (REPEATABLE READ) reads a consistent snapshot of the partition. Invoices are
+ * read as {@link InvoiceSnapshot} projections, so no entity is managed or dirty-checked.
+ * <p>
+ * Provider throughput is projected from the configured limits: the per-channel concurrency
+ * caps of {@link NotificationDispatcher}, the SMS senders' token-bucket rate, and an assumed
+ * per-message latency ({@code dunning.simulation.latency-ms.*}).
+ */
+@Component
+@RequiredArgsConstructor
+public class DunningSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(DunningSimulator.class);
+
+    private final InvoiceRepository invoiceRepository;
+    private final DunningExecutionLogRepository logRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${dunning.simulation.parallelism:4}")
+    private int parallelism;
+
+    @Value("${dunning.simulation.partitions:16}")
+    private int partitionCount;
+
+    @Value("${dunning.engine.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${dunning.simulation.latency-ms.email:150}")
+    private double emailLatencyMs;
+
+    @Value("${dunning.simulation.latency-ms.sms:300}")
+    private double smsLatencyMs;
+
+    @Value("${dunning.simulation.latency-ms.app:20}")
+    private double appLatencyMs;
+
+    @Value("${notification.dispatch.max-in-flight.email:200}")
+    private int maxInFlightEmail;
+
+    @Value("${notification.dispatch.max-in-flight.sms:50}")
+    private int maxInFlightSms;
+
+    @Value("${notification.dispatch.max-in-flight.app:20}")
+    private int maxInFlightApp;
+
+    @Value("${sms.rate-per-second:1}")
+    private double smsRatePerSecond;
+
+    @Value("${sms.sender-numbers:}")
+    private String[] smsSenderNumbers;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * @param rulesInPriorityOrder the rule set to simulate, highest priority first
+     * @param lookaheadDate        how far ahead PENDING prepaid invoices are candidates, as in the engine
+     */
+    public DunningSimulationResultDto simulate(List<DunningRule> rulesInPriorityOrder, LocalDate asOf, LocalDate lookaheadDate) {
+        long started = System.nanoTime();
+        CompiledRuleIndex ruleIndex = CompiledRuleIndex.compile(rulesInPriorityOrder, asOf);
+        Map<UUID, Integer> positions = new HashMap<>();
+        for (int i = 0; i < rulesInPriorityOrder.size(); i++) {
+            positions.put(rulesInPriorityOrder.get(i).getRuleId(), i);
+        }
+
+        Tally total = new Tally(rulesInPriorityOrder.size());
+        List<Future<Tally>> results = new ArrayList<>(partitionCount);
+        try (ExecutorService pool = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("dunning-simulation-"))) {
+            for (AccountPartition partition : AccountPartition.split(partitionCount)) {
+                Callable<Tally> task = () -> readOnlyTransaction.execute(status ->
+                        simulatePartition(partition, ruleIndex, positions, lookaheadDate));
+                results.add(pool.submit(task));
+            }
+            for (Future<Tally> result : results) {
+                total.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Dunning simulation was interrupted.");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Dunning simulation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        long evaluationMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Simulated {} rules over {} invoices in {} ms: {} would get an action.",
+                rulesInPriorityOrder.size(), total.scanned, evaluationMillis, total.withAction);
+        return toResult(rulesInPriorityOrder, asOf, total, evaluationMillis);
+    }
+
+    /** Counts for one partition, indexed by the rule's position in the priority order. */
+    private static final class Tally {
+        private long scanned;
+        private long withAction;
+        private final long[] matches;
+        private final long[] wouldExecute;
+
+        private Tally(int ruleCount) {
+            this.matches = new long[ruleCount];
+            this.wouldExecute = new long[ruleCount];
+        }
+
+        private void add(Tally other) {
+            scanned += other.scanned;
+            withAction += other.withAction;
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] += other.matches[i];
+                wouldExecute[i] += other.wouldExecute[i];
+            }
+        }
+    }
+
+    private Tally simulatePartition(AccountPartition partition, CompiledRuleIndex ruleIndex,
+                                    Map<UUID, Integer> positions, LocalDate lookaheadDate) {
+        Tally tally = new Tally(positions.size());
+        PageRequest page = PageRequest.of(0, chunkSize);
+        List<InvoiceSnapshot> chunk = invoiceRepository.findFirstSimulationChunk(
+                lookaheadDate, partition.lowerAccountId(), partition.upperAccountId(), page);
+
+        while (!chunk.isEmpty()) {
+            ExecutedActionSet executed = loadExecutedActions(chunk);
+            for (InvoiceSnapshot snapshot : chunk) {
+                tally.scanned++;
+                boolean acted = false;
+                // Unlike the engine, keep walking after the first pending rule to count every match
+                for (DunningRule rule : ruleIndex.matchingRules(snapshot.toInvoice())) {
+                    int position = positions.get(rule.getRuleId());
+                    tally.matches[position]++;
+                    if (!acted && !executed.contains(rule.getRuleId(), snapshot.invoiceId())) {
+                        tally.wouldExecute[position]++;
+                        acted = true;
+                    }
+                }
+                if (acted) {
+                    tally.withAction++;
+                }
+            }
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            InvoiceSnapshot last = chunk.get(chunk.size() - 1);
+            chunk = invoiceRepository.findSimulationChunkAfter(lookaheadDate, partition.lowerAccountId(),
+                    partition.upperAccountId(), last.dueDate(), last.invoiceId(), page);
+        }
+        return tally;
+    }
+
+    private ExecutedActionSet loadExecutedActions(List<InvoiceSnapshot> chunk) {
+        List<UUID> invoiceIds = new ArrayList<>(chunk.size());
+        for (InvoiceSnapshot snapshot : chunk) {
+            invoiceIds.add(snapshot.invoiceId());
+        }
+        ExecutedActionSet executed = new ExecutedActionSet(chunk.size());
+        for (Map<String, Object> pair : logRepository.findExecutedPairsForInvoices(invoiceIds)) {
+            executed.add((UUID) pair.get("ruleId"), (UUID) pair.get("invoiceId"));
+        }
+        return executed;
+    }
+
+    private DunningSimulationResultDto toResult(List<DunningRule> rules, LocalDate asOf, Tally total, long evaluationMillis) {
+        List<RuleSimulationDto> ruleResults = new ArrayList<>(rules.size());
+        Map<RuleActionType, Long> actionVolumes = new EnumMap<>(RuleActionType.class);
+        for (RuleActionType type : RuleActionType.values()) {
+            actionVolumes.put(type, 0L);
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            DunningRule rule = rules.get(i);
+            ruleResults.add(new RuleSimulationDto(rule.getRuleId(), rule.getRuleName(), rule.getPriority(),
+                    rule.getActionType(), total.matches[i], total.wouldExecute[i]));
+            if (rule.getActionType() != null) {
+                actionVolumes.merge(rule.getActionType(), total.wouldExecute[i], Long::sum);
+            }
+        }
+
+        Map<NotificationChannel, Long> channelVolumes = new EnumMap<>(NotificationChannel.class);
+        actionVolumes.forEach((type, volume) -> channelVolumes.merge(ActionOutboxDispatcher.channelFor(type), volume, Long::sum));
+        List<ChannelProjectionDto> channels = new ArrayList<>();
+        double slowestChannelSeconds = 0;
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            long volume = channelVolumes.getOrDefault(channel, 0L);
+            double perSecond = messagesPerSecond(channel);
+            double seconds = volume == 0 ? 0 : volume / perSecond;
+            channels.add(new ChannelProjectionDto(channel, volume, perSecond, seconds));
+            slowestChannelSeconds = Math.max(slowestChannelSeconds, seconds);
+        }
+        return new DunningSimulationResultDto(asOf, rules.size(), total.scanned, total.withAction, evaluationMillis,
+                ruleResults, actionVolumes, channels, evaluationMillis / 1000.0 + slowestChannelSeconds);
+    }
+
+    // Concurrency cap / latency, and for SMS also the senders' combined token-bucket rate
+    private double messagesPerSecond(NotificationChannel channel) {
+        return switch (channel) {
+            case EMAIL -> maxInFlightEmail * 1000.0 / emailLatencyMs;
+            case SMS -> Math.min(Math.max(smsSenderNumbers.length, 1) * smsRatePerSecond, maxInFlightSms * 1000.0 / smsLatencyMs);
+            case APP -> maxInFlightApp * 1000.0 / appLatencyMs;
+        };
+    }
+}
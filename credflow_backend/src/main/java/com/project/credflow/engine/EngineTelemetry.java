@@ -0,0 +1,178 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.enums.RuleActionType;
+import com.project.credflow.model.DunningEngineRun;
+import com.project.credflow.repository.DunningEngineRunRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects dunning run telemetry: adds each worker's {@link EvaluationStats} to its
+ * dunning_engine_runs row (so partitions finished on other nodes add up) and publishes the same
+ * figures to Micrometer.
+ * <p>
+ * Per-invoice latency goes to the {@code credflow.dunning.invoice.latency} timer and to a
+ * {@link LatencyHistogram} per run, from which the run's p50/p99 are stored when it finishes.
+ * The histogram is node-local, so for a run spread over several nodes those percentiles cover
+ * the invoices evaluated on the coordinator's node.
+ * <p>
+ * Counters: {@code credflow.dunning.invoices.scanned}, {@code credflow.dunning.condition.hits},
+ * {@code credflow.dunning.already_executed.skips}, {@code credflow.dunning.actions} (tagged by
+ * type) and {@code credflow.dunning.action.failures}. {@code credflow.dunning.last_run.*} gauges
+ * describe the last run this node coordinated, for comparing nightly runs.
+ */
+@Component
+@RequiredArgsConstructor
+public class EngineTelemetry {
+
+    private static final String ADD_ACTIONS =
+            "INSERT INTO dunning_engine_run_actions (run_id, action_type, action_count) " +
+                    "VALUES (:runId, :actionType, :actionCount) " +
+                    "ON DUPLICATE KEY UPDATE action_count = action_count + VALUES(action_count)";
+
+    private final MeterRegistry meterRegistry;
+    private final DunningEngineRunRepository dunningEngineRunRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private Counter invoicesScanned;
+    private Counter conditionHits;
+    private Counter alreadyExecutedSkips;
+    private Counter actionFailures;
+    private Timer invoiceLatency;
+
+    private final LastRun lastRun = new LastRun();
+
+    // Latency of the run this node is currently working on (one at a time)
+    private volatile RunLatency currentRun;
+
+    private record RunLatency(UUID runId, LatencyHistogram histogram) {
+    }
+
+    private static final class LastRun {
+        private volatile double durationSeconds;
+        private volatile double invoices;
+        private volatile double actions;
+        private volatile double failures;
+        private volatile double dbSeconds;
+        private volatile double providerSeconds;
+    }
+
+    @PostConstruct
+    public void registerMeters() {
+        invoicesScanned = Counter.builder("credflow.dunning.invoices.scanned")
+                .description("Candidate invoices evaluated by the dunning engine")
+                .register(meterRegistry);
+        conditionHits = Counter.builder("credflow.dunning.condition.hits")
+                .description("Rules whose condition matched an invoice")
+                .register(meterRegistry);
+        alreadyExecutedSkips = Counter.builder("credflow.dunning.already_executed.skips")
+                .description("Matching rules skipped because they already ran for the invoice")
+                .register(meterRegistry);
+        actionFailures = Counter.builder("credflow.dunning.action.failures")
+                .description("Dunning actions that threw")
+                .register(meterRegistry);
+        invoiceLatency = Timer.builder("credflow.dunning.invoice.latency")
+                .description("Time to evaluate one invoice, including its action")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        Gauge.builder("credflow.dunning.last_run.duration", lastRun, run -> run.durationSeconds)
+                .baseUnit("seconds").register(meterRegistry);
+        Gauge.builder("credflow.dunning.last_run.invoices", lastRun, run -> run.invoices)
+                .register(meterRegistry);
+        Gauge.builder("credflow.dunning.last_run.actions", lastRun, run -> run.actions)
+                .register(meterRegistry);
+        Gauge.builder("credflow.dunning.last_run.failures", lastRun, run -> run.failures)
+                .register(meterRegistry);
+        Gauge.builder("credflow.dunning.last_run.db_time", lastRun, run -> run.dbSeconds)
+                .baseUnit("seconds").register(meterRegistry);
+        Gauge.builder("credflow.dunning.last_run.provider_time", lastRun, run -> run.providerSeconds)
+                .baseUnit("seconds").register(meterRegistry);
+    }
+
+    /** The latency histogram of the run; a node only keeps the one for the run it last worked on. */
+    public LatencyHistogram latencyFor(UUID runId) {
+        RunLatency current = currentRun;
+        if (current != null && current.runId().equals(runId)) {
+            return current.histogram();
+        }
+        synchronized (this) {
+            if (currentRun == null || !currentRun.runId().equals(runId)) {
+                currentRun = new RunLatency(runId, new LatencyHistogram());
+            }
+            return currentRun.histogram();
+        }
+    }
+
+    public void recordInvoiceLatency(LatencyHistogram histogram, long nanos) {
+        histogram.record(nanos);
+        invoiceLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adds a worker's counters to the run row and the Micrometer counters. Called once per
+     * partition (or sequential run), outside any chunk transaction.
+     */
+    public void record(UUID runId, EvaluationStats stats) {
+        Map<RuleActionType, Long> actionsByType = stats.actionsByType();
+        transactionTemplate.executeWithoutResult(status -> {
+            dunningEngineRunRepository.addTelemetry(runId, stats.conditionHits(), stats.alreadyExecutedSkips(),
+                    stats.actionFailures(), TimeUnit.NANOSECONDS.toMillis(stats.dbNanos()),
+                    TimeUnit.NANOSECONDS.toMillis(stats.providerNanos()));
+            if (!actionsByType.isEmpty()) {
+                List<MapSqlParameterSource> batch = new ArrayList<>(actionsByType.size());
+                actionsByType.forEach((type, count) -> batch.add(new MapSqlParameterSource()
+                        .addValue("runId", UuidBytes.toBytes(runId))
+                        .addValue("actionType", type.name())
+                        .addValue("actionCount", count)));
+                jdbcTemplate.batchUpdate(ADD_ACTIONS, batch.toArray(new MapSqlParameterSource[0]));
+            }
+        });
+
+        invoicesScanned.increment(stats.invoicesScanned());
+        conditionHits.increment(stats.conditionHits());
+        alreadyExecutedSkips.increment(stats.alreadyExecutedSkips());
+        actionFailures.increment(stats.actionFailures());
+        actionsByType.forEach((type, count) -> Counter.builder("credflow.dunning.actions")
+                .tag("type", type.name().toLowerCase())
+                .description("Dunning actions executed (or queued), by type")
+                .register(meterRegistry)
+                .increment(count));
+    }
+
+    /**
+     * Stores this node's latency percentiles on a run about to be saved as finished, and
+     * updates the last-run gauges from it.
+     */
+    public void completeRun(DunningEngineRun engineRun) {
+        LatencyHistogram histogram = latencyFor(engineRun.getRunId());
+        if (histogram.count() > 0) {
+            engineRun.setInvoiceLatencyP50Micros(TimeUnit.NANOSECONDS.toMicros(histogram.percentileNanos(0.5)));
+            engineRun.setInvoiceLatencyP99Micros(TimeUnit.NANOSECONDS.toMicros(histogram.percentileNanos(0.99)));
+        }
+        if (engineRun.getStartTime() != null && engineRun.getEndTime() != null) {
+            lastRun.durationSeconds = Duration.between(engineRun.getStartTime(), engineRun.getEndTime()).toMillis() / 1000.0;
+        }
+        lastRun.invoices = engineRun.getInvoicesProcessed();
+        lastRun.actions = engineRun.getActionsExecuted();
+        lastRun.failures = engineRun.getActionFailures();
+        lastRun.dbSeconds = engineRun.getDbMillis() / 1000.0;
+        lastRun.providerSeconds = engineRun.getProviderMillis() / 1000.0;
+    }
+}
@@ -0,0 +1,91 @@
+package com.project.credflow.engine;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads and writes invoices.next_evaluation_date, which lets incremental dunning runs
+ * ({@code dunning.engine.incremental}) skip invoices that no active rule can newly match yet.
+ * <p>
+ * A date means "evaluate on or after this day"; {@link CompiledRuleIndex#NO_FURTHER_EVALUATION}
+ * means "only if something changes"; NULL means "changed, evaluate on the next run". Anything
+ * that can make a single invoice match earlier than its stored date resets it to NULL: plan
+ * changes ({@link #invalidateAccount}), aging to OVERDUE and payments. Rule changes affect
+ * every invoice, so instead of resetting them all the next run evaluates everything once
+ * ({@link #rulesChangedSinceLastCompletedRun}).
+ * <p>
+ * All statements run on the caller's transaction.
+ */
+@Component
+@RequiredArgsConstructor
+public class EvaluationSchedule {
+
+    private static final Logger log = LoggerFactory.getLogger(EvaluationSchedule.class);
+
+    // Only overwrites the value the engine read, so a reset that lands mid-run is not lost
+    private static final String SAVE_NEXT_EVALUATION =
+            "UPDATE invoices SET next_evaluation_date = :nextEvaluationDate " +
+                    "WHERE invoice_id = :invoiceId AND next_evaluation_date <=> :previousEvaluationDate";
+    private static final String LATEST_ACTIVE_RULE_CHANGE =
+            "SELECT MAX(updated_at) FROM dunning_rules WHERE is_active = TRUE";
+    private static final String LATEST_COMPLETED_RUN_START =
+            "SELECT MAX(start_time) FROM dunning_engine_runs WHERE status = 'COMPLETED'";
+    private static final String RESET_ACCOUNT =
+            "UPDATE invoices SET next_evaluation_date = NULL " +
+                    "WHERE account_id = :accountId AND next_evaluation_date IS NOT NULL";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /** One evaluated invoice: the date read with it and the date computed for it. */
+    public record NextEvaluation(UUID invoiceId, LocalDate previous, LocalDate next) {
+    }
+
+    /** Stores the computed dates with one JDBC batch, skipping invoices whose date is unchanged. */
+    public void save(List<NextEvaluation> evaluations) {
+        List<MapSqlParameterSource> batch = new ArrayList<>(evaluations.size());
+        for (NextEvaluation evaluation : evaluations) {
+            if (evaluation.next().equals(evaluation.previous())) {
+                continue;
+            }
+            batch.add(new MapSqlParameterSource()
+                    .addValue("nextEvaluationDate", Date.valueOf(evaluation.next()))
+                    .addValue("invoiceId", UuidBytes.toBytes(evaluation.invoiceId()))
+                    .addValue("previousEvaluationDate", evaluation.previous() == null ? null : Date.valueOf(evaluation.previous())));
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(SAVE_NEXT_EVALUATION, batch.toArray(new MapSqlParameterSource[0]));
+        }
+    }
+
+    /**
+     * Whether the next incremental run must evaluate every candidate once instead: stored dates
+     * were computed against the rules of the last completed run, so an active rule created or
+     * edited since that run started may match earlier than they say. The full pass stores fresh
+     * dates as it goes, chunk by chunk, so a rule change itself never rewrites invoice rows.
+     * Deactivated or deleted rules only make stored dates early, which is harmless.
+     */
+    public boolean rulesChangedSinceLastCompletedRun() {
+        Timestamp ruleChange = jdbcTemplate.queryForObject(LATEST_ACTIVE_RULE_CHANGE, new MapSqlParameterSource(), Timestamp.class);
+        if (ruleChange == null) {
+            return false; // No active rules
+        }
+        Timestamp lastRunStart = jdbcTemplate.queryForObject(LATEST_COMPLETED_RUN_START, new MapSqlParameterSource(), Timestamp.class);
+        return lastRunStart == null || !ruleChange.before(lastRunStart);
+    }
+
+    /** Resets the account's invoices, e.g. after its plan (and so the applicable rules) changed. */
+    public int invalidateAccount(UUID accountId) {
+        return jdbcTemplate.update(RESET_ACCOUNT, new MapSqlParameterSource("accountId", UuidBytes.toBytes(accountId)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.enums.RuleActionType;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counters collected while one worker evaluates one partition (or a sequential run).
+ * Not thread-safe: each worker keeps its own and hands it to {@link EngineTelemetry} when done.
+ */
+public final class EvaluationStats {
+
+    private long invoicesScanned;
+    private long conditionHits;
+    private long alreadyExecutedSkips;
+    private long actionsExecuted;
+    private long actionFailures;
+    private long dbNanos;
+    private long providerNanos;
+    private final long[] actionsByType = new long[RuleActionType.values().length];
+
+    public void addInvoicesScanned(long invoices) {
+        invoicesScanned += invoices;
+    }
+
+    /** A rule whose condition matched the invoice, whether or not it then ran. */
+    public void conditionHit() {
+        conditionHits++;
+    }
+
+    public void alreadyExecutedSkip() {
+        alreadyExecutedSkips++;
+    }
+
+    public void actionExecuted(RuleActionType actionType) {
+        actionsExecuted++;
+        actionsByType[actionType.ordinal()]++;
+    }
+
+    public void actionFailed() {
+        actionFailures++;
+    }
+
+    public void addDbNanos(long nanos) {
+        dbNanos += nanos;
+    }
+
+    public void addProviderNanos(long nanos) {
+        providerNanos += nanos;
+    }
+
+    public long invoicesScanned() {
+        return invoicesScanned;
+    }
+
+    public long conditionHits() {
+        return conditionHits;
+    }
+
+    public long alreadyExecutedSkips() {
+        return alreadyExecutedSkips;
+    }
+
+    public long actionsExecuted() {
+        return actionsExecuted;
+    }
+
+    public long actionFailures() {
+        return actionFailures;
+    }
+
+    public long dbNanos() {
+        return dbNanos;
+    }
+
+    public long providerNanos() {
+        return providerNanos;
+    }
+
+    /** Executed (or queued) actions per type; types with none are left out. */
+    public Map<RuleActionType, Long> actionsByType() {
+        Map<RuleActionType, Long> byType = new EnumMap<>(RuleActionType.class);
+        for (RuleActionType type : RuleActionType.values()) {
+            if (actionsByType[type.ordinal()] > 0) {
+                byType.put(type, actionsByType[type.ordinal()]);
+            }
+        }
+        return byType;
+    }
+}
@@ -0,0 +1,30 @@
+package com.project.credflow.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The (rule_id, invoice_id) pairs already present in dunning_execution_logs for one chunk
+ * of invoices, preloaded with a single query so the rule loop never has to ask the database.
+ * Invoice ids are kept per rule in a {@link LongPairHashSet} of their UUID halves.
+ */
+public final class ExecutedActionSet {
+
+    private final Map<UUID, LongPairHashSet> invoicesByRule = new HashMap<>();
+    private final int expectedInvoices;
+
+    public ExecutedActionSet(int expectedInvoices) {
+        this.expectedInvoices = expectedInvoices;
+    }
+
+    public boolean contains(UUID ruleId, UUID invoiceId) {
+        LongPairHashSet invoices = invoicesByRule.get(ruleId);
+        return invoices != null && invoices.contains(invoiceId.getMostSignificantBits(), invoiceId.getLeastSignificantBits());
+    }
+
+    public void add(UUID ruleId, UUID invoiceId) {
+        invoicesByRule.computeIfAbsent(ruleId, id -> new LongPairHashSet(expectedInvoices))
+                .add(invoiceId.getMostSignificantBits(), invoiceId.getLeastSignificantBits());
+    }
+}
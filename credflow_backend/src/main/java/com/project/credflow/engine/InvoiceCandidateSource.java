@@ -0,0 +1,89 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.model.Invoice;
+import com.project.credflow.repository.InvoiceRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streams dunning candidate invoices in fixed-size chunks using a (due_date, invoice_id)
+ * keyset cursor instead of materializing the whole result set.
+ * <p>
+ * Every chunk is read and consumed in its own transaction, which commits before the next
+ * chunk is fetched: the number of managed entities (and the heap) stays bounded by the chunk
+ * size, and a crash only loses the chunk in flight. Scans can be resumed from the
+ * {@link ChunkCursor} of the last committed chunk.
+ * <p>
+ * When {@code evaluateOn} is today, only invoices whose next_evaluation_date has arrived (or
+ * was reset) are streamed; see {@link CompiledRuleIndex#nextEvaluationDate}.
+ * <p>
+ * Invoices without a due date cannot be ordered by the cursor and are not returned; every
+ * OVERDUE or upcoming prepaid invoice has one.
+ */
+@Component
+@RequiredArgsConstructor
+public class InvoiceCandidateSource {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceCandidateSource.class);
+
+    private final InvoiceRepository invoiceRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${dunning.engine.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Feeds every candidate in the partition after {@code resumeAfter} (null: from the start)
+     * to {@code chunkConsumer}, one committed chunk at a time. Must not be called inside a
+     * transaction, or the chunks would join it and nothing would commit until the end.
+     *
+     * @return the number of invoices streamed
+     */
+    public long forEachChunk(LocalDate lookaheadDate, LocalDate evaluateOn, AccountPartition partition,
+                             ChunkCursor resumeAfter, Consumer<ScanChunk<Invoice>> chunkConsumer) {
+        PageRequest page = PageRequest.of(0, chunkSize);
+        ChunkCursor cursor = resumeAfter;
+        long streamed = 0;
+
+        while (true) {
+            ChunkCursor after = cursor;
+            // Entities from the chunk are detached when its transaction commits
+            ScanChunk<Invoice> chunk = transactionTemplate.execute(status -> {
+                long fetchStart = System.nanoTime();
+                List<Invoice> invoices = after == null
+                        ? invoiceRepository.findFirstDunningCandidateChunk(
+                                lookaheadDate, evaluateOn, partition.lowerAccountId(), partition.upperAccountId(), page)
+                        : invoiceRepository.findDunningCandidateChunkAfter(
+                                lookaheadDate, evaluateOn, partition.lowerAccountId(), partition.upperAccountId(),
+                                after.dueDate(), after.invoiceId(), page);
+                if (invoices.isEmpty()) {
+                    return null;
+                }
+                Invoice last = invoices.get(invoices.size() - 1);
+                ScanChunk<Invoice> current = new ScanChunk<>(invoices, invoices.size(),
+                        new ChunkCursor(last.getDueDate(), last.getInvoiceId()), System.nanoTime() - fetchStart);
+                chunkConsumer.accept(current);
+                return current;
+            });
+            if (chunk == null) {
+                break;
+            }
+            streamed += chunk.scanned();
+            cursor = chunk.end();
+            log.debug("Streamed {} candidate invoices so far (partition {}).", streamed, partition.index());
+            if (chunk.scanned() < chunkSize) {
+                break; // Short page: nothing left after the cursor
+            }
+        }
+        return streamed;
+    }
+}
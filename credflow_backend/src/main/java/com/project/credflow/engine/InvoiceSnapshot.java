@@ -0,0 +1,40 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.enums.AccountType;
+import com.project.credflow.enums.InvoiceStatus;
+import com.project.credflow.enums.PlanType;
+import com.project.credflow.model.Account;
+import com.project.credflow.model.Invoice;
+import com.project.credflow.model.Plan;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * The columns rule evaluation reads from an invoice, selected as a JPQL projection so that
+ * simulations load no managed entities. {@link #toInvoice()} rebuilds a detached Invoice
+ * graph for {@link CompiledRuleIndex}.
+ */
+public record InvoiceSnapshot(UUID invoiceId, LocalDate dueDate, InvoiceStatus status, BigDecimal amountDue,
+                              PlanType planType, AccountType accountType) {
+
+    public Invoice toInvoice() {
+        Plan plan = null;
+        if (planType != null) {
+            plan = new Plan();
+            plan.setPlanType(planType);
+        }
+        Account account = new Account();
+        account.setAccountType(accountType);
+        account.setPlan(plan);
+
+        Invoice invoice = new Invoice();
+        invoice.setInvoiceId(invoiceId);
+        invoice.setDueDate(dueDate);
+        invoice.setStatus(status);
+        invoice.setAmountDue(amountDue);
+        invoice.setAccount(account);
+        return invoice;
+    }
+}
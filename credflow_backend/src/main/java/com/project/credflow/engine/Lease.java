@@ -0,0 +1,9 @@
+package com.project.credflow.engine;
+
+/**
+ * A lease held by this node. Writes made on its behalf should be guarded by
+ * {@code fencingToken}, so a holder that stalled past expiry cannot overwrite the work of
+ * the node that took the lease over.
+ */
+public record Lease(String name, String ownerId, long fencingToken) {
+}
@@ -0,0 +1,190 @@
+package com.project.credflow.engine;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Database-backed leases (table engine_leases) that let exactly one node at a time own a
+ * piece of work, such as coordinating the nightly dunning run or processing one partition.
+ * <p>
+ * A lease is acquired when it is released or expired, renewed by a heartbeat every
+ * {@code dunning.lease.heartbeat-ms} and expires {@code dunning.lease.ttl-ms} after the last
+ * one, so the work of a crashed node is picked up by another. All timestamps come from the
+ * database clock, so the nodes' clocks do not need to agree.
+ * <p>
+ * Expiry alone cannot stop a node that stalled (a long GC pause, a network partition) from
+ * writing after another node took over. Each acquisition therefore increments the lease's
+ * fencing token, and fenced writes carry the holder's token in their WHERE clause.
+ * <p>
+ * Heartbeats run on a dedicated thread: the Spring scheduler thread may be busy running the
+ * very job the lease protects.
+ */
+@Component
+@RequiredArgsConstructor
+public class LeaseManager {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaseManager.class);
+
+    private static final String CREATE_IF_ABSENT =
+            "INSERT IGNORE INTO engine_leases (lease_name, fencing_token) VALUES (:leaseName, 0)";
+    private static final String ACQUIRE =
+            "UPDATE engine_leases SET owner_id = :ownerId, fencing_token = fencing_token + 1, " +
+                    "acquired_at = NOW(3), heartbeat_at = NOW(3), expires_at = NOW(3) + INTERVAL (:ttlMs * 1000) MICROSECOND " +
+                    "WHERE lease_name = :leaseName AND (owner_id IS NULL OR expires_at < NOW(3))";
+    private static final String READ_TOKEN =
+            "SELECT fencing_token FROM engine_leases WHERE lease_name = :leaseName AND owner_id = :ownerId";
+    private static final String RENEW =
+            "UPDATE engine_leases SET heartbeat_at = NOW(3), expires_at = NOW(3) + INTERVAL (:ttlMs * 1000) MICROSECOND " +
+                    "WHERE lease_name = :leaseName AND owner_id = :ownerId AND fencing_token = :fencingToken";
+    private static final String RELEASE =
+            "UPDATE engine_leases SET owner_id = NULL, expires_at = NOW(3) " +
+                    "WHERE lease_name = :leaseName AND owner_id = :ownerId AND fencing_token = :fencingToken";
+    private static final String READ_OWNER =
+            "SELECT owner_id FROM engine_leases WHERE lease_name = :leaseName AND expires_at >= NOW(3)";
+    private static final String READ_HOLDER =
+            "SELECT owner_id, fencing_token FROM engine_leases " +
+                    "WHERE lease_name = :leaseName AND owner_id IS NOT NULL AND expires_at >= NOW(3)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Defaults to host name plus a random suffix, unique per JVM
+    @Value("${dunning.cluster.node-id:}")
+    private String nodeId;
+
+    @Value("${dunning.lease.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${dunning.lease.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    private final Map<String, Lease> heldLeases = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService heartbeatExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("lease-heartbeat-"));
+        heartbeatExecutor.scheduleWithFixedDelay(this::renewAll, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        log.info("Lease manager started for node '{}' (ttl {} ms, heartbeat {} ms).", nodeId, ttlMs, heartbeatMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        // Let other nodes take over immediately instead of waiting for expiry
+        heldLeases.values().forEach(this::release);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /** Acquires the lease if no live node holds it; renewed in the background until released. */
+    public Optional<Lease> tryAcquire(String leaseName) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("leaseName", leaseName)
+                .addValue("ownerId", nodeId)
+                .addValue("ttlMs", ttlMs);
+        Long token = transactionTemplate.execute(status -> {
+            jdbcTemplate.update(CREATE_IF_ABSENT, params);
+            if (jdbcTemplate.update(ACQUIRE, params) == 0) {
+                return null;
+            }
+            return jdbcTemplate.queryForObject(READ_TOKEN, params, Long.class);
+        });
+        if (token == null) {
+            return Optional.empty();
+        }
+        Lease lease = new Lease(leaseName, nodeId, token);
+        heldLeases.put(leaseName, lease);
+        log.debug("Acquired lease '{}' with fencing token {}.", leaseName, token);
+        return Optional.of(lease);
+    }
+
+    public void release(Lease lease) {
+        heldLeases.remove(lease.name(), lease);
+        try {
+            jdbcTemplate.update(RELEASE, tokenParams(lease));
+            log.debug("Released lease '{}' (fencing token {}).", lease.name(), lease.fencingToken());
+        } catch (Exception e) {
+            log.warn("Could not release lease '{}', it will expire instead: {}", lease.name(), e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the last heartbeat still found the lease ours. A cheap local check for loops
+     * that should stop early; fenced writes remain the authoritative guard.
+     */
+    public boolean isHeld(Lease lease) {
+        return lease.equals(heldLeases.get(lease.name()));
+    }
+
+    /** The node holding the lease right now, if any. */
+    public Optional<String> currentOwner(String leaseName) {
+        List<String> owners = jdbcTemplate.queryForList(READ_OWNER, new MapSqlParameterSource("leaseName", leaseName), String.class);
+        return owners.isEmpty() ? Optional.empty() : Optional.ofNullable(owners.get(0));
+    }
+
+    /**
+     * The live lease as recorded in the database, held by this node or another. Lets a node
+     * check that work it is about to join still has the owner it was started under.
+     */
+    public Optional<Lease> currentHolder(String leaseName) {
+        List<Lease> holders = jdbcTemplate.query(READ_HOLDER, new MapSqlParameterSource("leaseName", leaseName),
+                (rs, rowNum) -> new Lease(leaseName, rs.getString("owner_id"), rs.getLong("fencing_token")));
+        return holders.isEmpty() ? Optional.empty() : Optional.of(holders.get(0));
+    }
+
+    private void renewAll() {
+        for (Lease lease : heldLeases.values()) {
+            try {
+                if (jdbcTemplate.update(RENEW, tokenParams(lease).addValue("ttlMs", ttlMs)) == 0) {
+                    heldLeases.remove(lease.name(), lease);
+                    log.error("Lost lease '{}' (fencing token {}): it expired or was taken over.", lease.name(), lease.fencingToken());
+                }
+            } catch (Exception e) {
+                // Keep it: the next heartbeat may still make it before expiry
+                log.warn("Heartbeat for lease '{}' failed: {}", lease.name(), e.getMessage());
+            }
+        }
+    }
+
+    private MapSqlParameterSource tokenParams(Lease lease) {
+        return new MapSqlParameterSource()
+                .addValue("leaseName", lease.name())
+                .addValue("ownerId", lease.ownerId())
+                .addValue("fencingToken", lease.fencingToken());
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.project.credflow.engine;
+
+/**
+ * Open-addressing hash set of (long, long) pairs backed by a single primitive array,
+ * used to hold the two 64-bit halves of a UUID without boxing.
+ * <p>
+ * Not thread-safe; the engine builds one per chunk on the worker that owns it.
+ */
+public final class LongPairHashSet {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // keys[2 * slot] = high bits, keys[2 * slot + 1] = low bits; (0, 0) marks an empty slot
+    private long[] keys;
+    private int mask;
+    private int size;
+    private boolean containsZeroPair;
+
+    public LongPairHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new long[capacity * 2];
+        this.mask = capacity - 1;
+    }
+
+    public boolean add(long high, long low) {
+        if (high == 0L && low == 0L) {
+            boolean added = !containsZeroPair;
+            containsZeroPair = true;
+            if (added) size++;
+            return added;
+        }
+        int slot = slotOf(high, low);
+        while (true) {
+            long h = keys[slot << 1];
+            long l = keys[(slot << 1) + 1];
+            if (h == 0L && l == 0L) {
+                keys[slot << 1] = high;
+                keys[(slot << 1) + 1] = low;
+                if (++size > (mask + 1) * LOAD_FACTOR) {
+                    grow();
+                }
+                return true;
+            }
+            if (h == high && l == low) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public boolean contains(long high, long low) {
+        if (high == 0L && low == 0L) {
+            return containsZeroPair;
+        }
+        int slot = slotOf(high, low);
+        while (true) {
+            long h = keys[slot << 1];
+            long l = keys[(slot << 1) + 1];
+            if (h == 0L && l == 0L) {
+                return false;
+            }
+            if (h == high && l == low) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slotOf(long high, long low) {
+        long hash = high * 0x9E3779B97F4A7C15L ^ low;
+        hash ^= hash >>> 32;
+        hash *= 0xBF58476D1CE4E5B9L;
+        return (int) (hash ^ (hash >>> 29)) & mask;
+    }
+
+    private void grow() {
+        long[] old = keys;
+        keys = new long[old.length * 2];
+        mask = (keys.length >> 1) - 1;
+        size = containsZeroPair ? 1 : 0;
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != 0L || old[i + 1] != 0L) {
+                add(old[i], old[i + 1]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LongPairHashSet{size=" + size + ", capacity=" + (mask + 1) + "}";
+    }
+}
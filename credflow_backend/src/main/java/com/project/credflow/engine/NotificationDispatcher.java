@@ -0,0 +1,144 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.enums.NotificationChannel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs notification deliveries on virtual threads: a task blocked on SMTP or the Twilio API
+ * parks its virtual thread instead of pinning an OS thread, so thousands of sends can be in
+ * flight on a handful of carrier threads.
+ * <p>
+ * Each channel has its own {@link Semaphore}, which caps concurrent calls to that provider
+ * ({@code notification.dispatch.max-in-flight.*}). The permit is taken inside the task, before
+ * it touches the database, so waiting tasks hold neither a platform thread nor a connection.
+ * {@link NotificationChannel#APP} is used for actions that stay inside CredFlow (BPO tasks,
+ * account restrictions).
+ * <p>
+ * Per channel, {@code credflow.notifications.in_flight} and {@code credflow.notifications.waiting}
+ * gauges and a {@code credflow.notifications.latency} timer are exported to Micrometer.
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notification.dispatch.max-in-flight.email:200}")
+    private int maxInFlightEmail;
+
+    @Value("${notification.dispatch.max-in-flight.sms:50}")
+    private int maxInFlightSms;
+
+    @Value("${notification.dispatch.max-in-flight.app:20}")
+    private int maxInFlightApp;
+
+    private final Map<NotificationChannel, ChannelLane> lanes = new EnumMap<>(NotificationChannel.class);
+
+    private ExecutorService virtualThreadExecutor;
+
+    @PostConstruct
+    public void init() {
+        virtualThreadExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("notify-", 0).factory());
+        lanes.put(NotificationChannel.EMAIL, new ChannelLane(NotificationChannel.EMAIL, maxInFlightEmail));
+        lanes.put(NotificationChannel.SMS, new ChannelLane(NotificationChannel.SMS, maxInFlightSms));
+        lanes.put(NotificationChannel.APP, new ChannelLane(NotificationChannel.APP, maxInFlightApp));
+        log.info("Notification dispatcher started on virtual threads (max in flight: email={}, sms={}, app={}).",
+                maxInFlightEmail, maxInFlightSms, maxInFlightApp);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        virtualThreadExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs the task on its own virtual thread once a permit for the channel is free.
+     * The returned future completes with the task's result or exception.
+     */
+    public <T> CompletableFuture<T> submit(NotificationChannel channel, Callable<T> task) {
+        ChannelLane lane = lanes.get(channel);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        virtualThreadExecutor.execute(() -> {
+            try {
+                result.complete(lane.run(task));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    public CompletableFuture<Void> submit(NotificationChannel channel, Runnable task) {
+        return submit(channel, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    private final class ChannelLane {
+        private final Semaphore permits;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Timer latency;
+
+        private ChannelLane(NotificationChannel channel, int maxInFlight) {
+            this.permits = new Semaphore(maxInFlight);
+            String tag = channel.name().toLowerCase();
+            Gauge.builder("credflow.notifications.in_flight", inFlight, AtomicInteger::get)
+                    .tag("channel", tag)
+                    .description("Deliveries currently calling the provider")
+                    .register(meterRegistry);
+            Gauge.builder("credflow.notifications.waiting", waiting, AtomicInteger::get)
+                    .tag("channel", tag)
+                    .description("Deliveries waiting for a channel permit")
+                    .register(meterRegistry);
+            this.latency = Timer.builder("credflow.notifications.latency")
+                    .tag("channel", tag)
+                    .description("Time from permit acquisition to delivery completion")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        private <T> T run(Callable<T> task) throws Exception {
+            waiting.incrementAndGet();
+            try {
+                permits.acquire();
+            } finally {
+                waiting.decrementAndGet();
+            }
+            inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                return task.call();
+            } finally {
+                latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                inFlight.decrementAndGet();
+                permits.release();
+            }
+        }
+    }
+}
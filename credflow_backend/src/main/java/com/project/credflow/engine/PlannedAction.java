@@ -0,0 +1,10 @@
+package com.project.credflow.engine;
+
+import java.util.UUID;
+
+/**
+ * An invoice together with the first (by priority) active rule that matches it and has not
+ * been executed for it yet, as computed by {@link RuleQueryPlanner} in the database.
+ */
+public record PlannedAction(UUID invoiceId, UUID ruleId) {
+}
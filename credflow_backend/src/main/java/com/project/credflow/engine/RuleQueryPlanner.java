@@ -0,0 +1,210 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.enums.AccountType;
+import com.project.credflow.enums.PlanType;
+import com.project.credflow.model.DunningRule;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Pushes rule evaluation down into MySQL.
+ * <p>
+ * The active rules are translated once per run into a single candidate query whose
+ * {@code CASE} expression picks, per invoice, the first rule (in priority order) whose
+ * condition holds and that has no row in dunning_execution_logs yet. The WHERE clause also
+ * ORs all rule predicates together, so invoices no rule can match never leave the database.
+ * Every supported condition is a plain, index-friendly predicate:
+ * <ul>
+ *     <li>DAYS_OVERDUE n: status = OVERDUE and due_date &lt;= today - n</li>
+ *     <li>DAYS_UNTIL_DUE n: status = PENDING and due_date &lt;= today + n</li>
+ *     <li>MIN_AMOUNT_DUE x: amount_due &gt;= x</li>
+ *     <li>ACCOUNT_TYPE t: accounts.account_type = t</li>
+ * </ul>
+ * Results are paged with the same (due_date, invoice_id) keyset as {@link InvoiceCandidateSource}.
+ */
+@Component
+@RequiredArgsConstructor
+public class RuleQueryPlanner {
+
+    private static final Logger log = LoggerFactory.getLogger(RuleQueryPlanner.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${dunning.engine.chunk-size:500}")
+    private int chunkSize;
+
+    /** SQL plus the rule-dependent parameters for one run. */
+    public record QueryPlan(String firstChunkSql, String nextChunkSql, MapSqlParameterSource ruleParameters, int ruleCount) {
+    }
+
+    /**
+     * @param rulesInPriorityOrder active rules, highest priority first
+     * @return the plan, or null if none of the rules can ever match
+     */
+    public QueryPlan plan(List<DunningRule> rulesInPriorityOrder, LocalDate today) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        StringBuilder caseExpression = new StringBuilder("CASE");
+        List<String> predicates = new ArrayList<>();
+
+        for (int r = 0; r < rulesInPriorityOrder.size(); r++) {
+            DunningRule rule = rulesInPriorityOrder.get(r);
+            String predicate = predicateFor(rule, r, today, parameters);
+            if (predicate == null) {
+                log.debug("Rule '{}' has no usable condition value and is left out of the plan.", rule.getRuleName());
+                continue;
+            }
+            parameters.addValue("rule" + r, UuidBytes.toBytes(rule.getRuleId()));
+            caseExpression.append(" WHEN ").append(predicate)
+                    .append(" AND NOT EXISTS (SELECT 1 FROM dunning_execution_logs l")
+                    .append(" WHERE l.invoice_id = i.invoice_id AND l.rule_id = :rule").append(r).append(")")
+                    .append(" THEN :rule").append(r);
+            predicates.add(predicate);
+        }
+        if (predicates.isEmpty()) {
+            return null;
+        }
+        caseExpression.append(" END");
+
+        String base = "SELECT i.invoice_id, i.due_date, " + caseExpression + " AS rule_id " +
+                "FROM invoices i " +
+                "JOIN accounts a ON a.account_id = i.account_id " +
+                "LEFT JOIN plans p ON p.plan_id = a.plan_id " +
+                "WHERE (i.status = 'OVERDUE' OR (i.status = 'PENDING' AND p.plan_type = 'PREPAID' AND i.due_date <= :lookaheadDate)) " +
+                "AND i.due_date IS NOT NULL " +
+                "AND a.account_id BETWEEN :lowerAccountId AND :upperAccountId " +
+                "AND (" + String.join(" OR ", predicates) + ") ";
+        String order = "ORDER BY i.due_date ASC, i.invoice_id ASC LIMIT :chunkSize";
+
+        String firstChunkSql = base + order;
+        String nextChunkSql = base +
+                "AND (i.due_date > :lastDueDate OR (i.due_date = :lastDueDate AND i.invoice_id > :lastInvoiceId)) " + order;
+        log.debug("Planned dunning candidate query for {} rules: {}", predicates.size(), nextChunkSql);
+        return new QueryPlan(firstChunkSql, nextChunkSql, parameters, predicates.size());
+    }
+
+    /**
+     * Runs the plan over one partition after {@code resumeAfter} (null: from the start) and
+     * hands each page to {@code chunkConsumer}, every page in its own transaction. The page's
+     * items are the invoices that have a rule to execute; pages without any are still handed
+     * over so their cursor can be checkpointed. Must not be called inside a transaction.
+     *
+     * @return the number of candidate rows scanned (including those whose rules all ran already)
+     */
+    public long forEachChunk(QueryPlan plan, LocalDate lookaheadDate, AccountPartition partition,
+                             ChunkCursor resumeAfter, Consumer<ScanChunk<PlannedAction>> chunkConsumer) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource(plan.ruleParameters().getValues())
+                .addValue("lookaheadDate", Date.valueOf(lookaheadDate))
+                .addValue("lowerAccountId", UuidBytes.toBytes(partition.lowerAccountId()))
+                .addValue("upperAccountId", UuidBytes.toBytes(partition.upperAccountId()))
+                .addValue("chunkSize", chunkSize);
+        ChunkCursor cursor = resumeAfter;
+        long scanned = 0;
+
+        while (true) {
+            String sql = cursor == null ? plan.firstChunkSql() : plan.nextChunkSql();
+            if (cursor != null) {
+                parameters.addValue("lastDueDate", Date.valueOf(cursor.dueDate()))
+                        .addValue("lastInvoiceId", UuidBytes.toBytes(cursor.invoiceId()));
+            }
+            ScanChunk<PlannedAction> chunk = transactionTemplate.execute(status -> {
+                List<PlannedAction> actions = new ArrayList<>();
+                Object[] last = new Object[2];
+                int[] rows = {0};
+                long fetchStart = System.nanoTime();
+                jdbcTemplate.query(sql, parameters, rs -> {
+                    rows[0]++;
+                    UUID invoiceId = UuidBytes.toUuid(rs.getBytes("invoice_id"));
+                    byte[] ruleId = rs.getBytes("rule_id");
+                    if (ruleId != null) {
+                        actions.add(new PlannedAction(invoiceId, UuidBytes.toUuid(ruleId)));
+                    }
+                    last[0] = rs.getDate("due_date").toLocalDate();
+                    last[1] = invoiceId;
+                });
+                if (rows[0] == 0) {
+                    return null;
+                }
+                ScanChunk<PlannedAction> current = new ScanChunk<>(actions, rows[0],
+                        new ChunkCursor((LocalDate) last[0], (UUID) last[1]), System.nanoTime() - fetchStart);
+                chunkConsumer.accept(current); // Its execution logs commit before the next page's CASE runs
+                return current;
+            });
+            if (chunk == null) {
+                break;
+            }
+            scanned += chunk.scanned();
+            cursor = chunk.end();
+            if (chunk.scanned() < chunkSize) {
+                break; // Short page: nothing left after the cursor
+            }
+        }
+        return scanned;
+    }
+
+    private static String predicateFor(DunningRule rule, int r, LocalDate today, MapSqlParameterSource parameters) {
+        if (rule.getConditionType() == null) {
+            return null;
+        }
+        String condition;
+        switch (rule.getConditionType()) {
+            case DAYS_OVERDUE:
+                if (rule.getConditionValueInteger() == null) return null;
+                parameters.addValue("cond" + r, Date.valueOf(today.minusDays(rule.getConditionValueInteger())));
+                condition = "i.status = 'OVERDUE' AND i.due_date <= :cond" + r;
+                break;
+            case DAYS_UNTIL_DUE:
+                if (rule.getConditionValueInteger() == null) return null;
+                parameters.addValue("cond" + r, Date.valueOf(today.plusDays(rule.getConditionValueInteger())));
+                condition = "i.status = 'PENDING' AND i.due_date <= :cond" + r;
+                break;
+            case MIN_AMOUNT_DUE:
+                if (rule.getConditionValueDecimal() == null) return null;
+                parameters.addValue("cond" + r, rule.getConditionValueDecimal());
+                condition = "i.amount_due >= :cond" + r;
+                break;
+            case ACCOUNT_TYPE:
+                AccountType accountType = parseAccountType(rule.getConditionValueString());
+                if (accountType == null) return null;
+                parameters.addValue("cond" + r, accountType.name());
+                condition = "a.account_type = :cond" + r;
+                break;
+            default:
+                return null;
+        }
+
+        PlanType appliesTo = rule.getAppliesToPlanType();
+        if (appliesTo == null) {
+            condition = "p.plan_type IS NULL AND " + condition;
+        } else if (appliesTo != PlanType.ALL) {
+            parameters.addValue("plan" + r, appliesTo.name());
+            condition = "p.plan_type = :plan" + r + " AND " + condition;
+        }
+        return "(" + condition + ")";
+    }
+
+    private static AccountType parseAccountType(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        for (AccountType type : AccountType.values()) {
+            if (type.name().equalsIgnoreCase(value)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,236 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.dto.DunningRunProgressDto;
+import com.project.credflow.enums.EngineRunStatus;
+import com.project.credflow.model.DunningEngineRun;
+import com.project.credflow.model.DunningRunPartition;
+import com.project.credflow.repository.DunningEngineRunRepository;
+import com.project.credflow.repository.DunningRunPartitionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the progress of dunning runs to SSE subscribers (see {@code GET /api/admin/dashboard/runs/{runId}/progress}).
+ * <p>
+ * Chunks committed on this node are pushed as they commit. Since partitions may run on other
+ * nodes and the subscriber may be connected to a node that is not coordinating the run, run
+ * totals are also read from dunning_engine_runs / dunning_run_partitions every
+ * {@code dunning.progress.poll-interval-ms} while anyone is subscribed; that poll also ends the
+ * stream once the run is no longer RUNNING. It has its own thread, since the Spring scheduler's
+ * single thread may be busy with the run itself.
+ * <p>
+ * Nothing is tracked for runs nobody is watching.
+ */
+@Component
+@RequiredArgsConstructor
+public class RunProgressBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(RunProgressBroadcaster.class);
+
+    private final DunningEngineRunRepository dunningEngineRunRepository;
+    private final DunningRunPartitionRepository partitionRepository;
+
+    @Value("${dunning.progress.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Value("${dunning.progress.poll-interval-ms:2000}")
+    private long pollIntervalMs;
+
+    private final Map<UUID, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final Map<UUID, AtomicLong> chunksDone = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService pollExecutor;
+
+    @PostConstruct
+    public void startPolling() {
+        pollExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("dunning-progress-"));
+        pollExecutor.scheduleWithFixedDelay(this::pollSubscribedRuns, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopPolling() {
+        pollExecutor.shutdownNow();
+        subscribers.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+    }
+
+    /**
+     * Opens a stream for the run, starting with its current totals. The stream of a run that
+     * has already ended carries only the "finished" event.
+     */
+    public SseEmitter subscribe(DunningEngineRun engineRun) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        DunningRunProgressDto snapshot = snapshot(engineRun);
+        if (engineRun.getStatus() != EngineRunStatus.RUNNING) {
+            send(engineRun.getRunId(), emitter, snapshot);
+            emitter.complete();
+            return emitter;
+        }
+        UUID runId = engineRun.getRunId();
+        subscribers.computeIfAbsent(runId, id -> new CopyOnWriteArrayList<>()).add(emitter);
+        emitter.onCompletion(() -> unsubscribe(runId, emitter));
+        emitter.onTimeout(() -> unsubscribe(runId, emitter));
+        emitter.onError(e -> unsubscribe(runId, emitter));
+        send(runId, emitter, snapshot);
+        return emitter;
+    }
+
+    /**
+     * Reports a chunk once its transaction commits (immediately if there is none).
+     * {@code partitionIndex} is null for sequential runs.
+     */
+    public void chunkCommitted(UUID runId, Integer partitionIndex, long invoices, long actions) {
+        if (!subscribers.containsKey(runId)) {
+            return;
+        }
+        Runnable publish = () -> {
+            DunningRunProgressDto event = event("chunk", runId, EngineRunStatus.RUNNING);
+            event.setPartitionIndex(partitionIndex);
+            event.setChunksDone(chunksDone.computeIfAbsent(runId, id -> new AtomicLong()).incrementAndGet());
+            event.setInvoicesProcessed(invoices);
+            event.setActionsExecuted(actions);
+            publish(runId, event);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+
+    /** Reports a failed partition ({@code partitionIndex} set) or run. */
+    public void failed(UUID runId, Integer partitionIndex, String message) {
+        if (!subscribers.containsKey(runId)) {
+            return;
+        }
+        DunningRunProgressDto event = event("error", runId, partitionIndex == null ? EngineRunStatus.FAILED : EngineRunStatus.RUNNING);
+        event.setPartitionIndex(partitionIndex);
+        event.setMessage(message);
+        publish(runId, event);
+    }
+
+    /** Sends the final totals of a run that ended on this node and closes its streams here. */
+    public void runFinished(DunningEngineRun engineRun) {
+        if (subscribers.containsKey(engineRun.getRunId())) {
+            finish(engineRun.getRunId(), snapshot(engineRun));
+        }
+    }
+
+    private void pollSubscribedRuns() {
+        for (UUID runId : subscribers.keySet()) {
+            try {
+                DunningEngineRun engineRun = dunningEngineRunRepository.findById(runId).orElse(null);
+                if (engineRun == null) {
+                    finish(runId, event("finished", runId, EngineRunStatus.FAILED));
+                } else if (engineRun.getStatus() != EngineRunStatus.RUNNING) {
+                    finish(runId, snapshot(engineRun));
+                } else {
+                    publish(runId, snapshot(engineRun));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not poll progress of dunning run {}: {}", runId, e.getMessage());
+            }
+        }
+    }
+
+    /** Run totals as committed so far: from the partitions for a partitioned run, else the run row. */
+    private DunningRunProgressDto snapshot(DunningEngineRun engineRun) {
+        boolean running = engineRun.getStatus() == EngineRunStatus.RUNNING;
+        DunningRunProgressDto event = event(running ? "progress" : "finished", engineRun.getRunId(), engineRun.getStatus());
+        event.setActionFailures(engineRun.getActionFailures());
+        event.setMessage(engineRun.getErrorMessage());
+        if (running && engineRun.getPartitionCount() != null && engineRun.getPartitionCount() > 0) {
+            long invoices = 0;
+            long actions = 0;
+            int done = 0;
+            for (DunningRunPartition partition : partitionRepository.findByEngineRun_RunIdOrderByPartitionIndexAsc(engineRun.getRunId())) {
+                invoices += partition.getInvoicesProcessed();
+                actions += partition.getActionsExecuted();
+                if (partition.getStatus() == EngineRunStatus.COMPLETED || partition.getStatus() == EngineRunStatus.FAILED) {
+                    done++;
+                }
+            }
+            event.setPartitionsDone(done);
+            event.setPartitionCount(engineRun.getPartitionCount());
+            event.setInvoicesProcessed(invoices);
+            event.setActionsExecuted(actions);
+        } else {
+            event.setInvoicesProcessed(engineRun.getInvoicesProcessed());
+            event.setActionsExecuted(engineRun.getActionsExecuted());
+        }
+        return event;
+    }
+
+    private static DunningRunProgressDto event(String name, UUID runId, EngineRunStatus status) {
+        DunningRunProgressDto event = new DunningRunProgressDto();
+        event.setEvent(name);
+        event.setRunId(runId);
+        event.setStatus(status);
+        event.setTimestamp(LocalDateTime.now());
+        return event;
+    }
+
+    private void finish(UUID runId, DunningRunProgressDto finalEvent) {
+        List<SseEmitter> emitters = subscribers.remove(runId);
+        chunksDone.remove(runId);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            send(runId, emitter, finalEvent);
+            emitter.complete();
+        }
+    }
+
+    private void publish(UUID runId, DunningRunProgressDto event) {
+        List<SseEmitter> emitters = subscribers.get(runId);
+        if (emitters != null) {
+            for (SseEmitter emitter : emitters) {
+                send(runId, emitter, event);
+            }
+        }
+    }
+
+    private void send(UUID runId, SseEmitter emitter, DunningRunProgressDto event) {
+        try {
+            emitter.send(SseEmitter.event().name(event.getEvent()).data(event));
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe(runId, emitter); // Client went away
+        }
+    }
+
+    private void unsubscribe(UUID runId, SseEmitter emitter) {
+        subscribers.computeIfPresent(runId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+        if (!subscribers.containsKey(runId)) {
+            chunksDone.remove(runId);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.project.credflow.engine;
+
+import java.util.List;
+
+/**
+ * One page of a keyset scan, handed to the engine inside the page's own transaction.
+ *
+ * @param items   the rows to act on
+ * @param scanned the candidate rows the page covered (at least {@code items.size()})
+ * @param end     where the page stopped; store it in the same transaction to checkpoint the scan
+ * @param fetchNanos time spent running the page's query, for run telemetry
+ */
+public record ScanChunk<T>(List<T> items, int scanned, ChunkCursor end, long fetchNanos) {
+}
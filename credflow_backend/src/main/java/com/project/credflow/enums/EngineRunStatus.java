@@ -0,0 +1,8 @@
+package com.project.credflow.enums;
+
+public enum EngineRunStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
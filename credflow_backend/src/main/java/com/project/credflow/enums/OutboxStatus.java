@@ -0,0 +1,8 @@
+package com.project.credflow.enums;
+
+public enum OutboxStatus {
+    PENDING,
+    IN_PROGRESS,
+    DONE,
+    DEAD_LETTER
+}
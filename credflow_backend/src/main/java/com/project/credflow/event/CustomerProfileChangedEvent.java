@@ -0,0 +1,11 @@
+package com.project.credflow.event;
+
+import java.util.UUID;
+
+/**
+ * Published when a user's name, email or phone number, or their customer profile, may have
+ * changed, so the customer search index can re-read that customer once the change commits.
+ * Users without a customer profile are ignored by consumers.
+ */
+public record CustomerProfileChangedEvent(UUID userId) {
+}
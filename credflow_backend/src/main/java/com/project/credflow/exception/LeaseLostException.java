@@ -0,0 +1,8 @@
+package com.project.credflow.exception;
+
+/** Thrown when a fenced write finds that this node's lease has expired or been taken over. */
+public class LeaseLostException extends RuntimeException {
+    public LeaseLostException(String message) {
+        super(message);
+    }
+}
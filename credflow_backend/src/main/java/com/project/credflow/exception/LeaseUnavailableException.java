@@ -0,0 +1,8 @@
+package com.project.credflow.exception;
+
+/** Thrown when work needs a lease that another node currently holds. */
+public class LeaseUnavailableException extends RuntimeException {
+    public LeaseUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.project.credflow.exception;
+
+/** Thrown by an SmsGateway when the provider rejected a message because of rate limiting. */
+public class SmsThrottledException extends RuntimeException {
+    public SmsThrottledException(String message) {
+        super(message);
+    }
+}
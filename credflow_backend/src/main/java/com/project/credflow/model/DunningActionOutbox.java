@@ -0,0 +1,64 @@
+package com.project.credflow.model;
+
+import com.project.credflow.enums.OutboxStatus;
+import com.project.credflow.enums.RuleActionType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A dunning action queued by the engine and executed later by the outbox dispatcher.
+ * Rows are inserted in the engine's transaction (see engine.DunningAuditWriter), so an
+ * action is queued if and only if its execution log is written.
+ */
+@Entity
+@Table(name = "dunning_action_outbox", indexes = {
+        @Index(name = "idx_outbox_status_next_attempt", columnList = "status, next_attempt_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class DunningActionOutbox {
+
+    @Id
+    @Column(name = "outbox_id", columnDefinition = "binary(16)")
+    private UUID outboxId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "rule_id", nullable = false)
+    private DunningRule dunningRule;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "invoice_id", nullable = false)
+    private Invoice invoice;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action_type", nullable = false)
+    private RuleActionType actionType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "claimed_at") // Set while IN_PROGRESS; stale claims are released after a timeout
+    private LocalDateTime claimedAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
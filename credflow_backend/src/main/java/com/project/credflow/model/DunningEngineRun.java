@@ -1,11 +1,18 @@
 package com.project.credflow.model;
 
+import com.project.credflow.enums.EngineRunStatus;
+import com.project.credflow.enums.RuleActionType;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Entity
@@ -26,5 +33,78 @@ public class DunningEngineRun {
     @Column(name = "end_time") // Nullable until the process finishes
     private LocalDateTime endTime;
 
-    // You could add fields like 'status' (STARTED, COMPLETED, FAILED) or 'actions_executed' later
+    @Column(name = "run_date") // The evaluation date; a resumed run keeps it
+    private LocalDate runDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private EngineRunStatus status = EngineRunStatus.RUNNING;
+
+    // Totals so far; sequential runs advance them with every committed chunk
+    @Column(name = "invoices_processed", nullable = false)
+    private long invoicesProcessed;
+
+    @Column(name = "actions_executed", nullable = false)
+    private long actionsExecuted;
+
+    // Keyset cursor of the last committed chunk (sequential runs; partitions keep their own)
+    @Column(name = "last_due_date")
+    private LocalDate lastDueDate;
+
+    @Column(name = "last_invoice_id", columnDefinition = "binary(16)")
+    private UUID lastInvoiceId;
+
+    @Column(name = "coordinator_node") // The node holding the coordinator lease
+    private String coordinatorNode;
+
+    // Fencing token of the coordinator lease; checkpoints from an older coordinator are rejected
+    @Column(name = "fencing_token")
+    private Long fencingToken;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    // --- Telemetry; the counters are added to by every worker (on any node) as it finishes ---
+    @Column(name = "rules_evaluated") // Active rules compiled for the run
+    private Integer rulesEvaluated;
+
+    @Column(name = "condition_hits", nullable = false) // (invoice, rule) pairs whose condition matched
+    private long conditionHits;
+
+    @Column(name = "already_executed_skips", nullable = false)
+    private long alreadyExecutedSkips;
+
+    @Column(name = "action_failures", nullable = false)
+    private long actionFailures;
+
+    @Column(name = "db_millis", nullable = false) // Candidate queries, execution-log lookups and checkpoints
+    private long dbMillis;
+
+    @Column(name = "provider_millis", nullable = false) // Inside the action itself (SMTP, Twilio, BPO, ...)
+    private long providerMillis;
+
+    // Per-invoice evaluation latency, as measured on the coordinator's node
+    @Column(name = "invoice_latency_p50_micros")
+    private Long invoiceLatencyP50Micros;
+
+    @Column(name = "invoice_latency_p99_micros")
+    private Long invoiceLatencyP99Micros;
+
+    @ElementCollection
+    @CollectionTable(name = "dunning_engine_run_actions", joinColumns = @JoinColumn(name = "run_id"))
+    @MapKeyEnumerated(EnumType.STRING)
+    @MapKeyColumn(name = "action_type")
+    @Column(name = "action_count", nullable = false)
+    private Map<RuleActionType, Long> actionsByType = new HashMap<>();
+
+    @Column(name = "parallelism") // Worker threads used; 1 for a sequential run
+    private Integer parallelism;
+
+    @Column(name = "partition_count") // Number of account-range partitions; 0 for a sequential run
+    private Integer partitionCount;
+
+    // Written by the partition workers through their own repository, so no cascade from the run
+    @OneToMany(mappedBy = "engineRun")
+    @OrderBy("partitionIndex ASC")
+    private List<DunningRunPartition> partitions = new ArrayList<>();
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.project.credflow.model;
+
+import com.project.credflow.enums.EngineRunStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Progress of one account-range partition of a parallel dunning run.
+ * Each row is written only by the worker holding the partition's lease, on whichever node it
+ * runs. It checkpoints the counts and keyset cursor with every committed chunk, fenced by the
+ * lease's token.
+ */
+@Entity
+@Table(name = "dunning_run_partitions", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"run_id", "partition_index"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class DunningRunPartition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "partition_id", columnDefinition = "binary(16)")
+    private UUID partitionId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "run_id", nullable = false)
+    private DunningEngineRun engineRun;
+
+    @Column(name = "partition_index", nullable = false)
+    private Integer partitionIndex;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private EngineRunStatus status = EngineRunStatus.PENDING;
+
+    @Column(name = "invoices_processed", nullable = false)
+    private long invoicesProcessed;
+
+    @Column(name = "actions_executed", nullable = false)
+    private long actionsExecuted;
+
+    @Column(name = "last_due_date")
+    private LocalDate lastDueDate;
+
+    @Column(name = "last_invoice_id", columnDefinition = "binary(16)")
+    private UUID lastInvoiceId;
+
+    @Column(name = "owner_node")
+    private String ownerNode;
+
+    @Column(name = "fencing_token", nullable = false)
+    private long fencingToken;
+
+    @Column(name = "start_time")
+    private LocalDateTime startTime;
+
+    @Column(name = "end_time")
+    private LocalDateTime endTime;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    public DunningRunPartition(DunningEngineRun engineRun, int partitionIndex) {
+        this.engineRun = engineRun;
+        this.partitionIndex = partitionIndex;
+    }
+}
@@ -0,0 +1,40 @@
+package com.project.credflow.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A named, time-limited lock shared by all application nodes (see engine.LeaseManager).
+ * The row outlives its holders: fencing_token only ever grows, so every acquisition gets a
+ * token higher than any earlier holder's.
+ */
+@Entity
+@Table(name = "engine_leases")
+@Getter
+@Setter
+@NoArgsConstructor
+public class EngineLease {
+
+    @Id
+    @Column(name = "lease_name", length = 100)
+    private String leaseName;
+
+    @Column(name = "owner_id") // NULL when released
+    private String ownerId;
+
+    @Column(name = "fencing_token", nullable = false)
+    private long fencingToken;
+
+    @Column(name = "acquired_at", columnDefinition = "datetime(3)")
+    private LocalDateTime acquiredAt;
+
+    @Column(name = "heartbeat_at", columnDefinition = "datetime(3)")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "expires_at", columnDefinition = "datetime(3)")
+    private LocalDateTime expiresAt;
+}
@@ -14,7 +14,11 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "invoices")
+@Table(name = "invoices", indexes = {
+        @Index(name = "idx_invoices_status_due_date", columnList = "status, due_date"), // Aging job and dunning candidate scans
+        @Index(name = "idx_invoices_next_evaluation_date", columnList = "next_evaluation_date"), // Incremental dunning runs
+        @Index(name = "idx_invoices_account_due_date", columnList = "account_id, due_date, invoice_id") // Customer invoice history pages
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -43,6 +47,10 @@ public class Invoice {
     @Column(name = "status")
     private InvoiceStatus status;
 
+    // When the dunning engine next needs to look at this invoice; NULL means "changed, evaluate on the next run"
+    @Column(name = "next_evaluation_date")
+    private LocalDate nextEvaluationDate;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
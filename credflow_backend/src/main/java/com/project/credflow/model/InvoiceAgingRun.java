@@ -0,0 +1,38 @@
+package com.project.credflow.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "invoice_aging_runs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class InvoiceAgingRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "run_id", columnDefinition = "binary(16)")
+    private UUID runId;
+
+    @Column(name = "as_of_date", nullable = false) // Invoices due before this date were aged
+    private LocalDate asOfDate;
+
+    @Column(name = "start_time", nullable = false)
+    private LocalDateTime startTime;
+
+    @Column(name = "end_time") // Nullable until the job finishes
+    private LocalDateTime endTime;
+
+    @Column(name = "invoices_aged", nullable = false)
+    private long invoicesAged;
+
+    @Column(name = "chunks", nullable = false)
+    private int chunks;
+}
@@ -2,8 +2,12 @@ package com.project.credflow.repository;
 
 import com.project.credflow.model.Account;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,4 +18,22 @@ public interface AccountRepository extends JpaRepository<Account, UUID> {
     List<Account> findByCustomer_CustomerId(UUID customerId);
 
     List<Account> findByAccountNumberContainingIgnoreCase(String accountNumberQuery);
+
+    // A customer's accounts with their plans, for the history page (the DTO shows the plan)
+    @Query("SELECT a FROM Account a LEFT JOIN FETCH a.plan WHERE a.customer.customerId = :customerId")
+    List<Account> findWithPlanByCustomerId(@Param("customerId") UUID customerId);
+
+    // Bulk forms of the RESTRICT_SERVICE / THROTTLE_SPEED actions. They bypass the persistence
+    // context, so Account entities already loaded in the transaction keep their old status.
+    @Modifying
+    @Query("UPDATE Account a SET a.status = com.project.credflow.enums.AccountStatus.SUSPENDED, a.currentSpeed = '0 Mbps' " +
+            "WHERE a.accountId IN :accountIds")
+    int restrictAll(@Param("accountIds") Collection<UUID> accountIds);
+
+    // Only ACTIVE or already THROTTLED accounts are throttled; returns how many were
+    @Modifying
+    @Query("UPDATE Account a SET a.status = com.project.credflow.enums.AccountStatus.THROTTLED, a.currentSpeed = '512 Kbps' " +
+            "WHERE a.accountId IN :accountIds " +
+            "AND a.status IN (com.project.credflow.enums.AccountStatus.ACTIVE, com.project.credflow.enums.AccountStatus.THROTTLED)")
+    int throttleAll(@Param("accountIds") Collection<UUID> accountIds);
 }
\ No newline at end of file
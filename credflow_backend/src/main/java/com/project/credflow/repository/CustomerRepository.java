@@ -2,8 +2,11 @@ package com.project.credflow.repository;
 
 import com.project.credflow.model.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -19,4 +22,7 @@ public interface CustomerRepository extends JpaRepository<Customer, UUID> {
     List<Customer> findByUser_EmailContainingIgnoreCase(String emailQuery);
 
     List<Customer> findByUser_PhoneNumberContaining(String phoneQuery);
+
+    @Query("SELECT c FROM Customer c JOIN FETCH c.user WHERE c.customerId IN :customerIds")
+    List<Customer> findWithUserByCustomerIdIn(@Param("customerIds") Collection<UUID> customerIds);
 }
\ No newline at end of file
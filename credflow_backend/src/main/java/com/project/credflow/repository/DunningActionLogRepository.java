@@ -1,8 +1,10 @@
 package com.project.credflow.repository;
 
 import com.project.credflow.model.DunningActionLog;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -23,4 +25,28 @@ public interface DunningActionLogRepository extends JpaRepository<DunningActionL
             "WHERE a.customer.customerId = :customerId " +
             "ORDER BY dal.createdAt DESC")
     List<DunningActionLog> findByCustomer(UUID customerId);
-}
\ No newline at end of file
+
+    // --- Customer history pages (see service.impl.HistoryCursor): newest first ---
+    @Query("SELECT dal FROM DunningActionLog dal JOIN Invoice i ON dal.invoiceId = i.invoiceId " +
+            "JOIN Account a ON i.account = a " +
+            "WHERE a.customer.customerId = :customerId " +
+            "ORDER BY dal.createdAt DESC, dal.logId DESC")
+    List<DunningActionLog> findFirstHistoryPage(@Param("customerId") UUID customerId, Pageable pageable);
+
+    @Query("SELECT dal FROM DunningActionLog dal JOIN Invoice i ON dal.invoiceId = i.invoiceId " +
+            "JOIN Account a ON i.account = a " +
+            "WHERE a.customer.customerId = :customerId " +
+            "AND (dal.createdAt < :lastCreatedAt OR (dal.createdAt = :lastCreatedAt AND dal.logId < :lastLogId)) " +
+            "ORDER BY dal.createdAt DESC, dal.logId DESC")
+    List<DunningActionLog> findHistoryPageAfter(@Param("customerId") UUID customerId,
+                                                @Param("lastCreatedAt") LocalDateTime lastCreatedAt,
+                                                @Param("lastLogId") UUID lastLogId,
+                                                Pageable pageable);
+
+    // One row: actionCount, lastActionAt
+    @Query("SELECT COUNT(dal) AS actionCount, MAX(dal.createdAt) AS lastActionAt " +
+            "FROM DunningActionLog dal JOIN Invoice i ON dal.invoiceId = i.invoiceId " +
+            "JOIN Account a ON i.account = a " +
+            "WHERE a.customer.customerId = :customerId")
+    List<Map<String, Object>> summarizeForCustomer(@Param("customerId") UUID customerId);
+}
@@ -0,0 +1,69 @@
+package com.project.credflow.repository;
+
+import com.project.credflow.enums.OutboxStatus;
+import com.project.credflow.model.DunningActionOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface DunningActionOutboxRepository extends JpaRepository<DunningActionOutbox, UUID> {
+
+    // FOR UPDATE SKIP LOCKED (lock timeout -2): concurrent dispatchers never claim the same row
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM DunningActionOutbox o " +
+            "WHERE o.status = com.project.credflow.enums.OutboxStatus.PENDING AND o.nextAttemptAt <= :now " +
+            "ORDER BY o.nextAttemptAt ASC")
+    List<DunningActionOutbox> findDueForDispatch(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Everything RuleActionService touches, loaded in one round trip (it runs on the detached graph)
+    @Query("SELECT o FROM DunningActionOutbox o JOIN FETCH o.dunningRule r LEFT JOIN FETCH r.template " +
+            "JOIN FETCH o.invoice inv JOIN FETCH inv.account acc LEFT JOIN FETCH acc.plan " +
+            "LEFT JOIN FETCH acc.customer c LEFT JOIN FETCH c.user " +
+            "WHERE o.outboxId = :outboxId")
+    Optional<DunningActionOutbox> findForDispatch(@Param("outboxId") UUID outboxId);
+
+    @Query("SELECT o FROM DunningActionOutbox o JOIN FETCH o.dunningRule r LEFT JOIN FETCH r.template " +
+            "JOIN FETCH o.invoice inv JOIN FETCH inv.account acc LEFT JOIN FETCH acc.plan " +
+            "LEFT JOIN FETCH acc.customer c LEFT JOIN FETCH c.user " +
+            "WHERE o.outboxId IN :outboxIds")
+    List<DunningActionOutbox> findAllForDispatch(@Param("outboxIds") Collection<UUID> outboxIds);
+
+    // Outcome of a claimed entry; matches nothing (0) once the claim was released and possibly re-claimed
+    @Modifying
+    @Query("UPDATE DunningActionOutbox o SET o.status = com.project.credflow.enums.OutboxStatus.DONE, " +
+            "o.attempts = o.attempts + 1, o.claimedAt = null, o.completedAt = :completedAt, o.lastError = null " +
+            "WHERE o.outboxId = :outboxId AND o.status = com.project.credflow.enums.OutboxStatus.IN_PROGRESS " +
+            "AND o.claimedAt = :claimedAt")
+    int markDoneIfClaimed(@Param("outboxId") UUID outboxId, @Param("claimedAt") LocalDateTime claimedAt,
+                          @Param("completedAt") LocalDateTime completedAt);
+
+    @Modifying
+    @Query("UPDATE DunningActionOutbox o SET o.status = :status, o.attempts = :attempts, o.claimedAt = null, " +
+            "o.nextAttemptAt = :nextAttemptAt, o.lastError = :lastError " +
+            "WHERE o.outboxId = :outboxId AND o.status = com.project.credflow.enums.OutboxStatus.IN_PROGRESS " +
+            "AND o.claimedAt = :claimedAt")
+    int markFailedIfClaimed(@Param("outboxId") UUID outboxId, @Param("claimedAt") LocalDateTime claimedAt,
+                            @Param("status") OutboxStatus status, @Param("attempts") int attempts,
+                            @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("lastError") String lastError);
+
+    // Claims left behind by a dispatcher that died mid-action go back to the queue
+    @Modifying
+    @Query("UPDATE DunningActionOutbox o SET o.status = com.project.credflow.enums.OutboxStatus.PENDING, o.claimedAt = null " +
+            "WHERE o.status = com.project.credflow.enums.OutboxStatus.IN_PROGRESS AND o.claimedAt < :cutoff")
+    int releaseStaleClaims(@Param("cutoff") LocalDateTime cutoff);
+}
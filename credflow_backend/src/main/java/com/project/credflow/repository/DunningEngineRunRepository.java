@@ -1,9 +1,15 @@
 package com.project.credflow.repository;
 
+import com.project.credflow.enums.EngineRunStatus;
 import com.project.credflow.model.DunningEngineRun;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,4 +18,50 @@ public interface DunningEngineRunRepository extends JpaRepository<DunningEngineR
 
 
     Optional<DunningEngineRun> findTopByOrderByStartTimeDesc();
+
+    // The partitioned run that worker nodes should help with, if any
+    Optional<DunningEngineRun> findTopByStatusAndPartitionCountGreaterThanOrderByStartTimeDesc(EngineRunStatus status, Integer partitionCount);
+
+    // Called in the chunk's own transaction, so the cursor commits exactly with the chunk's work.
+    // Returns 0 if another coordinator (higher fencing token) has taken the run over.
+    @Modifying
+    @Query("UPDATE DunningEngineRun r SET r.lastDueDate = :lastDueDate, r.lastInvoiceId = :lastInvoiceId, " +
+            "r.invoicesProcessed = r.invoicesProcessed + :invoices, r.actionsExecuted = r.actionsExecuted + :actions " +
+            "WHERE r.runId = :runId AND r.fencingToken = :fencingToken")
+    int checkpoint(@Param("runId") UUID runId,
+                   @Param("fencingToken") long fencingToken,
+                   @Param("lastDueDate") LocalDate lastDueDate,
+                   @Param("lastInvoiceId") UUID lastInvoiceId,
+                   @Param("invoices") long invoices,
+                   @Param("actions") long actions);
+
+    // Records how the run ended without writing back the telemetry counters workers may still be adding to.
+    // Null totals (a sequential run, whose checkpoints already counted them) leave those columns as they are.
+    @Modifying
+    @Query("UPDATE DunningEngineRun r SET r.status = :status, r.errorMessage = :errorMessage, r.endTime = :endTime, " +
+            "r.invoiceLatencyP50Micros = :p50Micros, r.invoiceLatencyP99Micros = :p99Micros, " +
+            "r.invoicesProcessed = COALESCE(:invoices, r.invoicesProcessed), r.actionsExecuted = COALESCE(:actions, r.actionsExecuted) " +
+            "WHERE r.runId = :runId AND r.fencingToken = :fencingToken")
+    int finish(@Param("runId") UUID runId,
+               @Param("fencingToken") long fencingToken,
+               @Param("status") EngineRunStatus status,
+               @Param("errorMessage") String errorMessage,
+               @Param("endTime") LocalDateTime endTime,
+               @Param("p50Micros") Long p50Micros,
+               @Param("p99Micros") Long p99Micros,
+               @Param("invoices") Long invoices,
+               @Param("actions") Long actions);
+
+    // Adds one worker's telemetry; not fenced, the work it describes has happened either way
+    @Modifying
+    @Query("UPDATE DunningEngineRun r SET r.conditionHits = r.conditionHits + :conditionHits, " +
+            "r.alreadyExecutedSkips = r.alreadyExecutedSkips + :skips, r.actionFailures = r.actionFailures + :failures, " +
+            "r.dbMillis = r.dbMillis + :dbMillis, r.providerMillis = r.providerMillis + :providerMillis " +
+            "WHERE r.runId = :runId")
+    int addTelemetry(@Param("runId") UUID runId,
+                     @Param("conditionHits") long conditionHits,
+                     @Param("skips") long skips,
+                     @Param("failures") long failures,
+                     @Param("dbMillis") long dbMillis,
+                     @Param("providerMillis") long providerMillis);
 }
\ No newline at end of file
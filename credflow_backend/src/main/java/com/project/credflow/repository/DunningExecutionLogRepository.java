@@ -2,9 +2,14 @@ package com.project.credflow.repository;
 
 import com.project.credflow.model.DunningExecutionLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -14,6 +19,11 @@ public interface DunningExecutionLogRepository extends JpaRepository<DunningExec
 
     boolean existsByDunningRule_RuleIdAndInvoice_InvoiceId(UUID ruleId, UUID invoiceId);
 
+    // Already-executed (ruleId, invoiceId) pairs for one chunk of invoices, see engine.ExecutedActionSet
+    @Query("SELECT l.dunningRule.ruleId AS ruleId, l.invoice.invoiceId AS invoiceId " +
+            "FROM DunningExecutionLog l WHERE l.invoice.invoiceId IN :invoiceIds")
+    List<Map<String, Object>> findExecutedPairsForInvoices(@Param("invoiceIds") Collection<UUID> invoiceIds);
+
     Optional<DunningExecutionLog> findFirstByOrderByExecutedAtDesc();
 
     long countByExecutedAtBetween(LocalDateTime start, LocalDateTime end);
@@ -0,0 +1,63 @@
+package com.project.credflow.repository;
+
+import com.project.credflow.enums.EngineRunStatus;
+import com.project.credflow.model.DunningRunPartition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DunningRunPartitionRepository extends JpaRepository<DunningRunPartition, UUID> {
+
+    List<DunningRunPartition> findByEngineRun_RunIdOrderByPartitionIndexAsc(UUID runId);
+
+    List<DunningRunPartition> findByEngineRun_RunIdAndStatusInOrderByPartitionIndexAsc(UUID runId, Collection<EngineRunStatus> statuses);
+
+    // Takes the partition for the holder of its lease. PENDING partitions and RUNNING ones whose
+    // previous holder's lease expired (a lower token) can be claimed; returns 0 otherwise.
+    @Modifying
+    @Query("UPDATE DunningRunPartition p SET p.status = com.project.credflow.enums.EngineRunStatus.RUNNING, " +
+            "p.ownerNode = :ownerNode, p.fencingToken = :fencingToken, p.errorMessage = NULL, " +
+            "p.startTime = COALESCE(p.startTime, :now) " +
+            "WHERE p.partitionId = :partitionId AND p.fencingToken < :fencingToken " +
+            "AND p.status IN (com.project.credflow.enums.EngineRunStatus.PENDING, com.project.credflow.enums.EngineRunStatus.RUNNING)")
+    int claim(@Param("partitionId") UUID partitionId,
+              @Param("ownerNode") String ownerNode,
+              @Param("fencingToken") long fencingToken,
+              @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE DunningRunPartition p SET p.status = :status, p.errorMessage = :errorMessage, p.endTime = :endTime " +
+            "WHERE p.partitionId = :partitionId AND p.fencingToken = :fencingToken")
+    int finish(@Param("partitionId") UUID partitionId,
+               @Param("fencingToken") long fencingToken,
+               @Param("status") EngineRunStatus status,
+               @Param("errorMessage") String errorMessage,
+               @Param("endTime") LocalDateTime endTime);
+
+    // A resumed run retries its failed partitions
+    @Modifying
+    @Query("UPDATE DunningRunPartition p SET p.status = com.project.credflow.enums.EngineRunStatus.PENDING " +
+            "WHERE p.engineRun.runId = :runId AND p.status = com.project.credflow.enums.EngineRunStatus.FAILED")
+    int resetFailed(@Param("runId") UUID runId);
+
+    // See DunningEngineRunRepository.checkpoint
+    @Modifying
+    @Query("UPDATE DunningRunPartition p SET p.lastDueDate = :lastDueDate, p.lastInvoiceId = :lastInvoiceId, " +
+            "p.invoicesProcessed = p.invoicesProcessed + :invoices, p.actionsExecuted = p.actionsExecuted + :actions " +
+            "WHERE p.partitionId = :partitionId AND p.fencingToken = :fencingToken")
+    int checkpoint(@Param("partitionId") UUID partitionId,
+                   @Param("fencingToken") long fencingToken,
+                   @Param("lastDueDate") LocalDate lastDueDate,
+                   @Param("lastInvoiceId") UUID lastInvoiceId,
+                   @Param("invoices") long invoices,
+                   @Param("actions") long actions);
+}
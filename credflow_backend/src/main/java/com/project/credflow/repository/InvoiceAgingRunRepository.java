@@ -0,0 +1,14 @@
+package com.project.credflow.repository;
+
+import com.project.credflow.model.InvoiceAgingRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface InvoiceAgingRunRepository extends JpaRepository<InvoiceAgingRun, UUID> {
+
+    Optional<InvoiceAgingRun> findTopByOrderByStartTimeDesc();
+}
@@ -1,8 +1,10 @@
 package com.project.credflow.repository;
 
+import com.project.credflow.engine.InvoiceSnapshot;
 import com.project.credflow.model.Account;
 import com.project.credflow.model.Invoice;
 import com.project.credflow.enums.InvoiceStatus; // <-- 1. IMPORT THE ENUM
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -10,6 +12,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -19,6 +22,11 @@ public interface InvoiceRepository extends JpaRepository<Invoice, UUID> {
 
     List<Invoice> findByAccount_AccountId(UUID accountId);
 
+    // All invoices of a customer, latest due date first, invoices without one last
+    @Query("SELECT i FROM Invoice i WHERE i.account.customer.customerId = :customerId " +
+            "ORDER BY CASE WHEN i.dueDate IS NULL THEN 1 ELSE 0 END, i.dueDate DESC")
+    List<Invoice> findByCustomerIdOrderByDueDateDesc(@Param("customerId") UUID customerId);
+
     List<Invoice> findByStatus(InvoiceStatus status);
 
     long countByStatus(InvoiceStatus status);
@@ -52,4 +60,117 @@ public interface InvoiceRepository extends JpaRepository<Invoice, UUID> {
             "AND p.planType = com.project.credflow.enums.PlanType.PREPAID " +
             "AND inv.dueDate <= :lookaheadDate")
     List<Invoice> findPendingPrepaidInvoicesDueBefore(@Param("lookaheadDate") LocalDate lookaheadDate);
-}
\ No newline at end of file
+
+    // --- Keyset-paginated dunning candidates, see engine.InvoiceCandidateSource ---
+    // Candidates are OVERDUE invoices, or PENDING prepaid invoices due within the lookahead, whose
+    // account falls inside one AccountPartition. Pages are ordered by (dueDate, invoiceId) and
+    // fetch the account and plan so rule evaluation triggers no further selects. Incremental runs
+    // pass today as evaluateOn to skip invoices whose next_evaluation_date is still ahead; full
+    // runs pass CompiledRuleIndex.NO_FURTHER_EVALUATION, which every row satisfies.
+
+    @Query("SELECT inv FROM Invoice inv JOIN FETCH inv.account acc LEFT JOIN FETCH acc.plan p " +
+            "WHERE (inv.status = com.project.credflow.enums.InvoiceStatus.OVERDUE " +
+            "   OR (inv.status = com.project.credflow.enums.InvoiceStatus.PENDING " +
+            "       AND p.planType = com.project.credflow.enums.PlanType.PREPAID " +
+            "       AND inv.dueDate <= :lookaheadDate)) " +
+            "AND acc.accountId BETWEEN :lowerAccountId AND :upperAccountId " +
+            "AND (inv.nextEvaluationDate IS NULL OR inv.nextEvaluationDate <= :evaluateOn) " +
+            "AND inv.dueDate IS NOT NULL " +
+            "ORDER BY inv.dueDate ASC, inv.invoiceId ASC")
+    List<Invoice> findFirstDunningCandidateChunk(@Param("lookaheadDate") LocalDate lookaheadDate,
+                                                 @Param("evaluateOn") LocalDate evaluateOn,
+                                                 @Param("lowerAccountId") UUID lowerAccountId,
+                                                 @Param("upperAccountId") UUID upperAccountId,
+                                                 Pageable chunk);
+
+    @Query("SELECT inv FROM Invoice inv JOIN FETCH inv.account acc LEFT JOIN FETCH acc.plan p " +
+            "WHERE (inv.status = com.project.credflow.enums.InvoiceStatus.OVERDUE " +
+            "   OR (inv.status = com.project.credflow.enums.InvoiceStatus.PENDING " +
+            "       AND p.planType = com.project.credflow.enums.PlanType.PREPAID " +
+            "       AND inv.dueDate <= :lookaheadDate)) " +
+            "AND acc.accountId BETWEEN :lowerAccountId AND :upperAccountId " +
+            "AND (inv.nextEvaluationDate IS NULL OR inv.nextEvaluationDate <= :evaluateOn) " +
+            "AND (inv.dueDate > :lastDueDate OR (inv.dueDate = :lastDueDate AND inv.invoiceId > :lastInvoiceId)) " +
+            "ORDER BY inv.dueDate ASC, inv.invoiceId ASC")
+    List<Invoice> findDunningCandidateChunkAfter(@Param("lookaheadDate") LocalDate lookaheadDate,
+                                                 @Param("evaluateOn") LocalDate evaluateOn,
+                                                 @Param("lowerAccountId") UUID lowerAccountId,
+                                                 @Param("upperAccountId") UUID upperAccountId,
+                                                 @Param("lastDueDate") LocalDate lastDueDate,
+                                                 @Param("lastInvoiceId") UUID lastInvoiceId,
+                                                 Pageable chunk);
+
+    // Same candidates and keyset as above, as read-only projections for engine.DunningSimulator
+
+    @Query("SELECT new com.project.credflow.engine.InvoiceSnapshot(inv.invoiceId, inv.dueDate, inv.status, inv.amountDue, p.planType, acc.accountType) " +
+            "FROM Invoice inv JOIN inv.account acc LEFT JOIN acc.plan p " +
+            "WHERE (inv.status = com.project.credflow.enums.InvoiceStatus.OVERDUE " +
+            "   OR (inv.status = com.project.credflow.enums.InvoiceStatus.PENDING " +
+            "       AND p.planType = com.project.credflow.enums.PlanType.PREPAID " +
+            "       AND inv.dueDate <= :lookaheadDate)) " +
+            "AND acc.accountId BETWEEN :lowerAccountId AND :upperAccountId " +
+            "AND inv.dueDate IS NOT NULL " +
+            "ORDER BY inv.dueDate ASC, inv.invoiceId ASC")
+    List<InvoiceSnapshot> findFirstSimulationChunk(@Param("lookaheadDate") LocalDate lookaheadDate,
+                                                   @Param("lowerAccountId") UUID lowerAccountId,
+                                                   @Param("upperAccountId") UUID upperAccountId,
+                                                   Pageable chunk);
+
+    @Query("SELECT new com.project.credflow.engine.InvoiceSnapshot(inv.invoiceId, inv.dueDate, inv.status, inv.amountDue, p.planType, acc.accountType) " +
+            "FROM Invoice inv JOIN inv.account acc LEFT JOIN acc.plan p " +
+            "WHERE (inv.status = com.project.credflow.enums.InvoiceStatus.OVERDUE " +
+            "   OR (inv.status = com.project.credflow.enums.InvoiceStatus.PENDING " +
+            "       AND p.planType = com.project.credflow.enums.PlanType.PREPAID " +
+            "       AND inv.dueDate <= :lookaheadDate)) " +
+            "AND acc.accountId BETWEEN :lowerAccountId AND :upperAccountId " +
+            "AND (inv.dueDate > :lastDueDate OR (inv.dueDate = :lastDueDate AND inv.invoiceId > :lastInvoiceId)) " +
+            "ORDER BY inv.dueDate ASC, inv.invoiceId ASC")
+    List<InvoiceSnapshot> findSimulationChunkAfter(@Param("lookaheadDate") LocalDate lookaheadDate,
+                                                   @Param("lowerAccountId") UUID lowerAccountId,
+                                                   @Param("upperAccountId") UUID upperAccountId,
+                                                   @Param("lastDueDate") LocalDate lastDueDate,
+                                                   @Param("lastInvoiceId") UUID lastInvoiceId,
+                                                   Pageable chunk);
+
+    @Query("SELECT inv FROM Invoice inv JOIN FETCH inv.account acc LEFT JOIN FETCH acc.plan " +
+            "WHERE inv.invoiceId IN :invoiceIds")
+    List<Invoice> findWithAccountAndPlanByInvoiceIdIn(@Param("invoiceIds") Collection<UUID> invoiceIds);
+
+    // Customer id and name per invoice, for bulk BPO task creation; loads no Customer or User entity
+    @Query("SELECT i.invoiceId AS invoiceId, c.customerId AS customerId, u.fullName AS fullName " +
+            "FROM Invoice i JOIN i.account a JOIN a.customer c LEFT JOIN c.user u WHERE i.invoiceId IN :invoiceIds")
+    List<Map<String, Object>> findCustomerNamesForInvoices(@Param("invoiceIds") Collection<UUID> invoiceIds);
+
+    // --- Customer history pages (see service.impl.HistoryCursor): latest due date first, undated last ---
+    // Dated and undated invoices are two segments, each a range of idx_invoices_account_due_date
+    // (account_id, due_date, invoice_id) per account of the customer, compared on the raw column.
+    @Query("SELECT i FROM Invoice i WHERE i.account.customer.customerId = :customerId AND i.dueDate IS NOT NULL " +
+            "ORDER BY i.dueDate DESC, i.invoiceId DESC")
+    List<Invoice> findFirstHistoryPage(@Param("customerId") UUID customerId, Pageable pageable);
+
+    @Query("SELECT i FROM Invoice i WHERE i.account.customer.customerId = :customerId AND i.dueDate IS NOT NULL " +
+            "AND (i.dueDate < :lastDueDate OR (i.dueDate = :lastDueDate AND i.invoiceId < :lastInvoiceId)) " +
+            "ORDER BY i.dueDate DESC, i.invoiceId DESC")
+    List<Invoice> findHistoryPageAfter(@Param("customerId") UUID customerId,
+                                       @Param("lastDueDate") LocalDate lastDueDate,
+                                       @Param("lastInvoiceId") UUID lastInvoiceId,
+                                       Pageable pageable);
+
+    @Query("SELECT i FROM Invoice i WHERE i.account.customer.customerId = :customerId AND i.dueDate IS NULL " +
+            "ORDER BY i.invoiceId DESC")
+    List<Invoice> findFirstUndatedHistoryPage(@Param("customerId") UUID customerId, Pageable pageable);
+
+    @Query("SELECT i FROM Invoice i WHERE i.account.customer.customerId = :customerId AND i.dueDate IS NULL " +
+            "AND i.invoiceId < :lastInvoiceId ORDER BY i.invoiceId DESC")
+    List<Invoice> findUndatedHistoryPageAfter(@Param("customerId") UUID customerId,
+                                              @Param("lastInvoiceId") UUID lastInvoiceId,
+                                              Pageable pageable);
+
+    // One row: invoiceCount, overdueCount, outstandingAmount, overdueAmount
+    @Query("SELECT COUNT(i) AS invoiceCount, " +
+            "COALESCE(SUM(CASE WHEN i.status = com.project.credflow.enums.InvoiceStatus.OVERDUE THEN 1 ELSE 0 END), 0) AS overdueCount, " +
+            "COALESCE(SUM(CASE WHEN i.status <> com.project.credflow.enums.InvoiceStatus.PAID THEN i.amountDue ELSE 0 END), 0) AS outstandingAmount, " +
+            "COALESCE(SUM(CASE WHEN i.status = com.project.credflow.enums.InvoiceStatus.OVERDUE THEN i.amountDue ELSE 0 END), 0) AS overdueAmount " +
+            "FROM Invoice i WHERE i.account.customer.customerId = :customerId")
+    List<Map<String, Object>> summarizeForCustomer(@Param("customerId") UUID customerId);
+}
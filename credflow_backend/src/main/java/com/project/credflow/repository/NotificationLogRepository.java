@@ -2,14 +2,39 @@ package com.project.credflow.repository;
 
 import com.project.credflow.model.Customer;
 import com.project.credflow.model.NotificationLog;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Repository
 public interface NotificationLogRepository extends JpaRepository<NotificationLog, UUID> {
 
     List<NotificationLog> findByCustomerOrderBySentAtDesc(Customer customer);
-}
\ No newline at end of file
+
+    // --- Customer history pages (see service.impl.HistoryCursor): newest first ---
+    @Query("SELECT n FROM NotificationLog n WHERE n.customer.customerId = :customerId " +
+            "ORDER BY n.sentAt DESC, n.logId DESC")
+    List<NotificationLog> findFirstHistoryPage(@Param("customerId") UUID customerId, Pageable pageable);
+
+    @Query("SELECT n FROM NotificationLog n WHERE n.customer.customerId = :customerId " +
+            "AND (n.sentAt < :lastSentAt OR (n.sentAt = :lastSentAt AND n.logId < :lastLogId)) " +
+            "ORDER BY n.sentAt DESC, n.logId DESC")
+    List<NotificationLog> findHistoryPageAfter(@Param("customerId") UUID customerId,
+                                               @Param("lastSentAt") LocalDateTime lastSentAt,
+                                               @Param("lastLogId") UUID lastLogId,
+                                               Pageable pageable);
+
+    // One row: notificationCount, failedCount, lastSentAt
+    @Query("SELECT COUNT(n) AS notificationCount, " +
+            "COALESCE(SUM(CASE WHEN n.status = com.project.credflow.enums.NotificationStatus.FAILED THEN 1 ELSE 0 END), 0) AS failedCount, " +
+            "MAX(n.sentAt) AS lastSentAt " +
+            "FROM NotificationLog n WHERE n.customer.customerId = :customerId")
+    List<Map<String, Object>> summarizeForCustomer(@Param("customerId") UUID customerId);
+}
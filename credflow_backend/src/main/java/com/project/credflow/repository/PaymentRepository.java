@@ -1,14 +1,17 @@
 package com.project.credflow.repository;
 
 import com.project.credflow.model.Payment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Repository
@@ -17,11 +20,34 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
 
     List<Payment> findByInvoice_InvoiceId(UUID invoiceId);
 
+    // All payments against a customer's invoices, newest first, payments without createdAt last
+    @Query("SELECT p FROM Payment p WHERE p.invoice.account.customer.customerId = :customerId " +
+            "ORDER BY CASE WHEN p.createdAt IS NULL THEN 1 ELSE 0 END, p.createdAt DESC")
+    List<Payment> findByCustomerIdOrderByCreatedAtDesc(@Param("customerId") UUID customerId);
+
     @Query("SELECT SUM(p.amountPaid) FROM Payment p WHERE p.createdAt BETWEEN :start AND :end")
     BigDecimal sumAmountByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
 
     @Query("SELECT COALESCE(SUM(p.amountPaid), 0) FROM Payment p WHERE p.status = 'SUCCESS' AND p.paymentDate BETWEEN :startDate AND :endDate")
     BigDecimal sumSuccessfulPaymentsBetweenDates(LocalDate startDate, LocalDate endDate);
 
-
-}
\ No newline at end of file
+    // --- Customer history pages (see service.impl.HistoryCursor): newest first ---
+    @Query("SELECT p FROM Payment p WHERE p.invoice.account.customer.customerId = :customerId " +
+            "ORDER BY p.createdAt DESC, p.paymentId DESC")
+    List<Payment> findFirstHistoryPage(@Param("customerId") UUID customerId, Pageable pageable);
+
+    @Query("SELECT p FROM Payment p WHERE p.invoice.account.customer.customerId = :customerId " +
+            "AND (p.createdAt < :lastCreatedAt OR (p.createdAt = :lastCreatedAt AND p.paymentId < :lastPaymentId)) " +
+            "ORDER BY p.createdAt DESC, p.paymentId DESC")
+    List<Payment> findHistoryPageAfter(@Param("customerId") UUID customerId,
+                                       @Param("lastCreatedAt") LocalDateTime lastCreatedAt,
+                                       @Param("lastPaymentId") UUID lastPaymentId,
+                                       Pageable pageable);
+
+    // One row: paymentCount, totalPaid, lastPaymentAt
+    @Query("SELECT COUNT(p) AS paymentCount, " +
+            "COALESCE(SUM(CASE WHEN p.status = com.project.credflow.enums.PaymentStatus.SUCCESS THEN p.amountPaid ELSE 0 END), 0) AS totalPaid, " +
+            "MAX(p.createdAt) AS lastPaymentAt " +
+            "FROM Payment p WHERE p.invoice.account.customer.customerId = :customerId")
+    List<Map<String, Object>> summarizeForCustomer(@Param("customerId") UUID customerId);
+}
@@ -2,7 +2,10 @@ package com.project.credflow.repository;
 
 import com.project.credflow.enums.RoleName;
 import com.project.credflow.model.User;
+import com.project.credflow.security.PrincipalSnapshot;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,6 +17,12 @@ public interface UserRepository extends JpaRepository<User, UUID> {
 
     Optional<User> findByEmail(String email);
 
+    // For request authentication: everything but the profile_picture LONGBLOB
+    @Query("SELECT new com.project.credflow.security.PrincipalSnapshot(u.userId, u.email, u.passwordHash, u.fullName, " +
+            "u.phoneNumber, u.isActive, u.createdAt, r.roleId, r.roleName) " +
+            "FROM User u JOIN u.role r WHERE u.email = :email")
+    Optional<PrincipalSnapshot> findPrincipalByEmail(@Param("email") String email);
+
     List<User> findByRole_RoleName(RoleName roleName);
 
     boolean existsByEmail(String email);
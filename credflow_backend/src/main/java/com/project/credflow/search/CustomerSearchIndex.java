@@ -0,0 +1,230 @@
+package com.project.credflow.search;
+
+import com.project.credflow.engine.UuidBytes;
+import com.project.credflow.event.CustomerProfileChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory {@link TrigramIndex} over every customer's name, email, phone number and account
+ * numbers, used by the admin customer search instead of one LIKE '%q%' scan per field.
+ * <p>
+ * The index is loaded with two plain JDBC reads in the background once the application is ready;
+ * until then {@link #isReady()} is false and callers fall back to the database. It is then kept
+ * current by:
+ * <ul>
+ *   <li>{@link CustomerProfileChangedEvent}s from registration, profile and user updates, applied
+ *   after their transaction commits;</li>
+ *   <li>a refresh every {@code customer.search.refresh-interval-ms} that picks up customers and
+ *   accounts created since the last one;</li>
+ *   <li>a full rebuild when re-indexed customers have left more retired entries than live ones,
+ *   when there are fewer customers than indexed ones, and at the latest every
+ *   {@code customer.search.rebuild-interval-ms}. Accounts are managed outside the application,
+ *   so deleted customers and changed or removed account numbers only show up this way.</li>
+ * </ul>
+ * Loading and refreshing run on the index's own thread, not the shared {@code @Scheduled} one,
+ * so neither waits for a dunning run nor holds up other jobs. Searches share a read lock;
+ * updates take the write lock for the few microseconds of a {@code put}. A full rebuild is done
+ * off to the side and swapped in.
+ */
+@Component
+@RequiredArgsConstructor
+public class CustomerSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerSearchIndex.class);
+
+    private static final String SELECT_CUSTOMERS =
+            "SELECT c.customer_id, u.full_name, u.email, u.phone_number " +
+                    "FROM customers c JOIN users u ON u.user_id = c.user_id";
+    private static final String SELECT_ACCOUNT_NUMBERS =
+            "SELECT customer_id, account_number FROM accounts WHERE account_number IS NOT NULL";
+
+    private static final String COUNT_CUSTOMERS = "SELECT COUNT(*) FROM customers";
+
+    private static final String CUSTOMER_OF_USER = " WHERE c.user_id = :userId";
+    private static final String CUSTOMERS_CREATED_SINCE =
+            " WHERE c.created_at >= :since OR c.customer_id IN (SELECT a.customer_id FROM accounts a WHERE a.created_at >= :since)";
+    private static final String ACCOUNTS_OF_CUSTOMERS = " AND customer_id IN (:customerIds)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${customer.search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${customer.search.refresh-interval-ms:60000}")
+    private long refreshIntervalMs;
+
+    @Value("${customer.search.rebuild-interval-ms:3600000}")
+    private long rebuildIntervalMs;
+
+    private ScheduledExecutorService refreshExecutor;
+    private volatile long lastFullLoadNanos;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile TrigramIndex index;
+    private volatile LocalDateTime lastLoadStarted;
+    // Users changed while a full load runs, re-indexed into the new index once it is swapped in
+    private final Set<UUID> changedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /** A page of matching customer ids, best match first; the index must be {@link #isReady() ready}. */
+    public TrigramIndex.Result search(String query, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return index.search(query, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Customer search index disabled; searching the database.");
+            return;
+        }
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("customer-search-"));
+        refreshExecutor.execute(() -> runLogged(this::load)); // Searches use the database until it is done
+        refreshExecutor.scheduleWithFixedDelay(() -> runLogged(this::refresh), refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    // An exception escaping a fixed-delay task would cancel all later refreshes
+    private static void runLogged(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("Customer search index update failed: {}", e.getMessage(), e);
+        }
+    }
+
+    void load() {
+        long started = System.nanoTime();
+        loading = true;
+        lastLoadStarted = LocalDateTime.now();
+        TrigramIndex fresh = new TrigramIndex();
+        Map<UUID, List<String>> accountNumbers = accountNumbers(SELECT_ACCOUNT_NUMBERS, new MapSqlParameterSource());
+        jdbcTemplate.query(SELECT_CUSTOMERS, rs -> {
+            UUID customerId = UuidBytes.toUuid(rs.getBytes("customer_id"));
+            fresh.put(customerId, rs.getString("full_name"), rs.getString("email"), rs.getString("phone_number"),
+                    accountNumbers.getOrDefault(customerId, List.of()));
+        });
+        lock.writeLock().lock();
+        try {
+            index = fresh;
+            loading = false;
+            lastFullLoadNanos = started;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (UUID userId : changedDuringLoad) {
+            changedDuringLoad.remove(userId);
+            reindexUser(userId);
+        }
+        log.info("Indexed {} customers for search in {} ms.", fresh.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerProfileChanged(CustomerProfileChangedEvent event) {
+        if (loading) {
+            changedDuringLoad.add(event.userId());
+        }
+        if (isReady()) {
+            reindexUser(event.userId());
+        }
+    }
+
+    private void reindexUser(UUID userId) {
+        reindex(SELECT_CUSTOMERS + CUSTOMER_OF_USER, new MapSqlParameterSource("userId", UuidBytes.toBytes(userId)));
+    }
+
+    void refresh() {
+        TrigramIndex current = index;
+        if (current == null) {
+            return;
+        }
+        if (current.retiredCount() > Math.max(1024, current.size())
+                || System.nanoTime() - lastFullLoadNanos > TimeUnit.MILLISECONDS.toNanos(rebuildIntervalMs)) {
+            load();
+            return;
+        }
+        Long customers = jdbcTemplate.queryForObject(COUNT_CUSTOMERS, new MapSqlParameterSource(), Long.class);
+        if (customers != null && customers < current.size()) {
+            log.info("{} customers indexed but only {} left; rebuilding the search index.", current.size(), customers);
+            load();
+            return;
+        }
+        // Overlap the previous refresh a little, re-indexing a customer twice is harmless
+        LocalDateTime since = lastLoadStarted.minusMinutes(1);
+        lastLoadStarted = LocalDateTime.now();
+        reindex(SELECT_CUSTOMERS + CUSTOMERS_CREATED_SINCE, new MapSqlParameterSource("since", Timestamp.valueOf(since)));
+    }
+
+    private void reindex(String customerSql, MapSqlParameterSource params) {
+        List<Object[]> rows = jdbcTemplate.query(customerSql, params, (rs, rowNum) -> new Object[]{
+                rs.getBytes("customer_id"), rs.getString("full_name"), rs.getString("email"), rs.getString("phone_number")});
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<byte[]> customerIds = new ArrayList<>(rows.size());
+        rows.forEach(row -> customerIds.add((byte[]) row[0]));
+        Map<UUID, List<String>> accountNumbers = accountNumbers(SELECT_ACCOUNT_NUMBERS + ACCOUNTS_OF_CUSTOMERS,
+                new MapSqlParameterSource("customerIds", customerIds));
+
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : rows) {
+                UUID customerId = UuidBytes.toUuid((byte[]) row[0]);
+                index.put(customerId, (String) row[1], (String) row[2], (String) row[3],
+                        accountNumbers.getOrDefault(customerId, List.of()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Re-indexed {} customers for search.", rows.size());
+    }
+
+    private Map<UUID, List<String>> accountNumbers(String sql, MapSqlParameterSource params) {
+        Map<UUID, List<String>> byCustomer = new HashMap<>();
+        jdbcTemplate.query(sql, params, rs -> {
+            byCustomer.computeIfAbsent(UuidBytes.toUuid(rs.getBytes("customer_id")), id -> new ArrayList<>(1))
+                    .add(rs.getString("account_number"));
+        });
+        return byCustomer;
+    }
+}
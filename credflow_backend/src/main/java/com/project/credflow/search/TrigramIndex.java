@@ -0,0 +1,305 @@
+package com.project.credflow.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Inverted index from character trigrams to the customers whose searchable fields contain them,
+ * answering the same "field contains the query, ignoring case" question as the old LIKE '%q%'
+ * queries, but ranked.
+ * <p>
+ * Each indexed customer gets a dense int document number and every trigram maps to an int[]
+ * posting list of those numbers. Numbers are only ever handed out in increasing order, so the
+ * lists are appended to and stay sorted; re-indexing a customer retires its old number and
+ * gives it a new one. A query intersects the lists of its trigrams, shortest first, and checks
+ * the few candidates left against the stored field values, since sharing all trigrams does not
+ * make a substring.
+ * <p>
+ * One- and two-character queries have no trigram, so they are answered from a second set of
+ * posting lists, keyed by the first one and two characters of every word: they match customers
+ * with a word starting with the query ("jo" finds "John" and "Mary Jones", not "Tojo").
+ * <p>
+ * Not thread-safe; {@link CustomerSearchIndex} guards it.
+ */
+public final class TrigramIndex {
+
+    /** A page of matching customers, best first, and how many matched in all. */
+    public record Result(List<UUID> customerIds, int total) {
+    }
+
+    // Match quality of the best field, highest first
+    private static final int EXACT = 4;
+    private static final int PREFIX = 3;
+    private static final int WORD_PREFIX = 2;
+    private static final int CONTAINS = 1;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<Long, Postings> wordPrefixes = new HashMap<>();
+    private final Map<UUID, Integer> docByCustomer = new HashMap<>();
+    private final BitSet retired = new BitSet();
+
+    private long[] idHigh = new long[1024];
+    private long[] idLow = new long[1024];
+    private String[] names = new String[1024];
+    // Lower-cased name, email, phone, then account numbers
+    private String[][] fields = new String[1024][];
+    private int docCount;
+
+    /** Posting list of one trigram: ascending document numbers. */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return; // Trigram repeated within the same customer
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+
+    /** Indexes the customer, replacing what was indexed for it before. */
+    public void put(UUID customerId, String fullName, String email, String phoneNumber, List<String> accountNumbers) {
+        remove(customerId);
+        int doc = docCount++;
+        if (doc == idHigh.length) {
+            int capacity = doc * 2;
+            idHigh = Arrays.copyOf(idHigh, capacity);
+            idLow = Arrays.copyOf(idLow, capacity);
+            names = Arrays.copyOf(names, capacity);
+            fields = Arrays.copyOf(fields, capacity);
+        }
+        idHigh[doc] = customerId.getMostSignificantBits();
+        idLow[doc] = customerId.getLeastSignificantBits();
+        names[doc] = fullName != null ? fullName : "";
+
+        String[] values = new String[3 + accountNumbers.size()];
+        values[0] = normalize(fullName);
+        values[1] = normalize(email);
+        values[2] = normalize(phoneNumber);
+        for (int i = 0; i < accountNumbers.size(); i++) {
+            values[3 + i] = normalize(accountNumbers.get(i));
+        }
+        fields[doc] = values;
+        for (String value : values) {
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                postings.computeIfAbsent(trigram(value, i), key -> new Postings()).add(doc);
+            }
+            for (int i = 0; i < value.length(); i++) {
+                if (i > 0 && Character.isLetterOrDigit(value.charAt(i - 1))) {
+                    continue; // Not the start of a word
+                }
+                for (int length = 1; length <= 2 && i + length <= value.length(); length++) {
+                    wordPrefixes.computeIfAbsent(shortKey(value, i, length), key -> new Postings()).add(doc);
+                }
+            }
+        }
+        docByCustomer.put(customerId, doc);
+    }
+
+    public void remove(UUID customerId) {
+        Integer doc = docByCustomer.remove(customerId);
+        if (doc != null) {
+            retired.set(doc);
+            fields[doc] = null;
+            names[doc] = null;
+        }
+    }
+
+    public int size() {
+        return docByCustomer.size();
+    }
+
+    /** Retired document numbers still taking up room in the posting lists. */
+    public int retiredCount() {
+        return retired.cardinality();
+    }
+
+    /**
+     * Customers with a field containing the query, ignoring case, ranked by how well the best
+     * field matches (exact, prefix, word prefix, anywhere), then by how many fields match, then
+     * by name.
+     */
+    public Result search(String query, int offset, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return new Result(List.of(), 0);
+        }
+        int keep = offset + limit;
+        // Worst hit on top, so it is the one dropped once more than 'keep' are held
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(keep, 1024) + 1, (a, b) -> compare(b, a));
+        int total = 0;
+
+        int[] candidates = q.length() < 3 ? wordPrefixCandidates(q) : candidates(q);
+        for (int doc : candidates) {
+            int score = score(doc, q);
+            if (score > 0) {
+                total++;
+                offer(best, keep, new Hit(doc, score, names[doc]));
+            }
+        }
+
+        List<Hit> ranked = new ArrayList<>(best);
+        ranked.sort(TrigramIndex::compare);
+        List<UUID> page = new ArrayList<>(Math.max(0, ranked.size() - offset));
+        for (int i = offset; i < ranked.size(); i++) {
+            int doc = ranked.get(i).doc();
+            page.add(new UUID(idHigh[doc], idLow[doc]));
+        }
+        return new Result(page, total);
+    }
+
+    private record Hit(int doc, int score, String name) {
+    }
+
+    private static int compare(Hit a, Hit b) {
+        if (a.score() != b.score()) {
+            return Integer.compare(b.score(), a.score());
+        }
+        int byName = a.name().compareToIgnoreCase(b.name());
+        return byName != 0 ? byName : Integer.compare(a.doc(), b.doc());
+    }
+
+    private static void offer(PriorityQueue<Hit> best, int keep, Hit hit) {
+        if (best.size() < keep) {
+            best.add(hit);
+        } else if (compare(hit, best.peek()) < 0) {
+            best.poll();
+            best.add(hit);
+        }
+    }
+
+    /** Live documents holding every trigram of the query, ascending. */
+    private int[] candidates(String q) {
+        List<Postings> lists = new ArrayList<>(q.length() - 2);
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            Postings list = postings.get(trigram(q, i));
+            if (list == null) {
+                return new int[0];
+            }
+            if (!lists.contains(list)) {
+                lists.add(list);
+            }
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        Postings shortest = lists.get(0);
+        int[] result = Arrays.copyOf(shortest.docs, shortest.size);
+        int size = result.length;
+        for (int l = 1; l < lists.size() && size > 0; l++) {
+            size = intersect(result, size, lists.get(l));
+        }
+        int live = 0;
+        for (int i = 0; i < size; i++) {
+            if (!retired.get(result[i])) {
+                result[live++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, live);
+    }
+
+    /** Live documents with a word starting with the one- or two-character query, ascending. */
+    private int[] wordPrefixCandidates(String q) {
+        Postings list = wordPrefixes.get(shortKey(q, 0, q.length()));
+        if (list == null) {
+            return new int[0];
+        }
+        int[] result = new int[list.size];
+        int live = 0;
+        for (int i = 0; i < list.size; i++) {
+            if (!retired.get(list.docs[i])) {
+                result[live++] = list.docs[i];
+            }
+        }
+        return Arrays.copyOf(result, live);
+    }
+
+    /**
+     * Keeps the first {@code size} entries of {@code docs} that also appear in {@code other},
+     * galloping through the longer list; returns the new size.
+     */
+    private static int intersect(int[] docs, int size, Postings other) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < size && from < other.size; i++) {
+            int doc = docs[i];
+            int step = 1;
+            int hi = from;
+            while (hi < other.size && other.docs[hi] < doc) {
+                from = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            int at = Arrays.binarySearch(other.docs, from, Math.min(hi + 1, other.size), doc);
+            if (at >= 0) {
+                docs[kept++] = doc;
+                from = at + 1;
+            } else {
+                from = -at - 1;
+            }
+        }
+        return kept;
+    }
+
+    /** Best match quality times 8 plus the number of matching fields; 0 if nothing contains q. */
+    private int score(int doc, String q) {
+        String[] values = fields[doc];
+        if (values == null) {
+            return 0;
+        }
+        int quality = 0;
+        int matching = 0;
+        for (String value : values) {
+            int at = value.indexOf(q);
+            if (at < 0) {
+                continue;
+            }
+            matching++;
+            int fieldQuality;
+            if (at == 0) {
+                fieldQuality = value.length() == q.length() ? EXACT : PREFIX;
+            } else {
+                fieldQuality = startsWord(value, q, at) ? WORD_PREFIX : CONTAINS;
+            }
+            quality = Math.max(quality, fieldQuality);
+        }
+        return matching == 0 ? 0 : quality * 8 + Math.min(matching, 7);
+    }
+
+    /** Whether some occurrence of q, from {@code at} on, starts a word ("smith" in "john smith"). */
+    private static boolean startsWord(String value, String q, int at) {
+        for (; at >= 0; at = value.indexOf(q, at + 1)) {
+            if (!Character.isLetterOrDigit(value.charAt(at - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long trigram(String value, int at) {
+        return ((long) value.charAt(at) << 32) | ((long) value.charAt(at + 1) << 16) | value.charAt(at + 2);
+    }
+
+    // One or two characters, with the length in bit 32 so "a" and "\0a" differ
+    private static long shortKey(String value, int at, int length) {
+        long key = value.charAt(at);
+        if (length == 2) {
+            key = (key << 16) | value.charAt(at + 1);
+        }
+        return ((long) length << 32) | key;
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
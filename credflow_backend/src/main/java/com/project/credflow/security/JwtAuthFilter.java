@@ -1,5 +1,6 @@
 package com.project.credflow.security;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
@@ -13,7 +14,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -24,12 +24,12 @@ import java.io.IOException;
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
     private static final Logger log = LoggerFactory.getLogger(JwtAuthFilter.class);
 
-    public JwtAuthFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JwtAuthFilter(JwtUtil jwtUtil, PrincipalCache principalCache) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -38,6 +38,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         String jwt = null;
+        Claims claims = null;
         String userEmail = null;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -51,7 +52,8 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             if (jwt == null || jwt.isBlank() || !jwt.contains(".")) {
                 log.warn("JWT token is missing, empty, or malformed after Bearer prefix.");
             } else {
-                userEmail = jwtUtil.getEmailFromToken(jwt);
+                claims = jwtUtil.verify(jwt); // Signature and expiry, checked once per token
+                userEmail = claims.getSubject();
             }
         } catch (MalformedJwtException e) {
             log.error("Invalid JWT token format: {}", e.getMessage());
@@ -69,9 +71,9 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
 
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            UserDetails userDetails = this.principalCache.load(userEmail);
             try {
-                if (jwtUtil.validateToken(jwt, userDetails)) {
+                if (jwtUtil.isTokenFor(claims, userDetails)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
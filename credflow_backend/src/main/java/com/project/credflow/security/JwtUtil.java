@@ -2,17 +2,34 @@ package com.project.credflow.security;
 
 import com.project.credflow.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies the application's HS256 tokens.
+ * <p>
+ * The signing key and the parser are built once. Verified claims are kept in a small LRU
+ * ({@code jwt.claims-cache.max-size}, 0 to disable) keyed by a SHA-256 hash of the token, until
+ * the token expires, so a client sending the same token on every request has its signature
+ * checked and its JSON parsed once. Only tokens that passed verification are cached, and the
+ * key is a hash of the whole token, so a token differing in any byte is verified afresh.
+ */
 @Component
 public class JwtUtil {
 
@@ -22,9 +39,39 @@ public class JwtUtil {
     @Value("${jwt.expiration.ms}")
     private long expirationTime;
 
-    private Key getSigningKey() {
-        byte[] keyBytes = secret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private int claimsCacheSize;
+
+    private Key signingKey;
+    private JwtParser parser;
+
+    // First 128 bits of the SHA-256 of a token
+    private record TokenHash(long high, long low) {
+    }
+
+    private record VerifiedToken(Claims claims, long expiresAtMillis) {
+    }
+
+    // Access-ordered, so the eldest entry is the least recently used
+    private final Map<TokenHash, VerifiedToken> verifiedTokens = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TokenHash, VerifiedToken> eldest) {
+            return size() > claimsCacheSize;
+        }
+    };
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
     }
 
     public String generateToken(User user) {
@@ -39,34 +86,59 @@ public class JwtUtil {
                 .setClaims(claims)
                 .setIssuedAt(now)
                 .setExpiration(validity)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifies the token's signature and expiry and returns its claims, which callers must not
+     * modify. Throws the same jjwt exceptions as parsing (ExpiredJwtException, SignatureException,
+     * MalformedJwtException, ...).
+     */
+    public Claims verify(String token) {
+        TokenHash hash = hash(token);
+        VerifiedToken verified;
+        synchronized (verifiedTokens) {
+            verified = verifiedTokens.get(hash);
+        }
+        if (verified != null && verified.expiresAtMillis() > System.currentTimeMillis()) {
+            return verified.claims();
+        }
+
+        Claims claims = parser.parseClaimsJws(token).getBody(); // Checks signature and expiry
+        if (claims.getExpiration() != null) {
+            synchronized (verifiedTokens) {
+                verifiedTokens.put(hash, new VerifiedToken(claims, claims.getExpiration().getTime()));
+            }
+        }
+        return claims;
+    }
+
+    /** Whether verified claims belong to the user. */
+    public boolean isTokenFor(Claims claims, UserDetails userDetails) {
+        return claims.getSubject() != null && claims.getSubject().equals(userDetails.getUsername());
+    }
+
     public String getEmailFromToken(String token) {
         return getClaimFromToken(token, Claims::getSubject);
     }
 
     public Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return verify(token);
     }
 
     public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = getAllClaimsFromToken(token);
+        final Claims claims = verify(token);
         return claimsResolver.apply(claims);
     }
 
     public boolean validateToken(String token, UserDetails userDetails) {
-        final String email = getEmailFromToken(token);
-        return (email.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return isTokenFor(verify(token), userDetails); // verify() rejects expired tokens
     }
 
-    private boolean isTokenExpired(String token) {
-        final Date expiration = getClaimFromToken(token, Claims::getExpiration);
-        return expiration.before(new Date());
+    private static TokenHash hash(String token) {
+        byte[] digest = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        ByteBuffer buffer = ByteBuffer.wrap(digest);
+        return new TokenHash(buffer.getLong(), buffer.getLong());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package com.project.credflow.security;
+
+import com.project.credflow.model.User;
+import com.project.credflow.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through cache of the users behind JWT-authenticated requests, keyed by email, so
+ * {@link JwtAuthFilter} does not query users (and roles) on every request.
+ * <p>
+ * Entries are {@link PrincipalSnapshot}s, which leave out the profile picture, and expire after
+ * {@code security.principal-cache.ttl-ms}; at most {@code security.principal-cache.max-size}
+ * are kept, least recently used evicted first. Unknown emails are not cached.
+ * <p>
+ * Code that changes a user's email, name, phone, role or active flag calls {@link #invalidate},
+ * which evicts at once and again after the transaction commits, so a request that read the old
+ * row in between cannot leave it cached. The cache is per node: other nodes see the change
+ * within the TTL.
+ */
+@Component
+@RequiredArgsConstructor
+public class PrincipalCache {
+
+    private final UserRepository userRepository;
+
+    @Value("${security.principal-cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    @Value("${security.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    private record Entry(PrincipalSnapshot principal, long expiresAt) {
+    }
+
+    // Access-ordered, so the eldest entry is the least recently used
+    private final Map<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /** A fresh detached {@link User} (without profile picture) for the email. */
+    public User load(String email) {
+        long now = System.nanoTime();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(email);
+        }
+        if (entry != null && entry.expiresAt() - now > 0) {
+            return entry.principal().toUser();
+        }
+        PrincipalSnapshot principal = userRepository.findPrincipalByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        synchronized (entries) {
+            entries.put(email, new Entry(principal, now + TimeUnit.MILLISECONDS.toNanos(ttlMs)));
+        }
+        return principal.toUser();
+    }
+
+    public void invalidate(String email) {
+        if (email == null) {
+            return;
+        }
+        evict(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(email);
+                }
+            });
+        }
+    }
+
+    private void evict(String email) {
+        synchronized (entries) {
+            entries.remove(email);
+        }
+    }
+}
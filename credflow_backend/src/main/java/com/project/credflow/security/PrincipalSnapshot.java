@@ -0,0 +1,31 @@
+package com.project.credflow.security;
+
+import com.project.credflow.enums.RoleName;
+import com.project.credflow.model.Role;
+import com.project.credflow.model.User;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The columns of a user needed to authenticate a request, read without the profile_picture
+ * LONGBLOB. Immutable, so it can be shared by {@link PrincipalCache}; every request gets its own
+ * {@link User} built from it.
+ */
+public record PrincipalSnapshot(UUID userId, String email, String passwordHash, String fullName, String phoneNumber,
+                                Boolean isActive, LocalDateTime createdAt, Integer roleId, RoleName roleName) {
+
+    /** A detached user without its profile picture; load the entity where the picture is needed. */
+    public User toUser() {
+        User user = new User();
+        user.setUserId(userId);
+        user.setEmail(email);
+        user.setPasswordHash(passwordHash);
+        user.setFullName(fullName);
+        user.setPhoneNumber(phoneNumber);
+        user.setIsActive(isActive);
+        user.setCreatedAt(createdAt);
+        user.setRole(new Role(roleId, roleName));
+        return user;
+    }
+}
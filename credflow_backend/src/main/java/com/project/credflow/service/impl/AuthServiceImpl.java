@@ -3,6 +3,7 @@ package com.project.credflow.service.impl;
 import com.project.credflow.dto.AuthResponse;
 import com.project.credflow.dto.LoginRequest;
 import com.project.credflow.dto.RegisterRequest;
+import com.project.credflow.event.CustomerProfileChangedEvent;
 import com.project.credflow.exception.AuthException;
 import com.project.credflow.exception.ResourceNotFoundException;
 import com.project.credflow.mapper.UserMapper;
@@ -13,6 +14,7 @@ import com.project.credflow.repository.UserRepository;
 import com.project.credflow.security.JwtUtil;
 import com.project.credflow.service.inter.AuthService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -38,6 +40,7 @@ public class AuthServiceImpl implements AuthService {
     private final AuthenticationManager authenticationManager;
     private final UserMapper userMapper;
     private final CustomerRepository customerRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
 
     @Override
@@ -68,6 +71,7 @@ public class AuthServiceImpl implements AuthService {
            customer.setContactPerson(savedUser.getFullName());
 
            customerRepository.save(customer);
+           eventPublisher.publishEvent(new CustomerProfileChangedEvent(savedUser.getUserId()));
        }
 
         String token = jwtUtil.generateToken(savedUser);
@@ -6,16 +6,26 @@ import com.project.credflow.exception.ResourceNotFoundException;
 import com.project.credflow.mapper.*;
 import com.project.credflow.model.*;
 import com.project.credflow.repository.*;
+import com.project.credflow.search.CustomerSearchIndex;
+import com.project.credflow.search.TrigramIndex;
 import com.project.credflow.service.inter.CustomerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -37,6 +47,14 @@ public class CustomerServiceImpl implements CustomerService {
     private final PaymentMapper paymentMapper;
     private final NotificationLogMapper notificationLogMapper;
     private final DunningActionLogMapper dunningActionLogMapper;
+    private final CustomerSearchIndex customerSearchIndex;
+
+    // Upper bound for the size requested for one page of a history section
+    @Value("${customer.history.max-page-size:200}")
+    private int maxHistoryPageSize;
+
+    @Value("${customer.search.max-page-size:100}")
+    private int maxSearchPageSize;
 
     private Customer getCustomerFromPrincipal(User user) {
         return customerRepository.findByUser_UserId(user.getUserId())
@@ -80,17 +98,7 @@ public class CustomerServiceImpl implements CustomerService {
     @Transactional(readOnly = true)
     public List<InvoiceDto> getAllCustomerInvoices(User user) {
         Customer customer = getCustomerFromPrincipal(user);
-        List<Account> accounts = accountRepository.findByCustomer_CustomerId(customer.getCustomerId());
-        List<Invoice> allInvoices = new ArrayList<>();
-        for (Account account : accounts) {
-            allInvoices.addAll(invoiceRepository.findByAccount_AccountId(account.getAccountId()));
-        }
-        allInvoices.sort((inv1, inv2) -> {
-            if (inv1.getDueDate() == null && inv2.getDueDate() == null) return 0;
-            if (inv1.getDueDate() == null) return 1;
-            if (inv2.getDueDate() == null) return -1;
-            return inv2.getDueDate().compareTo(inv1.getDueDate());
-        });
+        List<Invoice> allInvoices = invoiceRepository.findByCustomerIdOrderByDueDateDesc(customer.getCustomerId());
         return allInvoices.stream().map(invoiceMapper::toInvoiceDto).collect(Collectors.toList());
     }
 
@@ -107,6 +115,10 @@ public class CustomerServiceImpl implements CustomerService {
         return payments.stream().map(paymentMapper::toPaymentDto).collect(Collectors.toList());
     }
 
+    /**
+     * One query per entity type, each filtered by the customer and sorted by the database,
+     * however many accounts and invoices the customer has.
+     */
     @Override
     @Transactional(readOnly = true)
     public CustomerHistoryDto getCustomerDetailedHistory(UUID customerId) {
@@ -115,35 +127,17 @@ public class CustomerServiceImpl implements CustomerService {
         Customer customer = findCustomerById(customerId);
         CustomerDto customerDto = customerMapper.toCustomerDto(customer);
 
-        List<Account> accounts = accountRepository.findByCustomer_CustomerId(customerId);
+        List<Account> accounts = accountRepository.findWithPlanByCustomerId(customerId);
         List<AccountDto> accountDtos = accounts.stream()
                 .map(accountMapper::toAccountDto)
                 .collect(Collectors.toList());
 
-        List<Invoice> allInvoices = new ArrayList<>();
-        for (Account account : accounts) {
-            allInvoices.addAll(invoiceRepository.findByAccount_AccountId(account.getAccountId()));
-        }
-        allInvoices.sort((inv1, inv2) -> {
-            if (inv1.getDueDate() == null && inv2.getDueDate() == null) return 0;
-            if (inv1.getDueDate() == null) return 1;
-            if (inv2.getDueDate() == null) return -1;
-            return inv2.getDueDate().compareTo(inv1.getDueDate());
-        });
+        List<Invoice> allInvoices = invoiceRepository.findByCustomerIdOrderByDueDateDesc(customerId);
         List<InvoiceDto> invoiceDtos = allInvoices.stream()
                 .map(invoiceMapper::toInvoiceDto)
                 .collect(Collectors.toList());
 
-        List<Payment> allPayments = new ArrayList<>();
-        for (Invoice invoice : allInvoices) {
-            allPayments.addAll(paymentRepository.findByInvoice_InvoiceId(invoice.getInvoiceId()));
-        }
-        allPayments.sort((p1, p2) -> {
-            if (p1.getCreatedAt() == null && p2.getCreatedAt() == null) return 0;
-            if (p1.getCreatedAt() == null) return 1;
-            if (p2.getCreatedAt() == null) return -1;
-            return p2.getCreatedAt().compareTo(p1.getCreatedAt());
-        });
+        List<Payment> allPayments = paymentRepository.findByCustomerIdOrderByCreatedAtDesc(customerId);
         List<PaymentDto> paymentDtos = allPayments.stream()
                 .map(paymentMapper::toPaymentDto)
                 .collect(Collectors.toList());
@@ -164,15 +158,176 @@ public class CustomerServiceImpl implements CustomerService {
         );
     }
 
+    /**
+     * Profile, accounts and per-section figures, each section summarized by one aggregate query;
+     * the rows themselves come from the page methods below.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CustomerHistorySummaryDto getCustomerHistorySummary(UUID customerId) {
+        Customer customer = findCustomerById(customerId);
+        CustomerHistorySummaryDto summary = new CustomerHistorySummaryDto();
+        summary.setCustomerProfile(customerMapper.toCustomerDto(customer));
+        summary.setAccounts(accountRepository.findWithPlanByCustomerId(customerId).stream()
+                .map(accountMapper::toAccountDto)
+                .collect(Collectors.toList()));
+
+        Map<String, Object> invoices = singleRow(invoiceRepository.summarizeForCustomer(customerId));
+        summary.setInvoiceCount(count(invoices.get("invoiceCount")));
+        summary.setOverdueInvoiceCount(count(invoices.get("overdueCount")));
+        summary.setOutstandingAmount(amount(invoices.get("outstandingAmount")));
+        summary.setOverdueAmount(amount(invoices.get("overdueAmount")));
+
+        Map<String, Object> payments = singleRow(paymentRepository.summarizeForCustomer(customerId));
+        summary.setPaymentCount(count(payments.get("paymentCount")));
+        summary.setTotalPaid(amount(payments.get("totalPaid")));
+        summary.setLastPaymentAt((LocalDateTime) payments.get("lastPaymentAt"));
+
+        Map<String, Object> notifications = singleRow(notificationLogRepository.summarizeForCustomer(customerId));
+        summary.setNotificationCount(count(notifications.get("notificationCount")));
+        summary.setFailedNotificationCount(count(notifications.get("failedCount")));
+        summary.setLastNotificationAt((LocalDateTime) notifications.get("lastSentAt"));
+
+        Map<String, Object> actions = singleRow(dunningActionLogRepository.summarizeForCustomer(customerId));
+        summary.setDunningActionCount(count(actions.get("actionCount")));
+        summary.setLastDunningActionAt((LocalDateTime) actions.get("lastActionAt"));
+        return summary;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public HistoryPageDto<InvoiceDto> getCustomerInvoicePage(UUID customerId, String cursor, int size) {
+        HistoryCursor after = historyCursor(customerId, cursor);
+        Pageable page = historyPage(size);
+        List<Invoice> rows;
+        if (after != null && after.undated()) {
+            rows = invoiceRepository.findUndatedHistoryPageAfter(customerId, after.id(), page);
+        } else {
+            rows = after == null
+                    ? invoiceRepository.findFirstHistoryPage(customerId, page)
+                    : invoiceRepository.findHistoryPageAfter(customerId, after.dueDate(), after.id(), page);
+            if (rows.size() < page.getPageSize()) {
+                // Past the last dated invoice: fill up with the undated ones, which come last
+                rows = new ArrayList<>(rows);
+                rows.addAll(invoiceRepository.findFirstUndatedHistoryPage(customerId,
+                        PageRequest.of(0, page.getPageSize() - rows.size())));
+            }
+        }
+        return toHistoryPage(rows, page, invoiceMapper::toInvoiceDto,
+                invoice -> HistoryCursor.after(invoice.getDueDate(), invoice.getInvoiceId()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public HistoryPageDto<PaymentDto> getCustomerPaymentPage(UUID customerId, String cursor, int size) {
+        HistoryCursor after = historyCursor(customerId, cursor);
+        Pageable page = historyPage(size);
+        List<Payment> rows = after == null
+                ? paymentRepository.findFirstHistoryPage(customerId, page)
+                : paymentRepository.findHistoryPageAfter(customerId, after.timestamp(), after.id(), page);
+        return toHistoryPage(rows, page, paymentMapper::toPaymentDto,
+                payment -> HistoryCursor.after(payment.getCreatedAt(), payment.getPaymentId()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public HistoryPageDto<NotificationLogDto> getCustomerNotificationPage(UUID customerId, String cursor, int size) {
+        HistoryCursor after = historyCursor(customerId, cursor);
+        Pageable page = historyPage(size);
+        List<NotificationLog> rows = after == null
+                ? notificationLogRepository.findFirstHistoryPage(customerId, page)
+                : notificationLogRepository.findHistoryPageAfter(customerId, after.timestamp(), after.id(), page);
+        return toHistoryPage(rows, page, notificationLogMapper::toNotificationLogDto,
+                notification -> HistoryCursor.after(notification.getSentAt(), notification.getLogId()));
+    }
+
     @Override
     @Transactional(readOnly = true)
-    public List<CustomerDto> searchCustomers(String query) {
+    public HistoryPageDto<DunningActionLogDto> getCustomerDunningActionPage(UUID customerId, String cursor, int size) {
+        HistoryCursor after = historyCursor(customerId, cursor);
+        Pageable page = historyPage(size);
+        List<DunningActionLog> rows = after == null
+                ? dunningActionLogRepository.findFirstHistoryPage(customerId, page)
+                : dunningActionLogRepository.findHistoryPageAfter(customerId, after.timestamp(), after.id(), page);
+        return toHistoryPage(rows, page, dunningActionLogMapper::toDunningActionLogDto,
+                action -> HistoryCursor.after(action.getCreatedAt(), action.getLogId()));
+    }
+
+    private HistoryCursor historyCursor(UUID customerId, String cursor) {
+        if (!customerRepository.existsById(customerId)) {
+            throw new ResourceNotFoundException("Customer not found with ID: " + customerId);
+        }
+        return HistoryCursor.decode(cursor);
+    }
+
+    // One row more than requested, to tell whether there is a next page
+    private Pageable historyPage(int size) {
+        return PageRequest.of(0, Math.max(1, Math.min(size, maxHistoryPageSize)) + 1);
+    }
+
+    private static <E, D> HistoryPageDto<D> toHistoryPage(List<E> rows, Pageable page, Function<E, D> mapper,
+                                                         Function<E, HistoryCursor> cursorOf) {
+        int size = page.getPageSize() - 1;
+        boolean hasMore = rows.size() > size;
+        List<E> pageRows = hasMore ? rows.subList(0, size) : rows;
+        List<D> items = pageRows.stream().map(mapper).collect(Collectors.toList());
+        String nextCursor = hasMore ? cursorOf.apply(pageRows.get(size - 1)).encode() : null;
+        return new HistoryPageDto<>(items, nextCursor);
+    }
+
+    private static Map<String, Object> singleRow(List<Map<String, Object>> rows) {
+        return rows == null || rows.isEmpty() ? Map.of() : rows.get(0);
+    }
+
+    private static long count(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+
+    private static BigDecimal amount(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    /**
+     * Ranked page of customers whose name, email, phone number or an account number contains the
+     * query, ignoring case. Served from {@link CustomerSearchIndex}; while it is still loading
+     * after startup, from the database with the old per-field LIKE queries.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<CustomerDto> searchCustomers(String query, int page, int size) {
         log.info("Searching customers with query: '{}'", query);
         if (query == null || query.trim().isEmpty()) {
             return List.of(); // Return empty list for blank query
         }
         String trimmedQuery = query.trim();
+        int pageSize = Math.max(1, Math.min(size, maxSearchPageSize));
+        int offset = Math.max(0, page) * pageSize;
+
+        if (!customerSearchIndex.isReady()) {
+            return searchCustomersInDatabase(trimmedQuery, offset, pageSize);
+        }
+        TrigramIndex.Result result = customerSearchIndex.search(trimmedQuery, offset, pageSize);
+        if (result.customerIds().isEmpty()) {
+            log.info("Found {} customers matching query '{}', none on page {}", result.total(), trimmedQuery, page);
+            return List.of();
+        }
+        // One query for the page, with users; the index decides the order
+        Map<UUID, Customer> byId = customerRepository.findWithUserByCustomerIdIn(result.customerIds()).stream()
+                .collect(Collectors.toMap(Customer::getCustomerId, Function.identity()));
+        List<CustomerDto> results = result.customerIds().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull) // Removed since the index last saw it
+                .map(customerMapper::toCustomerDto)
+                .collect(Collectors.toList());
+
+        log.info("Found {} customers matching query '{}', returning {}", result.total(), trimmedQuery, results.size());
+        return results;
+    }
 
+    private List<CustomerDto> searchCustomersInDatabase(String trimmedQuery, int offset, int pageSize) {
         // Search across multiple fields
         List<Customer> byName = customerRepository.findByUser_FullNameContainingIgnoreCase(trimmedQuery);
         List<Customer> byEmail = customerRepository.findByUser_EmailContainingIgnoreCase(trimmedQuery);
@@ -190,10 +345,12 @@ public class CustomerServiceImpl implements CustomerService {
                 .flatMap(List::stream) // Flatten the lists into one stream
                 .distinct() // Ensure each customer appears only once
                 .sorted(Comparator.comparing(c -> c.getUser().getFullName())) // Sort by name
+                .skip(offset)
+                .limit(pageSize)
                 .map(customerMapper::toCustomerDto) // Map to DTO
                 .collect(Collectors.toList());
 
-        log.info("Found {} customers matching query '{}'", results.size(), trimmedQuery);
+        log.info("Found {} customers matching query '{}' (search index not ready)", results.size(), trimmedQuery);
         return results;
     }
-}
\ No newline at end of file
+}
@@ -1,26 +1,56 @@
 package com.project.credflow.service.impl;
 
-import com.project.credflow.enums.InvoiceStatus;
-import com.project.credflow.enums.PlanType;
-import com.project.credflow.enums.RuleConditionType; // <-- Import
+import com.project.credflow.engine.AccountPartition;
+import com.project.credflow.engine.ChunkCursor;
+import com.project.credflow.engine.CompiledRuleIndex;
+import com.project.credflow.engine.DunningAuditWriter;
+import com.project.credflow.engine.DunningSimulator;
+import com.project.credflow.engine.EngineTelemetry;
+import com.project.credflow.engine.EvaluationSchedule;
+import com.project.credflow.engine.EvaluationStats;
+import com.project.credflow.engine.ExecutedActionSet;
+import com.project.credflow.engine.InvoiceCandidateSource;
+import com.project.credflow.engine.LatencyHistogram;
+import com.project.credflow.engine.Lease;
+import com.project.credflow.engine.LeaseManager;
+import com.project.credflow.engine.PlannedAction;
+import com.project.credflow.engine.RuleQueryPlanner;
+import com.project.credflow.engine.RunProgressBroadcaster;
+import com.project.credflow.dto.DunningSimulationRequestDto;
+import com.project.credflow.dto.DunningSimulationResultDto;
+import com.project.credflow.enums.EngineRunStatus;
+import com.project.credflow.enums.RuleActionType;
+import com.project.credflow.exception.LeaseLostException;
+import com.project.credflow.exception.LeaseUnavailableException;
+import com.project.credflow.exception.ResourceNotFoundException;
 import com.project.credflow.model.*;
 import com.project.credflow.repository.*;
 import com.project.credflow.service.inter.DunningEngineService;
 import com.project.credflow.service.inter.RuleActionService;
-import com.project.credflow.service.inter.RuleConditionService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate; // <-- Import LocalDate
 import java.time.LocalDateTime;
 import java.util.ArrayList; // <-- Import ArrayList
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors; // <-- Import Collectors
-import java.util.stream.Stream; // <-- Import Stream
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
@@ -30,138 +60,698 @@ public class DunningEngineServiceImpl implements DunningEngineService {
     // Max days BEFORE due date to check for prepaid reminders
     private static final int PREPAID_REMINDER_LOOKAHEAD_DAYS = 10; // Check invoices due in the next 10 days
 
+    // Lease names, see engine.LeaseManager; partition leases are per index and reused across runs
+    private static final String COORDINATOR_LEASE = "dunning-engine";
+    private static final String PARTITION_LEASE_PREFIX = "dunning-partition-";
+    private static final List<EngineRunStatus> OPEN_PARTITION_STATUSES = List.of(EngineRunStatus.PENDING, EngineRunStatus.RUNNING);
+
+    private final InvoiceCandidateSource invoiceCandidateSource;
+    private final RuleQueryPlanner ruleQueryPlanner;
     private final InvoiceRepository invoiceRepository;
     private final DunningRuleRepository dunningRuleRepository;
     private final DunningExecutionLogRepository logRepository;
-    private final RuleConditionService ruleConditionService;
     private final RuleActionService ruleActionService;
     private final DunningEngineRunRepository dunningEngineRunRepository;
+    private final DunningRunPartitionRepository partitionRepository;
+    private final DunningAuditWriter auditWriter;
+    private final EvaluationSchedule evaluationSchedule;
+    private final LeaseManager leaseManager;
+    private final DunningSimulator dunningSimulator;
+    private final EngineTelemetry engineTelemetry;
+    private final RunProgressBroadcaster runProgressBroadcaster;
+    private final TransactionTemplate transactionTemplate;
 
-    // --- Refined getPlanTypeFromInvoice ---
-    private PlanType getPlanTypeFromInvoice(Invoice invoice) {
-        // Returns the actual PlanType (PREPAID/POSTPAID) or null if not determinable
-        try {
-            return invoice.getAccount().getPlan().getPlanType();
-        } catch (NullPointerException e) {
-            log.warn("Could not determine PlanType for Invoice {}. Account, Plan, or PlanType missing.", invoice.getInvoiceId());
-            return null;
+    // Worker threads for the partitioned mode; 1 keeps the original single-transaction run
+    @Value("${dunning.engine.parallelism:1}")
+    private int parallelism;
+
+    // Account-range partitions per parallel run (more partitions than workers smooths out skew)
+    @Value("${dunning.engine.partitions:16}")
+    private int partitionCount;
+
+    // Let MySQL evaluate the rule conditions and return only (invoice, rule) pairs to execute
+    @Value("${dunning.engine.sql-push-down:false}")
+    private boolean sqlPushDown;
+
+    // Queue actions in dunning_action_outbox instead of executing them inline (see engine.ActionOutboxDispatcher)
+    @Value("${dunning.outbox.enabled:false}")
+    private boolean outboxEnabled;
+
+    // Let this node claim partitions of runs coordinated by other nodes (parallel mode only)
+    @Value("${dunning.cluster.remote-workers:true}")
+    private boolean remoteWorkers;
+
+    @Value("${dunning.cluster.poll-interval-ms:2000}")
+    private long clusterPollIntervalMs;
+
+    // Only evaluate invoices whose next_evaluation_date has arrived or was reset (see engine.EvaluationSchedule)
+    @Value("${dunning.engine.incremental:false}")
+    private boolean incremental;
+
+    private ExecutorService partitionExecutor;
+
+    // Runs started from the admin endpoint; one thread, since only one run can hold the coordinator lease
+    private ExecutorService runExecutor;
+
+    // Partitions this node is working on, for whichever run
+    private final AtomicInteger activePartitions = new AtomicInteger();
+
+    private volatile WorkerPlan workerPlan;
+
+    @PostConstruct
+    public void initWorkerPool() {
+        if (incremental && sqlPushDown) {
+            log.warn("dunning.engine.incremental is ignored while dunning.engine.sql-push-down is on.");
+        }
+        runExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("dunning-run-"));
+        if (isParallelMode()) {
+            partitionExecutor = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("dunning-worker-"));
+            log.info("Dunning engine parallel mode enabled: {} workers, {} partitions.", parallelism, partitionCount);
+        }
+    }
+
+    @PreDestroy
+    public void shutdownWorkerPool() {
+        if (partitionExecutor != null) {
+            partitionExecutor.shutdownNow();
         }
+        runExecutor.shutdownNow();
     }
-    // ------------------------------------
 
     @Scheduled(cron = "0 0 1 * * ?") // 1 AM daily
     // @Scheduled(cron = "0 * * * * ?") // Every minute for testing
+    public void runScheduledDunningProcess() {
+        try {
+            runDunningProcess();
+        } catch (LeaseUnavailableException e) {
+            log.info("Skipping scheduled dunning run: {}", e.getMessage()); // Expected on all replicas but one
+        }
+    }
+
     @Override
-    @Transactional
     public void runDunningProcess() {
-        log.info("Starting scheduled dunning process...");
+        Lease lease = acquireCoordinatorLease();
+        try {
+            executeRun(openRun(lease), lease);
+        } finally {
+            leaseManager.release(lease);
+        }
+    }
 
-        DunningEngineRun engineRun = new DunningEngineRun();
-        engineRun.setStartTime(LocalDateTime.now());
-        engineRun = dunningEngineRunRepository.save(engineRun); // Save initially to get ID
+    /**
+     * Takes the coordinator lease and opens the run on the caller's thread, so conflicts and the
+     * run id are known right away, then evaluates on {@link #runExecutor}, which releases the lease.
+     */
+    @Override
+    public UUID startDunningProcess() {
+        Lease lease = acquireCoordinatorLease();
+        try {
+            DunningEngineRun engineRun = openRun(lease);
+            runExecutor.execute(() -> {
+                try {
+                    executeRun(engineRun, lease);
+                } catch (RuntimeException e) {
+                    log.error("Background dunning run {} ended with an error: {}", engineRun.getRunId(), e.getMessage());
+                } finally {
+                    leaseManager.release(lease);
+                }
+            });
+            return engineRun.getRunId();
+        } catch (RuntimeException e) {
+            leaseManager.release(lease);
+            throw e;
+        }
+    }
+
+    @Override
+    public SseEmitter streamRunProgress(UUID runId) {
+        DunningEngineRun engineRun = dunningEngineRunRepository.findById(runId)
+                .orElseThrow(() -> new ResourceNotFoundException("Dunning run not found with id: " + runId));
+        return runProgressBroadcaster.subscribe(engineRun);
+    }
+
+    // One coordinator across the cluster: the cron fires on every replica, and the admin endpoint at any time
+    private Lease acquireCoordinatorLease() {
+        return leaseManager.tryAcquire(COORDINATOR_LEASE).orElseThrow(() -> new LeaseUnavailableException(
+                "A dunning run is already in progress on node " + leaseManager.currentOwner(COORDINATOR_LEASE).orElse("(unknown)") + "."));
+    }
+
+    /** The run to work on: the interrupted one to resume, or a new one. */
+    private DunningEngineRun openRun(Lease lease) {
+        DunningEngineRun engineRun = resumableRun(LocalDate.now(), lease);
+        if (engineRun == null) {
+            engineRun = new DunningEngineRun();
+            engineRun.setStartTime(LocalDateTime.now());
+            engineRun.setRunDate(LocalDate.now());
+            engineRun.setParallelism(isParallelMode() ? parallelism : 1);
+            engineRun.setPartitionCount(isParallelMode() ? partitionCount : 0);
+            engineRun.setCoordinatorNode(lease.ownerId());
+            engineRun.setFencingToken(lease.fencingToken());
+            engineRun = dunningEngineRunRepository.save(engineRun); // Save initially to get ID
+        }
+        return engineRun;
+    }
+
+    private void executeRun(DunningEngineRun engineRun, Lease lease) {
+        log.info("Starting scheduled dunning process...");
+        UUID runId = engineRun.getRunId();
 
         List<DunningRule> activeRules = dunningRuleRepository.findByIsActiveTrueOrderByPriorityAsc();
         log.info("Found {} active dunning rules.", activeRules.size());
 
         if (activeRules.isEmpty()) {
             log.info("No active rules found. Dunning process finished.");
-            engineRun.setEndTime(LocalDateTime.now());
-            dunningEngineRunRepository.save(engineRun);
+            finishRun(runId, lease, EngineRunStatus.COMPLETED, null);
             return;
         }
 
-        // --- Fetch BOTH overdue and upcoming prepaid invoices ---
-        List<Invoice> overdueInvoices = invoiceRepository.findByStatus(InvoiceStatus.OVERDUE);
-        log.info("Found {} OVERDUE invoices.", overdueInvoices.size());
+        RunPlan runPlan = planRun(activeRules, engineRun.getRunDate());
+        engineRun.setRulesEvaluated(activeRules.size());
+        engineRun = dunningEngineRunRepository.save(engineRun);
+        DunningEngineRun finished;
+        try {
+            if (isParallelMode()) {
+                boolean allCompleted = runPartitioned(engineRun, runPlan, lease);
+                finished = allCompleted
+                        ? finishRun(runId, lease, EngineRunStatus.COMPLETED, null)
+                        : finishRun(runId, lease, EngineRunStatus.FAILED, "One or more partitions failed; rerun to resume them.");
+            } else {
+                runSequential(engineRun, runPlan, lease);
+                finished = finishRun(runId, lease, EngineRunStatus.COMPLETED, null);
+            }
+        } catch (RuntimeException e) {
+            // Committed chunks stay committed; the next run today resumes after the last of them
+            log.error("Dunning run {} failed: {}", runId, e.getMessage(), e);
+            finishRun(runId, lease, EngineRunStatus.FAILED, e.getMessage());
+            throw e;
+        }
+        log.info("Scheduled dunning process finished. Total actions executed: {} ({} failed; db {} ms, providers {} ms, invoice p50/p99 {}/{} us).",
+                finished.getActionsExecuted(), finished.getActionFailures(), finished.getDbMillis(), finished.getProviderMillis(),
+                finished.getInvoiceLatencyP50Micros(), finished.getInvoiceLatencyP99Micros());
+    }
 
-        LocalDate lookaheadDate = LocalDate.now().plusDays(PREPAID_REMINDER_LOOKAHEAD_DAYS);
-        List<Invoice> upcomingPrepaidInvoices = invoiceRepository.findPendingPrepaidInvoicesDueBefore(lookaheadDate);
-        log.info("Found {} PENDING PREPAID invoices due on or before {}.", upcomingPrepaidInvoices.size(), lookaheadDate);
+    /**
+     * The run to continue instead of starting over: the latest run, if it was interrupted
+     * (still RUNNING, although we now hold the coordinator lease, so its coordinator died) or
+     * FAILED today in the same mode - partition cursors only make sense for the same split.
+     * The run is fenced with our token from here on. An interrupted run that cannot be
+     * resumed is closed as FAILED.
+     */
+    private DunningEngineRun resumableRun(LocalDate today, Lease lease) {
+        DunningEngineRun previous = dunningEngineRunRepository.findTopByOrderByStartTimeDesc().orElse(null);
+        if (previous == null || (previous.getStatus() != EngineRunStatus.RUNNING && previous.getStatus() != EngineRunStatus.FAILED)) {
+            return null;
+        }
+        int expectedPartitions = isParallelMode() ? partitionCount : 0;
+        if (today.equals(previous.getRunDate()) && previous.getPartitionCount() != null
+                && previous.getPartitionCount() == expectedPartitions) {
+            log.info("Resuming dunning run {} from its last checkpoint ({} invoices processed, {} actions executed so far).",
+                    previous.getRunId(), previous.getInvoicesProcessed(), previous.getActionsExecuted());
+            previous.setStatus(EngineRunStatus.RUNNING);
+            previous.setEndTime(null);
+            previous.setErrorMessage(null);
+            previous.setCoordinatorNode(lease.ownerId());
+            previous.setFencingToken(lease.fencingToken());
+            return dunningEngineRunRepository.save(previous);
+        }
+        if (previous.getStatus() == EngineRunStatus.RUNNING) {
+            log.warn("Dunning run {} was interrupted and cannot be resumed; starting a new run.", previous.getRunId());
+            previous.setStatus(EngineRunStatus.FAILED);
+            previous.setEndTime(LocalDateTime.now());
+            previous.setErrorMessage("Interrupted; superseded by a new run.");
+            dunningEngineRunRepository.save(previous);
+        }
+        return null;
+    }
 
-        // Combine lists for processing
-        List<Invoice> invoicesToProcess = Stream.concat(overdueInvoices.stream(), upcomingPrepaidInvoices.stream())
-                .distinct() // Avoid duplicates if an invoice somehow matches both
-                .collect(Collectors.toList());
+    /**
+     * Reloads the run (its counts were advanced by checkpoints) and records how it ended,
+     * unless another coordinator has taken it over in the meantime. The end is written with a
+     * targeted update: workers may still be adding their telemetry, which a merge of the
+     * reloaded entity would overwrite.
+     */
+    private DunningEngineRun finishRun(UUID runId, Lease lease, EngineRunStatus status, String errorMessage) {
+        DunningEngineRun engineRun = dunningEngineRunRepository.findById(runId)
+                .orElseThrow(() -> new IllegalStateException("Dunning run " + runId + " disappeared."));
+        if (!leaseManager.isHeld(lease) || !Long.valueOf(lease.fencingToken()).equals(engineRun.getFencingToken())) {
+            log.warn("Not recording the end of dunning run {}: it is now coordinated by {}.", runId, engineRun.getCoordinatorNode());
+            return engineRun;
+        }
+        boolean partitioned = engineRun.getPartitionCount() != null && engineRun.getPartitionCount() > 0;
+        if (partitioned) {
+            long invoices = 0;
+            long actions = 0;
+            for (DunningRunPartition partition : partitionRepository.findByEngineRun_RunIdOrderByPartitionIndexAsc(runId)) {
+                invoices += partition.getInvoicesProcessed();
+                actions += partition.getActionsExecuted();
+            }
+            engineRun.setInvoicesProcessed(invoices);
+            engineRun.setActionsExecuted(actions);
+        }
+        engineRun.setStatus(status);
+        engineRun.setErrorMessage(truncate(errorMessage));
+        engineRun.setEndTime(LocalDateTime.now());
+        engineTelemetry.completeRun(engineRun);
+        int updated = transactionTemplate.execute(tx -> dunningEngineRunRepository.finish(runId, lease.fencingToken(),
+                engineRun.getStatus(), engineRun.getErrorMessage(), engineRun.getEndTime(),
+                engineRun.getInvoiceLatencyP50Micros(), engineRun.getInvoiceLatencyP99Micros(),
+                partitioned ? engineRun.getInvoicesProcessed() : null, partitioned ? engineRun.getActionsExecuted() : null));
+        if (updated == 0) {
+            log.warn("Not recording the end of dunning run {}: another coordinator took it over while it was finishing.", runId);
+            return engineRun;
+        }
+        runProgressBroadcaster.runFinished(engineRun);
+        return engineRun;
+    }
 
-        if (invoicesToProcess.isEmpty()) {
-            log.info("No relevant invoices found to process. Dunning process finished.");
-            engineRun.setEndTime(LocalDateTime.now());
-            dunningEngineRunRepository.save(engineRun);
-            return;
+    private static String truncate(String message) {
+        return message != null && message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    @Override
+    public DunningSimulationResultDto simulateDunningRun(DunningSimulationRequestDto request) {
+        LocalDate asOf = request != null && request.getAsOfDate() != null ? request.getAsOfDate() : LocalDate.now();
+        List<UUID> ruleIds = request != null ? request.getRuleIds() : null;
+
+        List<DunningRule> rules;
+        if (ruleIds == null || ruleIds.isEmpty()) {
+            rules = dunningRuleRepository.findByIsActiveTrueOrderByPriorityAsc();
+        } else {
+            rules = new ArrayList<>(dunningRuleRepository.findAllById(ruleIds));
+            if (rules.size() != new HashSet<>(ruleIds).size()) {
+                throw new ResourceNotFoundException("One or more dunning rules to simulate were not found.");
+            }
+            rules.sort(Comparator.comparing(DunningRule::getPriority, Comparator.nullsFirst(Comparator.naturalOrder())));
         }
-        // ----------------------------------------------------
+        log.info("Simulating dunning run as of {} with {} rules.", asOf, rules.size());
+        return dunningSimulator.simulate(rules, asOf, asOf.plusDays(PREPAID_REMINDER_LOOKAHEAD_DAYS));
+    }
+
+    private boolean isParallelMode() {
+        return parallelism > 1;
+    }
+
+    private boolean isIncrementalMode() {
+        // Push-down only loads invoices that match, so it cannot compute their next evaluation date
+        return incremental && !sqlPushDown;
+    }
 
-        int actionsExecuted = 0;
+    /**
+     * Everything a run evaluates against, prepared once and shared (read-only) by all workers.
+     * {@code queryPlan} is set when rule conditions are pushed down into SQL. Candidates whose
+     * next_evaluation_date is after {@code evaluateOn} are skipped.
+     */
+    private record RunPlan(CompiledRuleIndex ruleIndex, RuleQueryPlanner.QueryPlan queryPlan,
+                           Map<UUID, DunningRule> rulesById, LocalDate lookaheadDate, LocalDate evaluateOn) {
+    }
 
-        for (Invoice invoice : invoicesToProcess) {
-            log.debug("Processing Invoice: {} (Status: {}, Due: {})", invoice.getInvoiceNumber(), invoice.getStatus(), invoice.getDueDate());
-            PlanType invoicePlanType = getPlanTypeFromInvoice(invoice); // PREPAID, POSTPAID, or null
+    private RunPlan planRun(List<DunningRule> activeRules, LocalDate today) {
+        // Compile once per run: applicability checks and thresholds are resolved up front
+        CompiledRuleIndex ruleIndex = CompiledRuleIndex.compile(activeRules, today);
+        RuleQueryPlanner.QueryPlan queryPlan = null;
+        if (sqlPushDown) {
+            queryPlan = ruleQueryPlanner.plan(activeRules, today);
+            log.info("Rule conditions pushed down to SQL: {} of {} rules planned.",
+                    queryPlan != null ? queryPlan.ruleCount() : 0, activeRules.size());
+        }
+        Map<UUID, DunningRule> rulesById = new HashMap<>();
+        for (DunningRule rule : activeRules) {
+            rulesById.put(rule.getRuleId(), rule);
+        }
+        LocalDate evaluateOn = CompiledRuleIndex.NO_FURTHER_EVALUATION;
+        if (isIncrementalMode()) {
+            if (evaluationSchedule.rulesChangedSinceLastCompletedRun()) {
+                log.info("Dunning rules changed since the last completed run: evaluating every candidate once.");
+            } else {
+                evaluateOn = today;
+            }
+        }
+        return new RunPlan(ruleIndex, queryPlan, rulesById, today.plusDays(PREPAID_REMINDER_LOOKAHEAD_DAYS), evaluateOn);
+    }
 
-            for (DunningRule rule : activeRules) {
-                PlanType ruleAppliesTo = rule.getAppliesToPlanType(); // PREPAID, POSTPAID, or ALL
+    /** Persists the cursor and counts of a chunk, inside that chunk's transaction. */
+    @FunctionalInterface
+    private interface Checkpoint {
+        void save(ChunkCursor end, long invoicesProcessed, long actionsExecuted);
+    }
 
-                // --- Rule Applicability Checks ---
-                // 1. Plan Type Check: Skip if rule is specific and doesn't match invoice type
-                if (ruleAppliesTo != PlanType.ALL && ruleAppliesTo != invoicePlanType) {
-                    log.trace("Skipping Rule '{}': PlanType mismatch (Rule: {}, Invoice: {}).",
-                            rule.getRuleName(), ruleAppliesTo, invoicePlanType);
-                    continue;
+    // --- Sequential mode: the whole candidate set, checkpointed on the run ---
+    private void runSequential(DunningEngineRun engineRun, RunPlan runPlan, Lease lease) {
+        AccountPartition allAccounts = AccountPartition.split(1).get(0);
+        UUID runId = engineRun.getRunId();
+        ChunkCursor resumeAfter = ChunkCursor.of(engineRun.getLastDueDate(), engineRun.getLastInvoiceId());
+        EvaluationStats stats = new EvaluationStats();
+        try {
+            evaluatePartition(allAccounts, runPlan, resumeAfter, stats, engineTelemetry.latencyFor(runId), (end, invoices, actions) -> {
+                if (dunningEngineRunRepository.checkpoint(runId, lease.fencingToken(), end.dueDate(), end.invoiceId(), invoices, actions) == 0) {
+                    throw new LeaseLostException("Dunning run " + runId + " was taken over by another coordinator.");
                 }
+                runProgressBroadcaster.chunkCommitted(runId, null, invoices, actions);
+            });
+        } finally {
+            engineTelemetry.record(runId, stats); // A failed run reports the work it did get through
+        }
+        log.info("Processed {} OVERDUE / upcoming PENDING PREPAID invoices (due on or before {}).", stats.invoicesScanned(), runPlan.lookaheadDate());
+    }
+
+    // --- Parallel mode: account-range partitions, claimed by workers on any node ---
+    private boolean runPartitioned(DunningEngineRun engineRun, RunPlan runPlan, Lease lease) {
+        UUID runId = engineRun.getRunId();
+        List<DunningRunPartition> progress = partitionRepository.findByEngineRun_RunIdOrderByPartitionIndexAsc(runId);
+        if (progress.isEmpty()) {
+            progress = new ArrayList<>(partitionCount);
+            for (AccountPartition slice : AccountPartition.split(partitionCount)) {
+                progress.add(new DunningRunPartition(engineRun, slice.index()));
+            }
+            partitionRepository.saveAll(progress);
+        } else {
+            transactionTemplate.execute(status -> partitionRepository.resetFailed(runId));
+        }
+        workerPlan = new WorkerPlan(runId, runPlan); // This node's workers reuse the coordinator's plan
+        log.info("Running dunning engine over {} partitions with {} workers on this node.", partitionCount, parallelism);
+
+        // Take whatever this node has capacity for, then wait until every partition, on any node, is done
+        while (true) {
+            claimPartitions(runId, runPlan);
+            if (partitionRepository.findByEngineRun_RunIdAndStatusInOrderByPartitionIndexAsc(runId, OPEN_PARTITION_STATUSES).isEmpty()) {
+                break;
+            }
+            if (!leaseManager.isHeld(lease)) {
+                throw new LeaseLostException("Lost the coordinator lease for dunning run " + runId + ".");
+            }
+            try {
+                Thread.sleep(clusterPollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for dunning partitions to finish.");
+            }
+        }
+        return partitionRepository.findByEngineRun_RunIdAndStatusInOrderByPartitionIndexAsc(runId, List.of(EngineRunStatus.FAILED)).isEmpty();
+    }
+
+    /**
+     * Lets this node work on the partitions of a run coordinated by any node, this one included.
+     * The coordinator's own wait loop claims partitions too, since this may share its scheduler thread.
+     * A run whose coordinator lost its lease is left alone: nobody would finish it, and the next
+     * coordinator resumes it under a new fencing token, at which point workers join again.
+     */
+    @Scheduled(fixedDelayString = "${dunning.cluster.poll-interval-ms:2000}")
+    public void joinActiveRun() {
+        if (!isParallelMode() || !remoteWorkers || activePartitions.get() >= parallelism) {
+            return;
+        }
+        DunningEngineRun run = dunningEngineRunRepository
+                .findTopByStatusAndPartitionCountGreaterThanOrderByStartTimeDesc(EngineRunStatus.RUNNING, 0).orElse(null);
+        if (run == null || run.getPartitionCount() != partitionCount) {
+            return; // Nothing to do, or split differently than this node would
+        }
+        if (!isCoordinated(run)) {
+            log.debug("Not joining dunning run {}: its coordinator {} no longer holds the lease.", run.getRunId(), run.getCoordinatorNode());
+            return;
+        }
+        WorkerPlan plan = workerPlan;
+        if (plan == null || !plan.runId().equals(run.getRunId())) {
+            plan = new WorkerPlan(run.getRunId(), planRun(dunningRuleRepository.findByIsActiveTrueOrderByPriorityAsc(), run.getRunDate()));
+            workerPlan = plan;
+        }
+        claimPartitions(run.getRunId(), plan.runPlan());
+    }
+
+    /** Whether the coordinator lease is live and still held under the token the run was opened with. */
+    private boolean isCoordinated(DunningEngineRun run) {
+        return leaseManager.currentHolder(COORDINATOR_LEASE)
+                .filter(holder -> holder.ownerId().equals(run.getCoordinatorNode()))
+                .filter(holder -> Long.valueOf(holder.fencingToken()).equals(run.getFencingToken()))
+                .isPresent();
+    }
 
-                // 2. Condition Type vs Invoice Status Check: Skip inapplicable conditions
-                RuleConditionType conditionType = rule.getConditionType();
-                InvoiceStatus invoiceStatus = invoice.getStatus();
+    /** The plan a node's workers use for the run they are helping with. */
+    private record WorkerPlan(UUID runId, RunPlan runPlan) {
+    }
 
-                if (conditionType == RuleConditionType.DAYS_OVERDUE && invoiceStatus != InvoiceStatus.OVERDUE) {
-                    log.trace("Skipping Rule '{}' ({}): Condition applies only to OVERDUE invoices.", rule.getRuleName(), conditionType);
-                    continue;
+    /**
+     * Claims open partitions of the run, up to this node's free workers. A partition is claimed
+     * by acquiring its lease (named after its index) and then stamping the lease's fencing token
+     * on the row; every checkpoint of the partition is fenced by that token.
+     */
+    private void claimPartitions(UUID runId, RunPlan runPlan) {
+        List<AccountPartition> slices = AccountPartition.split(partitionCount);
+        for (DunningRunPartition partition : partitionRepository.findByEngineRun_RunIdAndStatusInOrderByPartitionIndexAsc(runId, OPEN_PARTITION_STATUSES)) {
+            if (activePartitions.get() >= parallelism) {
+                return; // Every local worker is busy
+            }
+            Lease lease = leaseManager.tryAcquire(PARTITION_LEASE_PREFIX + partition.getPartitionIndex()).orElse(null);
+            if (lease == null) {
+                continue; // A live worker has it
+            }
+            int claimed = transactionTemplate.execute(status -> partitionRepository.claim(
+                    partition.getPartitionId(), lease.ownerId(), lease.fencingToken(), LocalDateTime.now()));
+            if (claimed == 0) {
+                leaseManager.release(lease); // Finished in the meantime
+                continue;
+            }
+            AccountPartition slice = slices.get(partition.getPartitionIndex());
+            activePartitions.incrementAndGet();
+            partitionExecutor.execute(() -> {
+                try {
+                    processPartition(runId, slice, partition.getPartitionId(), lease, runPlan);
+                } finally {
+                    activePartitions.decrementAndGet();
+                    leaseManager.release(lease);
                 }
-                if (conditionType == RuleConditionType.DAYS_UNTIL_DUE && invoiceStatus != InvoiceStatus.PENDING) {
-                    log.trace("Skipping Rule '{}' ({}): Condition applies primarily to PENDING invoices.", rule.getRuleName(), conditionType);
-                    continue; // Skip if checking 'until due' on an already overdue/paid invoice
+            });
+        }
+    }
+
+    private void processPartition(UUID runId, AccountPartition slice, UUID partitionId, Lease lease, RunPlan runPlan) {
+        long fencingToken = lease.fencingToken();
+        EvaluationStats stats = new EvaluationStats();
+        EngineRunStatus outcome;
+        String errorMessage = null;
+        try {
+            DunningRunPartition partition = partitionRepository.findById(partitionId)
+                    .orElseThrow(() -> new IllegalStateException("Dunning partition " + partitionId + " disappeared."));
+            ChunkCursor resumeAfter = ChunkCursor.of(partition.getLastDueDate(), partition.getLastInvoiceId());
+            evaluatePartition(slice, runPlan, resumeAfter, stats, engineTelemetry.latencyFor(runId), (end, invoices, actions) -> {
+                if (partitionRepository.checkpoint(partitionId, fencingToken, end.dueDate(), end.invoiceId(), invoices, actions) == 0) {
+                    throw new LeaseLostException("Partition " + slice.index() + " was taken over by another worker.");
                 }
-                // (MIN_AMOUNT_DUE and ACCOUNT_TYPE can apply regardless of status)
-                // --------------------------------
+                runProgressBroadcaster.chunkCommitted(runId, slice.index(), invoices, actions);
+            });
+            outcome = EngineRunStatus.COMPLETED;
+            log.info("Partition {} finished: {} invoices processed, {} actions executed.",
+                    slice.index(), stats.invoicesScanned(), stats.actionsExecuted());
+        } catch (Exception e) {
+            log.error("Partition {} failed: {}", slice.index(), e.getMessage(), e);
+            outcome = EngineRunStatus.FAILED;
+            errorMessage = truncate(e.getMessage());
+            runProgressBroadcaster.failed(runId, slice.index(), errorMessage);
+        }
 
-                log.trace("Evaluating Rule '{}' for Invoice '{}'", rule.getRuleName(), invoice.getInvoiceNumber());
-                boolean conditionMet = ruleConditionService.checkCondition(rule, invoice);
+        // Before the partition is marked finished, so the coordinator's final reload includes it
+        engineTelemetry.record(runId, stats);
 
-                if (!conditionMet) {
-                    log.trace("Condition NOT MET for Rule '{}' on Invoice '{}'.", rule.getRuleName(), invoice.getInvoiceNumber());
-                    continue; // Condition not met, try next rule
-                }
+        // Fenced as well: a worker that lost the partition leaves its row to the new owner
+        EngineRunStatus finalOutcome = outcome;
+        String finalErrorMessage = errorMessage;
+        transactionTemplate.execute(status -> partitionRepository.finish(
+                partitionId, fencingToken, finalOutcome, finalErrorMessage, LocalDateTime.now()));
+    }
 
-                log.debug("Condition MET for Rule '{}' on Invoice '{}'. Checking execution status...", rule.getRuleName(), invoice.getInvoiceNumber());
-                boolean alreadyExecuted = logRepository.existsByDunningRule_RuleIdAndInvoice_InvoiceId(
-                        rule.getRuleId(), invoice.getInvoiceId());
-
-                if (!alreadyExecuted) {
-                    log.info("MATCH: Rule '{}' matches Invoice '{}'. Executing action '{}'...",
-                            rule.getRuleName(), invoice.getInvoiceNumber(), rule.getActionType());
-                    try {
-                        ruleActionService.executeAction(rule, invoice);
-                        DunningExecutionLog executionLog = new DunningExecutionLog(rule, invoice);
-                        logRepository.save(executionLog);
-                        actionsExecuted++;
-                        log.info("Action executed and logged for Rule '{}' on Invoice '{}'. Moving to next invoice.",
-                                rule.getRuleName(), invoice.getInvoiceNumber());
-                        break; // Stop processing rules for this invoice once one has executed
-                    } catch (Exception e) {
-                        log.error("Failed to execute action for Rule '{}' on Invoice {}: {}",
-                                rule.getRuleName(), invoice.getInvoiceNumber(), e.getMessage(), e);
-                        // Optional: Log failure specifically? Maybe don't break? Depends on desired behavior.
-                        // For now, we break even on failure to avoid potential loops/repeated errors on the same invoice in one run.
-                        break;
+    /**
+     * Streams the candidates of one partition after {@code resumeAfter}, chunk by chunk, and
+     * evaluates each invoice. Every chunk commits in its own transaction together with its
+     * checkpoint. Counts and timings of this call are added to {@code stats}, and each
+     * invoice's evaluation time to {@code latency}.
+     */
+    private void evaluatePartition(AccountPartition partition, RunPlan runPlan, ChunkCursor resumeAfter,
+                                   EvaluationStats stats, LatencyHistogram latency, Checkpoint checkpoint) {
+        if (sqlPushDown) {
+            if (runPlan.queryPlan() == null) {
+                return; // No rule has a usable condition
+            }
+            // The database already picked the rule for each invoice; only execute
+            ruleQueryPlanner.forEachChunk(runPlan.queryPlan(), runPlan.lookaheadDate(), partition, resumeAfter, chunk -> {
+                stats.addDbNanos(chunk.fetchNanos());
+                int executed = executePlannedChunk(chunk.items(), runPlan, stats, latency);
+                stats.addInvoicesScanned(chunk.scanned());
+                long saveStart = System.nanoTime();
+                checkpoint.save(chunk.end(), chunk.scanned(), executed);
+                stats.addDbNanos(System.nanoTime() - saveStart);
+            });
+        } else {
+            boolean incrementalMode = isIncrementalMode();
+            invoiceCandidateSource.forEachChunk(runPlan.lookaheadDate(), runPlan.evaluateOn(), partition, resumeAfter, chunk -> {
+                List<Invoice> invoices = chunk.items();
+                long loadStart = System.nanoTime();
+                ExecutedActionSet executed = loadExecutedActions(invoices);
+                stats.addDbNanos(chunk.fetchNanos() + System.nanoTime() - loadStart);
+                List<EvaluationSchedule.NextEvaluation> nextEvaluations = incrementalMode ? new ArrayList<>(invoices.size()) : null;
+                List<RuleActionService.RuleAction> bulkActions = new ArrayList<>();
+                int chunkActions = 0;
+                for (Invoice invoice : invoices) {
+                    long invoiceStart = System.nanoTime();
+                    if (evaluateInvoice(invoice, runPlan.ruleIndex(), executed, stats, bulkActions)) {
+                        chunkActions++;
+                    }
+                    engineTelemetry.recordInvoiceLatency(latency, System.nanoTime() - invoiceStart);
+                    if (incrementalMode) {
+                        nextEvaluations.add(new EvaluationSchedule.NextEvaluation(invoice.getInvoiceId(),
+                                invoice.getNextEvaluationDate(), runPlan.ruleIndex().nextEvaluationDate(invoice, executed)));
                     }
-                } else {
-                    log.trace("Skipping Rule '{}': Already executed for Invoice '{}'.", rule.getRuleName(), invoice.getInvoiceNumber());
-                    // Don't break here, let lower priority rules be checked if needed (though unlikely with current break logic)
                 }
-            } // End rule loop
-        } // End invoice loop
+                applyBulkActions(bulkActions, stats);
+                stats.addInvoicesScanned(chunk.scanned());
+                long saveStart = System.nanoTime();
+                if (incrementalMode) {
+                    evaluationSchedule.save(nextEvaluations);
+                }
+                checkpoint.save(chunk.end(), chunk.scanned(), chunkActions);
+                stats.addDbNanos(System.nanoTime() - saveStart);
+            });
+        }
+    }
 
-        log.info("Scheduled dunning process finished. Total actions executed: {}", actionsExecuted);
-        engineRun.setEndTime(LocalDateTime.now());
-        dunningEngineRunRepository.save(engineRun); // Save final end time
+    private int executePlannedChunk(List<PlannedAction> chunk, RunPlan runPlan, EvaluationStats stats, LatencyHistogram latency) {
+        if (chunk.isEmpty()) {
+            return 0; // A page whose candidates had all been handled already
+        }
+        List<UUID> invoiceIds = new ArrayList<>(chunk.size());
+        for (PlannedAction action : chunk) {
+            invoiceIds.add(action.invoiceId());
+        }
+        long loadStart = System.nanoTime();
+        Map<UUID, Invoice> invoicesById = new HashMap<>();
+        for (Invoice invoice : invoiceRepository.findWithAccountAndPlanByInvoiceIdIn(invoiceIds)) {
+            invoicesById.put(invoice.getInvoiceId(), invoice);
+        }
+        stats.addDbNanos(System.nanoTime() - loadStart);
+
+        List<RuleActionService.RuleAction> bulkActions = new ArrayList<>();
+        int executed = 0;
+        for (PlannedAction action : chunk) {
+            Invoice invoice = invoicesById.get(action.invoiceId());
+            DunningRule rule = runPlan.rulesById().get(action.ruleId());
+            if (invoice == null || rule == null) {
+                continue; // Invoice deleted since the candidate query ran
+            }
+            log.info("MATCH: Rule '{}' matches Invoice '{}'. Executing action '{}'...",
+                    rule.getRuleName(), invoice.getInvoiceNumber(), rule.getActionType());
+            stats.conditionHit();
+            long invoiceStart = System.nanoTime();
+            if (executeRule(rule, invoice, stats, bulkActions)) {
+                executed++;
+            }
+            engineTelemetry.recordInvoiceLatency(latency, System.nanoTime() - invoiceStart);
+        }
+        applyBulkActions(bulkActions, stats);
+        return executed;
+    }
+
+    /**
+     * Preloads, in one query, which rules have already run for the invoices of this chunk.
+     */
+    private ExecutedActionSet loadExecutedActions(List<Invoice> chunk) {
+        List<UUID> invoiceIds = new ArrayList<>(chunk.size());
+        for (Invoice invoice : chunk) {
+            invoiceIds.add(invoice.getInvoiceId());
+        }
+        ExecutedActionSet executed = new ExecutedActionSet(chunk.size());
+        for (Map<String, Object> pair : logRepository.findExecutedPairsForInvoices(invoiceIds)) {
+            executed.add((UUID) pair.get("ruleId"), (UUID) pair.get("invoiceId"));
+        }
+        return executed;
+    }
+
+    /**
+     * Walks the rules the compiled index reports as matching this invoice (in priority order)
+     * and executes the first one that has not run for it yet. Returns true if an action was executed.
+     */
+    private boolean evaluateInvoice(Invoice invoice, CompiledRuleIndex ruleIndex, ExecutedActionSet executed,
+                                    EvaluationStats stats, List<RuleActionService.RuleAction> bulkActions) {
+        log.debug("Processing Invoice: {} (Status: {}, Due: {})", invoice.getInvoiceNumber(), invoice.getStatus(), invoice.getDueDate());
+
+        // Plan type, status applicability and the condition itself are already resolved by the index
+        for (DunningRule rule : ruleIndex.matchingRules(invoice)) {
+            log.debug("Condition MET for Rule '{}' on Invoice '{}'. Checking execution status...", rule.getRuleName(), invoice.getInvoiceNumber());
+            stats.conditionHit();
+            boolean alreadyExecuted = executed.contains(rule.getRuleId(), invoice.getInvoiceId());
+
+            if (!alreadyExecuted) {
+                log.info("MATCH: Rule '{}' matches Invoice '{}'. Executing action '{}'...",
+                        rule.getRuleName(), invoice.getInvoiceNumber(), rule.getActionType());
+                boolean success = executeRule(rule, invoice, stats, bulkActions);
+                if (success) {
+                    executed.add(rule.getRuleId(), invoice.getInvoiceId());
+                }
+                // Stop processing rules for this invoice once one has executed.
+                // We stop even on failure to avoid potential loops/repeated errors on the same invoice in one run.
+                return success;
+            } else {
+                log.trace("Skipping Rule '{}': Already executed for Invoice '{}'.", rule.getRuleName(), invoice.getInvoiceNumber());
+                stats.alreadyExecutedSkip();
+                // Don't break here, let lower priority rules be checked
+            }
+        } // End rule loop
+        return false;
+    }
+
+    /**
+     * Executes the rule's action (or, in outbox mode, queues it) and records the execution. SMS
+     * are always queued in the outbox: the rate-limited send would otherwise hold the chunk, and
+     * only a persisted entry survives throttling, a full send queue or a restart.
+     * Account restrictions, throttles and BPO tasks are instead added to {@code bulkActions}, for
+     * {@link #applyBulkActions} at the end of the chunk. Returns false if the action threw.
+     * Time spent in the action counts as provider time.
+     */
+    private boolean executeRule(DunningRule rule, Invoice invoice, EvaluationStats stats, List<RuleActionService.RuleAction> bulkActions) {
+        if (outboxEnabled || rule.getActionType() == RuleActionType.SEND_SMS) {
+            // Queued in this transaction; mail/SMS latency no longer holds the run or its locks
+            auditWriter.enqueueAction(rule.getRuleId(), invoice.getInvoiceId(), rule.getActionType());
+            auditWriter.recordExecution(rule.getRuleId(), invoice.getInvoiceId());
+            stats.actionExecuted(rule.getActionType());
+            log.info("Action '{}' queued for Rule '{}' on Invoice '{}'.",
+                    rule.getActionType(), rule.getRuleName(), invoice.getInvoiceNumber());
+            return true;
+        }
+        if (RuleActionService.isBulkAction(rule.getActionType())) {
+            bulkActions.add(new RuleActionService.RuleAction(rule, invoice));
+            return true; // Applied (or failed) with the rest of the chunk
+        }
+        long actionStart = System.nanoTime();
+        try {
+            ruleActionService.executeAction(rule, invoice);
+            stats.addProviderNanos(System.nanoTime() - actionStart);
+            auditWriter.recordExecution(rule.getRuleId(), invoice.getInvoiceId());
+            stats.actionExecuted(rule.getActionType());
+            log.info("Action executed and logged for Rule '{}' on Invoice '{}'. Moving to next invoice.",
+                    rule.getRuleName(), invoice.getInvoiceNumber());
+            return true;
+        } catch (Exception e) {
+            stats.addProviderNanos(System.nanoTime() - actionStart);
+            stats.actionFailed();
+            log.error("Failed to execute action for Rule '{}' on Invoice {}: {}",
+                    rule.getRuleName(), invoice.getInvoiceNumber(), e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Applies the chunk's deferred database-only actions in bulk and records their executions,
+     * all in the chunk's transaction: if a statement fails, the chunk rolls back and is
+     * evaluated again when the run resumes.
+     */
+    private void applyBulkActions(List<RuleActionService.RuleAction> bulkActions, EvaluationStats stats) {
+        if (bulkActions.isEmpty()) {
+            return;
+        }
+        long actionStart = System.nanoTime();
+        ruleActionService.applyBulkActions(bulkActions);
+        stats.addProviderNanos(System.nanoTime() - actionStart);
+        for (RuleActionService.RuleAction action : bulkActions) {
+            auditWriter.recordExecution(action.rule().getRuleId(), action.invoice().getInvoiceId());
+            stats.actionExecuted(action.rule().getActionType());
+        }
+        log.info("Applied {} restriction, throttle and BPO task actions in bulk.", bulkActions.size());
     }
-}
\ No newline at end of file
+}
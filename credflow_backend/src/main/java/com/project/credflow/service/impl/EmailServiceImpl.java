@@ -2,23 +2,35 @@ package com.project.credflow.service.impl;
 
 import com.project.credflow.model.Customer;
 import com.project.credflow.model.Invoice;
+import com.project.credflow.model.NotificationLog;
 import com.project.credflow.model.NotificationTemplate;
 import com.project.credflow.model.User;
 import com.project.credflow.service.inter.EmailService;
 import com.project.credflow.service.inter.NotificationLogService;
 import com.project.credflow.enums.NotificationChannel;
 import com.project.credflow.enums.NotificationStatus;
+import com.project.credflow.template.CompiledTemplate;
+import com.project.credflow.template.TemplateCompiler;
+import com.project.credflow.template.TemplateSyntax;
+import com.project.credflow.template.TemplateValues;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
-import java.time.temporal.ChronoUnit;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -28,79 +40,143 @@ public class EmailServiceImpl implements EmailService {
 
     private final JavaMailSender mailSender;
     private final NotificationLogService notificationLogService;
+    private final TemplateCompiler templateCompiler;
+
+    private static final String MISSING_RECIPIENT = "Recipient email address missing or user not found";
 
     @Value("${spring.mail.username}")
     private String fromEmail;
 
+    // Messages sent per SMTP connection by sendDunningEmails
+    @Value("${mail.batch-size:50}")
+    private int batchSize;
+
     @Override
-    public void sendDunningEmail(Invoice invoice, NotificationTemplate template) {
+    public boolean sendDunningEmail(Invoice invoice, NotificationTemplate template) {
         Customer customer = invoice.getAccount().getCustomer();
 
         if (customer == null || customer.getUser() == null || customer.getUser().getEmail() == null) {
             log.warn("Cannot send email: Customer, associated User, or User's email is null for invoice {}", invoice.getInvoiceId());
             if (customer != null) {
-                notificationLogService.logNotification(customer, NotificationChannel.EMAIL, template.getTemplateName(), NotificationStatus.FAILED, "Recipient email address missing or user not found");
+                notificationLogService.logNotification(customer, NotificationChannel.EMAIL, template.getTemplateName(), NotificationStatus.FAILED, MISSING_RECIPIENT);
             }
-            return;
+            return false;
         }
 
         User user = customer.getUser();
         String recipientEmail = user.getEmail();
 
         try {
-            String subject = processTemplateBody(template.getSubject(), invoice, user);
-            String body = processTemplateBody(template.getBody(), invoice, user);
-
-            MimeMessage mimeMessage = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "UTF-8");
-
-            helper.setFrom(fromEmail);
-            helper.setTo(recipientEmail);
-            helper.setSubject(subject);
-            helper.setText(body, true);
-
-            mailSender.send(mimeMessage);
+            mailSender.send(buildMessage(invoice, template, user, new StringBuilder()));
 
             log.info("Successfully sent dunning email to {} for invoice {}", recipientEmail, invoice.getInvoiceNumber());
 
             notificationLogService.logNotification(customer, NotificationChannel.EMAIL, template.getTemplateName(), NotificationStatus.SENT, null);
+            return true;
 
         } catch (MessagingException e) {
             log.error("Failed to send dunning email for invoice {}: {}", invoice.getInvoiceId(), e.getMessage(), e);
             notificationLogService.logNotification(customer, NotificationChannel.EMAIL, template.getTemplateName(), NotificationStatus.FAILED, e.getMessage());
+            return false;
         } catch (Exception e) {
             log.error("Unexpected error sending dunning email for invoice {}: {}", invoice.getInvoiceId(), e.getMessage(), e);
             notificationLogService.logNotification(customer, NotificationChannel.EMAIL, template.getTemplateName(), NotificationStatus.FAILED, "Unexpected error: " + e.getMessage());
+            return false;
         }
     }
 
-
-    private String processTemplateBody(String body, Invoice invoice, User user) {
-        if (body == null) return "";
-
-        body = body.replace("[CustomerName]", user.getFullName());
-        body = body.replace("[InvoiceNumber]", invoice.getInvoiceNumber());
-        body = body.replace("[AmountDue]", String.format("%.2f", invoice.getAmountDue()));
-
-        if (invoice.getDueDate() != null) {
-            body = body.replace("[DueDate]", invoice.getDueDate().toString());
+    @Override
+    public List<Boolean> sendDunningEmails(List<DunningEmail> emails) {
+        Boolean[] results = new Boolean[emails.size()];
+        Arrays.fill(results, Boolean.FALSE);
+        List<NotificationLog> logEntries = new ArrayList<>(emails.size());
+
+        // Build everything first; emails that can't be built are failed without touching SMTP
+        List<MimeMessage> messages = new ArrayList<>(emails.size());
+        List<Integer> messageIndexes = new ArrayList<>(emails.size());
+        StringBuilder scratch = new StringBuilder(1024); // Reused for every subject and body
+        for (int i = 0; i < emails.size(); i++) {
+            Invoice invoice = emails.get(i).invoice();
+            NotificationTemplate template = emails.get(i).template();
+            Customer customer = invoice.getAccount().getCustomer();
+            if (customer == null || customer.getUser() == null || customer.getUser().getEmail() == null) {
+                log.warn("Cannot send email: Customer, associated User, or User's email is null for invoice {}", invoice.getInvoiceId());
+                if (customer != null) {
+                    logEntries.add(new NotificationLog(customer, NotificationChannel.EMAIL, template.getTemplateName(), NotificationStatus.FAILED, MISSING_RECIPIENT));
+                }
+                continue;
+            }
+            try {
+                messages.add(buildMessage(invoice, template, customer.getUser(), scratch));
+                messageIndexes.add(i);
+            } catch (MessagingException e) {
+                log.error("Failed to build dunning email for invoice {}: {}", invoice.getInvoiceId(), e.getMessage(), e);
+                logEntries.add(new NotificationLog(customer, NotificationChannel.EMAIL, template.getTemplateName(), NotificationStatus.FAILED, e.getMessage()));
+            }
         }
 
-        long daysOverdue = 0;
-        if (invoice.getDueDate() != null && invoice.getDueDate().isBefore(java.time.LocalDate.now())) {
-            daysOverdue = ChronoUnit.DAYS.between(invoice.getDueDate(), java.time.LocalDate.now());
+        // One SMTP connection (connect, TLS, auth) per batch instead of per message
+        for (int from = 0; from < messages.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, messages.size());
+            Map<Object, Exception> failures = sendBatch(messages.subList(from, to));
+            for (int m = from; m < to; m++) {
+                int index = messageIndexes.get(m);
+                Invoice invoice = emails.get(index).invoice();
+                String templateName = emails.get(index).template().getTemplateName();
+                Customer customer = invoice.getAccount().getCustomer();
+                Exception failure = failures.get(messages.get(m));
+                if (failure == null) {
+                    results[index] = Boolean.TRUE;
+                    logEntries.add(new NotificationLog(customer, NotificationChannel.EMAIL, templateName, NotificationStatus.SENT, null));
+                } else {
+                    log.error("Failed to send dunning email for invoice {}: {}", invoice.getInvoiceId(), failure.getMessage());
+                    logEntries.add(new NotificationLog(customer, NotificationChannel.EMAIL, templateName, NotificationStatus.FAILED, failure.getMessage()));
+                }
+            }
         }
-        body = body.replace("[DaysOverdue]", String.valueOf(daysOverdue));
 
-        body = body.replace("[PortalLink]", "http://localhost:5173/customer/payments"); // Update link if needed
+        notificationLogService.logNotifications(logEntries);
+        log.info("Batch email run: {} of {} dunning emails sent.", Arrays.stream(results).filter(Boolean::booleanValue).count(), emails.size());
+        return Arrays.asList(results);
+    }
 
-        if (invoice.getAccount() != null) {
-            body = body.replace("[AccountNumber]", invoice.getAccount().getAccountNumber());
-            body = body.replace("[TotalAmountDue]", String.format("%.2f", invoice.getAccount().getCurrentBalance()));
+    /** Sends the batch over one connection; returns the messages that failed (identity-keyed). */
+    private Map<Object, Exception> sendBatch(List<MimeMessage> batch) {
+        try {
+            mailSender.send(batch.toArray(new MimeMessage[0]));
+            return Map.of();
+        } catch (MailSendException e) {
+            // Per-message failures; the other messages of the batch were delivered
+            return e.getFailedMessages();
+        } catch (MailException e) {
+            // Connect/auth failure: nothing in the batch was sent
+            Map<Object, Exception> failures = new IdentityHashMap<>();
+            for (MimeMessage message : batch) {
+                failures.put(message, e);
+            }
+            return failures;
         }
+    }
+
+    private MimeMessage buildMessage(Invoice invoice, NotificationTemplate template, User user, StringBuilder scratch) throws MessagingException {
+        TemplateCompiler.CompiledNotification compiled = templateCompiler.compile(template, TemplateSyntax.BRACKET);
+        TemplateValues values = new TemplateValues(invoice, user, LocalDate.now());
+        String subject = render(compiled.subject(), values, scratch);
+        String body = render(compiled.body(), values, scratch);
 
-        body = body.replace("[AmountPaid]", "N/A");
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "UTF-8");
+
+        helper.setFrom(fromEmail);
+        helper.setTo(user.getEmail());
+        helper.setSubject(subject);
+        helper.setText(body, true);
+        return mimeMessage;
+    }
 
-        return body;
+    private static String render(CompiledTemplate template, TemplateValues values, StringBuilder scratch) {
+        scratch.setLength(0);
+        template.renderTo(scratch, values);
+        return scratch.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package com.project.credflow.service.impl;
+
+import com.project.credflow.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position in a customer history section: the sort key and id of the last row of a page,
+ * encoded as an opaque URL-safe string. Rows are always listed newest first, ties broken by id.
+ */
+record HistoryCursor(String sortKey, UUID id) {
+
+    // Sort key of invoices without a due date, which are listed after all others
+    private static final String UNDATED = "undated";
+
+    static HistoryCursor after(LocalDate dueDate, UUID id) {
+        return new HistoryCursor(dueDate != null ? dueDate.toString() : UNDATED, id);
+    }
+
+    static HistoryCursor after(LocalDateTime timestamp, UUID id) {
+        return new HistoryCursor(timestamp.toString(), id);
+    }
+
+    /** Null for a null or blank cursor (first page). */
+    static HistoryCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            return new HistoryCursor(decoded.substring(0, separator), UUID.fromString(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid history cursor: " + cursor);
+        }
+    }
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((sortKey + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Whether the last row had no due date, so the next page continues among the undated invoices. */
+    boolean undated() {
+        return UNDATED.equals(sortKey);
+    }
+
+    LocalDate dueDate() {
+        try {
+            return LocalDate.parse(sortKey);
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid invoice history cursor.");
+        }
+    }
+
+    LocalDateTime timestamp() {
+        try {
+            return LocalDateTime.parse(sortKey);
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid history cursor.");
+        }
+    }
+}
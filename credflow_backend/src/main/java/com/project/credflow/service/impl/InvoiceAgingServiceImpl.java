@@ -0,0 +1,94 @@
+package com.project.credflow.service.impl;
+
+import com.project.credflow.model.InvoiceAgingRun;
+import com.project.credflow.repository.InvoiceAgingRunRepository;
+import com.project.credflow.service.inter.InvoiceAgingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ages invoices with set-based SQL only; no Invoice entity is ever loaded.
+ * <p>
+ * Each chunk is one short transaction: lock the next {@code invoice.aging.chunk-size}
+ * PENDING invoices that are past due (an index range scan on (status, due_date), with SKIP
+ * LOCKED so several nodes can share the work), flip exactly those rows to OVERDUE by primary
+ * key, clearing their next_evaluation_date so the next incremental dunning run picks them
+ * up. Aged rows leave the PENDING range, so the next chunk simply reads the front of the
+ * index again and no cursor is needed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceAgingServiceImpl implements InvoiceAgingService {
+
+    private static final String LOCK_PAST_DUE_CHUNK =
+            "SELECT invoice_id FROM invoices WHERE status = 'PENDING' AND due_date < :asOf " +
+                    "ORDER BY due_date LIMIT :chunkSize FOR UPDATE SKIP LOCKED";
+    // Clearing next_evaluation_date makes incremental dunning runs re-evaluate the aged invoices
+    private static final String MARK_OVERDUE =
+            "UPDATE invoices SET status = 'OVERDUE', next_evaluation_date = NULL WHERE invoice_id IN (:invoiceIds)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final InvoiceAgingRunRepository agingRunRepository;
+
+    @Value("${invoice.aging.chunk-size:5000}")
+    private int chunkSize;
+
+    // Runs ahead of the dunning engine (1 AM) so it sees today's overdue invoices
+    @Scheduled(cron = "${invoice.aging.cron:0 30 0 * * ?}")
+    public void runScheduledAging() {
+        ageInvoices();
+    }
+
+    @Override
+    public InvoiceAgingRun ageInvoices() {
+        LocalDate asOf = LocalDate.now();
+        InvoiceAgingRun run = new InvoiceAgingRun();
+        run.setAsOfDate(asOf);
+        run.setStartTime(LocalDateTime.now());
+        run = agingRunRepository.save(run);
+        log.info("Starting invoice aging for invoices due before {}...", asOf);
+
+        long aged = 0;
+        int chunks = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> ageChunk(asOf));
+            if (moved > 0) {
+                aged += moved;
+                chunks++;
+            }
+        } while (moved == chunkSize);
+
+        run.setInvoicesAged(aged);
+        run.setChunks(chunks);
+        run.setEndTime(LocalDateTime.now());
+        run = agingRunRepository.save(run);
+        log.info("Invoice aging finished: {} invoices moved to OVERDUE in {} chunks.", aged, chunks);
+        return run;
+    }
+
+    private int ageChunk(LocalDate asOf) {
+        List<byte[]> locked = jdbcTemplate.queryForList(LOCK_PAST_DUE_CHUNK,
+                new MapSqlParameterSource()
+                        .addValue("asOf", Date.valueOf(asOf))
+                        .addValue("chunkSize", chunkSize),
+                byte[].class);
+        if (locked.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(MARK_OVERDUE, new MapSqlParameterSource("invoiceIds", locked));
+    }
+}
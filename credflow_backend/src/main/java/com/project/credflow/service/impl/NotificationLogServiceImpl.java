@@ -12,6 +12,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -36,4 +38,24 @@ public class NotificationLogServiceImpl implements NotificationLogService {
             log.error("CRITICAL: Failed to save notification log for customer {}: {}", customer.getCustomerId(), e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void logNotifications(List<NotificationLog> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            for (NotificationLog entry : entries) {
+                String failureReason = entry.getFailureReason();
+                if (failureReason != null && failureReason.length() > 1000) {
+                    entry.setFailureReason(failureReason.substring(0, 1000));
+                }
+            }
+            notificationLogRepository.saveAll(entries);
+            log.debug("Saved {} notification log entries", entries.size());
+        } catch (Exception e) {
+            log.error("CRITICAL: Failed to save {} notification log entries: {}", entries.size(), e.getMessage());
+        }
+    }
+}
@@ -54,6 +54,7 @@ public class PaymentServiceImpl implements PaymentService {
             throw new RuntimeException("Payment simulation interrupted", e);
         }
         invoice.setStatus(InvoiceStatus.PAID);
+        invoice.setNextEvaluationDate(null); // Payment changed the invoice: re-evaluate on the next dunning run
         invoiceRepository.save(invoice);
         log.info("Updated invoice {} status to PAID", invoiceId);
 
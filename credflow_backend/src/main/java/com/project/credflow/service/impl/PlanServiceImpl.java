@@ -1,6 +1,7 @@
 package com.project.credflow.service.impl;
 
 import com.project.credflow.dto.PlanDto;
+import com.project.credflow.engine.EvaluationSchedule;
 import com.project.credflow.exception.AccessNextLevelException;
 import com.project.credflow.mapper.PlanMapper;
 import com.project.credflow.model.Account;
@@ -28,6 +29,7 @@ public class PlanServiceImpl implements PlanService {
     private final PlanRepository planRepository;
     private final AccountRepository accountRepository;
     private final PlanMapper planMapper;
+    private final EvaluationSchedule evaluationSchedule;
 
     private static final Logger log = LoggerFactory.getLogger(PlanServiceImpl.class);
 
@@ -71,6 +73,7 @@ public class PlanServiceImpl implements PlanService {
         account.setCurrentSpeed(plan.getDefaultSpeed());
 
         accountRepository.save(account);
+        evaluationSchedule.invalidateAccount(accountId); // Different plan type, different dunning rules
     }
 
     @Override
@@ -2,14 +2,17 @@ package com.project.credflow.service.impl;
 
 import com.project.credflow.dto.UpdateProfileRequestDto;
 import com.project.credflow.dto.UserProfileDto;
+import com.project.credflow.event.CustomerProfileChangedEvent;
 import com.project.credflow.exception.ResourceNotFoundException;
 import com.project.credflow.model.Customer;
 import com.project.credflow.model.User;
 import com.project.credflow.repository.CustomerRepository;
 import com.project.credflow.repository.UserRepository;
+import com.project.credflow.security.PrincipalCache;
 import com.project.credflow.service.inter.ProfileService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile; // <-- Import
@@ -26,12 +29,21 @@ public class ProfileServiceImpl implements ProfileService {
 
     private final UserRepository userRepository;
     private final CustomerRepository customerRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PrincipalCache principalCache;
 
     // --- ADD Image Validation Constants ---
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5 MB limit
     private static final List<String> ALLOWED_MIME_TYPES = Arrays.asList("image/jpeg", "image/png", "image/gif");
     // ------------------------------------
 
+    // The authenticated principal comes from PrincipalCache without its profile picture, so
+    // read and write the managed entity instead (saving the principal would erase the picture)
+    private User loadUser(User principal) {
+        return userRepository.findById(principal.getUserId())
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + principal.getUserId()));
+    }
+
     private Customer getCustomerForUser(User user) {
         // Find associated customer profile, handling case where it might be optional depending on role
         return customerRepository.findByUser_UserId(user.getUserId()).orElse(null);
@@ -72,17 +84,18 @@ public class ProfileServiceImpl implements ProfileService {
 
     @Override
     @Transactional(readOnly = true)
-    public UserProfileDto getUserProfile(User currentUser) {
-        log.info("Fetching profile for user: {}", currentUser.getEmail());
+    public UserProfileDto getUserProfile(User principal) {
+        log.info("Fetching profile for user: {}", principal.getEmail());
+        User currentUser = loadUser(principal);
         Customer customer = getCustomerForUser(currentUser); // Fetch customer regardless of role for mapping
         return mapToUserProfileDto(currentUser, customer);
     }
 
     @Override
     @Transactional
-    public UserProfileDto updateUserProfile(User currentUser, UpdateProfileRequestDto updateDto) {
-        // ... (existing implementation - no changes needed here) ...
-        log.info("Updating profile for user: {}", currentUser.getEmail());
+    public UserProfileDto updateUserProfile(User principal, UpdateProfileRequestDto updateDto) {
+        log.info("Updating profile for user: {}", principal.getEmail());
+        User currentUser = loadUser(principal);
 
         boolean userUpdated = false;
         if (updateDto.getFullName() != null && !updateDto.getFullName().equals(currentUser.getFullName())) {
@@ -97,7 +110,9 @@ public class ProfileServiceImpl implements ProfileService {
         User savedUser = currentUser;
         if (userUpdated) {
             savedUser = userRepository.save(currentUser);
+            principalCache.invalidate(currentUser.getEmail());
             log.info("User entity updated for user: {}", currentUser.getEmail());
+            eventPublisher.publishEvent(new CustomerProfileChangedEvent(currentUser.getUserId())); // Name or phone is searchable
         }
 
         Customer savedCustomer = null;
@@ -142,8 +157,8 @@ public class ProfileServiceImpl implements ProfileService {
     // --- IMPLEMENT New Method ---
     @Override
     @Transactional
-    public UserProfileDto updateProfilePicture(User currentUser, MultipartFile file) throws IOException {
-        log.info("Updating profile picture for user: {}", currentUser.getEmail());
+    public UserProfileDto updateProfilePicture(User principal, MultipartFile file) throws IOException {
+        log.info("Updating profile picture for user: {}", principal.getEmail());
 
         // 1. Validate the file
         if (file == null || file.isEmpty()) {
@@ -158,6 +173,7 @@ public class ProfileServiceImpl implements ProfileService {
 
         // 2. Read bytes and update user
         byte[] imageBytes = file.getBytes();
+        User currentUser = loadUser(principal);
         currentUser.setProfilePicture(imageBytes);
 
         // 3. Save user
@@ -1,15 +1,28 @@
 package com.project.credflow.service.impl;
 
 // --- Standard Imports ---
+import com.project.credflow.engine.BpoTaskWriter;
+import com.project.credflow.engine.DunningAuditWriter;
 import com.project.credflow.exception.ActionExecutionException;
 import com.project.credflow.exception.ResourceNotFoundException;
 import com.project.credflow.model.*;
 import com.project.credflow.repository.*;
 import com.project.credflow.service.inter.*;
+import com.project.credflow.template.TemplateCompiler;
+import com.project.credflow.template.TemplateSyntax;
+import com.project.credflow.template.TemplateValues;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 // --- Enum Imports ---
@@ -28,12 +41,126 @@ public class RuleActionServiceImpl implements RuleActionService {
     private final EmailService emailService;
     private final SmsService smsService; // For SMS
     private final BpoTaskRepository bpoTaskRepository;
-    private final DunningActionLogRepository dunningActionLogRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final BpoTaskWriter bpoTaskWriter; // JDBC-batched bpo_tasks inserts for bulk task creation
+    private final DunningAuditWriter auditWriter; // Batched writer for dunning_action_logs
+    private final TemplateCompiler templateCompiler; // Cached {{token}} templates for SMS
     // Removed NotificationTemplateRepository - assuming EmailService handles template logic
 
     @Override
     @Transactional
     public void executeAction(DunningRule rule, Invoice invoice) {
+        try {
+            performAction(rule, invoice);
+        } catch (Exception e) {
+            // Already logged (and recorded in dunning_action_logs) by performAction
+            // Optionally re-throw
+            // throw new ActionExecutionException("Wrapper exception for action failure", e);
+        }
+    }
+
+    @Override
+    public void dispatchAction(DunningRule rule, Invoice invoice) {
+        performAction(rule, invoice);
+    }
+
+    @Override
+    public List<Boolean> dispatchEmailActions(List<RuleAction> actions) {
+        List<Boolean> results = new ArrayList<>(Collections.nCopies(actions.size(), Boolean.FALSE));
+        List<EmailService.DunningEmail> emails = new ArrayList<>(actions.size());
+        List<Integer> emailIndexes = new ArrayList<>(actions.size());
+        for (int i = 0; i < actions.size(); i++) {
+            DunningRule rule = actions.get(i).rule();
+            Invoice invoice = actions.get(i).invoice();
+            if (rule.getTemplate() == null) {
+                log.warn("Cannot send email: Rule {} has no associated template object.", rule.getRuleName());
+                logAction(rule.getActionType(), invoice.getInvoiceId());
+                results.set(i, Boolean.TRUE); // Skipped for good, as in performAction: retrying cannot help
+                continue;
+            }
+            emails.add(new EmailService.DunningEmail(invoice, rule.getTemplate()));
+            emailIndexes.add(i);
+        }
+
+        List<Boolean> sent = emailService.sendDunningEmails(emails);
+        for (int e = 0; e < emails.size(); e++) {
+            int index = emailIndexes.get(e);
+            results.set(index, sent.get(e));
+            logAction(RuleActionType.SEND_EMAIL, actions.get(index).invoice().getInvoiceId());
+        }
+        return results;
+    }
+
+    @Override
+    @Transactional
+    public void applyBulkActions(List<RuleAction> actions) {
+        Set<UUID> toRestrict = new LinkedHashSet<>();
+        Set<UUID> toThrottle = new LinkedHashSet<>();
+        List<RuleAction> tasksToCreate = new ArrayList<>();
+        for (RuleAction action : actions) {
+            RuleActionType actionType = action.rule().getActionType();
+            Invoice invoice = action.invoice();
+            if (!RuleActionService.isBulkAction(actionType)) {
+                throw new IllegalArgumentException("Not a bulk action: " + actionType);
+            }
+            Account account = invoice.getAccount();
+            if (account == null) {
+                log.warn("Cannot execute action: Invoice {} has no associated account.", invoice.getInvoiceId());
+            } else if (actionType == RuleActionType.RESTRICT_SERVICE) {
+                toRestrict.add(account.getAccountId());
+            } else if (actionType == RuleActionType.THROTTLE_SPEED) {
+                toThrottle.add(account.getAccountId());
+            } else {
+                tasksToCreate.add(action);
+            }
+            logAction(actionType, invoice.getInvoiceId());
+        }
+
+        if (!tasksToCreate.isEmpty()) {
+            createBpoTasks(tasksToCreate);
+        }
+
+        // Throttle first: an account restricted by another invoice ends up SUSPENDED either way, as one by one
+        if (!toThrottle.isEmpty()) {
+            int throttled = accountRepository.throttleAll(toThrottle);
+            log.info("Throttled {} of {} accounts (the rest were not ACTIVE or THROTTLED).", throttled, toThrottle.size());
+        }
+        if (!toRestrict.isEmpty()) {
+            int restricted = accountRepository.restrictAll(toRestrict);
+            log.info("Restricted {} accounts. Status set to SUSPENDED, speed set to 0 Mbps.", restricted);
+        }
+    }
+
+    /**
+     * Creates the tasks with one projection query for the customers' names (instead of walking
+     * two lazy proxies per task) and one JDBC batch insert.
+     */
+    private void createBpoTasks(List<RuleAction> actions) {
+        List<UUID> invoiceIds = new ArrayList<>(actions.size());
+        for (RuleAction action : actions) {
+            invoiceIds.add(action.invoice().getInvoiceId());
+        }
+        Map<UUID, Map<String, Object>> customersByInvoice = new HashMap<>();
+        for (Map<String, Object> row : invoiceRepository.findCustomerNamesForInvoices(invoiceIds)) {
+            customersByInvoice.put((UUID) row.get("invoiceId"), row);
+        }
+
+        List<BpoTaskWriter.NewTask> tasks = new ArrayList<>(actions.size());
+        for (RuleAction action : actions) {
+            Invoice invoice = action.invoice();
+            Map<String, Object> customer = customersByInvoice.get(invoice.getInvoiceId());
+            if (customer == null) {
+                log.warn("Cannot create BPO task: Invoice {} has no associated customer.", invoice.getInvoiceNumber());
+                continue;
+            }
+            tasks.add(new BpoTaskWriter.NewTask((UUID) customer.get("customerId"), invoice.getInvoiceId(),
+                    taskPriority(action.rule()), taskDescription(invoice, (String) customer.get("fullName"))));
+        }
+        bpoTaskWriter.insertAll(tasks);
+        log.info("Created {} BPO tasks in bulk.", tasks.size());
+    }
+
+    private void performAction(DunningRule rule, Invoice invoice) {
         if (rule == null || invoice == null || rule.getActionType() == null) {
             log.warn("Cannot execute action: Rule, Invoice, or ActionType is null.");
             return;
@@ -64,7 +191,9 @@ public class RuleActionServiceImpl implements RuleActionService {
                         // ---------------------------------------
                         break;
                     }
-                    emailService.sendDunningEmail(invoice, rule.getTemplate());
+                    if (!emailService.sendDunningEmail(invoice, rule.getTemplate())) {
+                        throw new ActionExecutionException("Failed to send dunning email for rule: " + rule.getRuleId());
+                    }
                     log.info("Email action initiated via Rule '{}' for Invoice '{}'.", rule.getRuleName(), invoice.getInvoiceNumber());
                     // --- Call original logAction on success ---
                     logAction(actionType, invoice.getInvoiceId());
@@ -100,8 +229,7 @@ public class RuleActionServiceImpl implements RuleActionService {
             // --- Call original logAction on failure ---
             logAction(actionType, invoice.getInvoiceId());
             // ------------------------------------------
-            // Optionally re-throw
-            // throw new ActionExecutionException("Wrapper exception for action failure", e);
+            throw e;
         }
     }
 
@@ -121,7 +249,8 @@ public class RuleActionServiceImpl implements RuleActionService {
             throw new ActionExecutionException("Template object is missing for SEND_SMS rule: " + rule.getRuleId());
         }
 
-        String messageBody = processTemplate(template.getBody(), invoice, user);
+        String messageBody = templateCompiler.compile(template, TemplateSyntax.MUSTACHE).body()
+                .render(new TemplateValues(invoice, user, LocalDate.now()));
 
         if (messageBody == null || messageBody.isBlank()) {
             log.error("Cannot send SMS for Rule '{}': Processed message body is empty.", rule.getRuleName());
@@ -156,25 +285,31 @@ public class RuleActionServiceImpl implements RuleActionService {
         newTask.setCustomer(account.getCustomer());
         newTask.setInvoice(invoice);
         newTask.setStatus(BpoTaskStatus.NEW);
-        BpoTaskPriority priority = rule.getBpoTaskPriority();
-        if (priority == null) {
-            log.warn("BPO Task Priority not set for Rule '{}'. Defaulting to MEDIUM.", rule.getRuleName());
-            priority = BpoTaskPriority.MEDIUM;
-        }
-        newTask.setPriority(priority);
-        String customerName = "Unknown Customer";
-        if (account.getCustomer() != null && account.getCustomer().getUser() != null && account.getCustomer().getUser().getFullName() != null) {
+        newTask.setPriority(taskPriority(rule));
+        String customerName = null;
+        if (account.getCustomer() != null && account.getCustomer().getUser() != null) {
             customerName = account.getCustomer().getUser().getFullName();
         }
-        newTask.setTaskDescription(String.format(
-                "Follow up on overdue invoice %s for %s.",
-                invoice.getInvoiceNumber(), customerName
-        ));
+        newTask.setTaskDescription(taskDescription(invoice, customerName));
         BpoTask savedTask = bpoTaskRepository.save(newTask);
         log.info("Created new BPO Task with ID: {}", savedTask.getTaskId());
         logAction(rule.getActionType(), invoice.getInvoiceId()); // Use original signature
     }
 
+    private BpoTaskPriority taskPriority(DunningRule rule) {
+        BpoTaskPriority priority = rule.getBpoTaskPriority();
+        if (priority == null) {
+            log.warn("BPO Task Priority not set for Rule '{}'. Defaulting to MEDIUM.", rule.getRuleName());
+            priority = BpoTaskPriority.MEDIUM;
+        }
+        return priority;
+    }
+
+    private static String taskDescription(Invoice invoice, String customerName) {
+        return String.format("Follow up on overdue invoice %s for %s.",
+                invoice.getInvoiceNumber(), customerName != null ? customerName : "Unknown Customer");
+    }
+
     private void handleRestrictService(DunningRule rule, Invoice invoice, Account account) {
         log.warn("Executing RESTRICT_SERVICE for Account ID: {}", account.getAccountId());
         account.setStatus(AccountStatus.SUSPENDED);
@@ -199,7 +334,7 @@ public class RuleActionServiceImpl implements RuleActionService {
         }
     }
 
-    // --- Helper Methods (getUser, formatPhone, processTemplate) ---
+    // --- Helper Methods (getUser, formatPhone) ---
     // These remain the same as the previous corrected version
     private User getUserFromInvoice(Invoice invoice) {
         try {
@@ -232,36 +367,16 @@ public class RuleActionServiceImpl implements RuleActionService {
         return null;
     }
 
-    private String processTemplate(String content, Invoice invoice, User user) {
-        if (content == null) return "";
-        Account account = invoice.getAccount();
-        Customer customer = account != null ? account.getCustomer() : null; // Added safe access
-
-        content = safeReplace(content,"{{invoiceNumber}}", invoice.getInvoiceNumber());
-        content = safeReplace(content,"{{amountDue}}", invoice.getAmountDue() != null ? invoice.getAmountDue().toPlainString() : null);
-        content = safeReplace(content,"{{dueDate}}", invoice.getDueDate() != null ? invoice.getDueDate().toString() : null);
-        content = safeReplace(content,"{{userName}}", user != null ? user.getFullName() : null);
-        content = safeReplace(content,"{{accountNumber}}", account != null ? account.getAccountNumber() : null);
-        content = content.replace("{{userName}}", "Valued Customer");
-
-        return content;
-    }
-
-    private String safeReplace(String text, String placeholder, String value) {
-        return text.replace(placeholder, value != null ? value : "N/A");
-    }
-
     /**
      * --- Reverted logAction Method ---
      * Logs the execution using the original simpler signature.
-     * Assumes a constructor DunningActionLog(RuleActionType, UUID) exists.
+     * The row is buffered by DunningAuditWriter and batch-inserted (at the latest) when the
+     * surrounding transaction commits.
      */
     private void logAction(RuleActionType actionType, UUID invoiceId) {
         try {
-            DunningActionLog actionLog = new DunningActionLog(actionType, invoiceId);
-
-            dunningActionLogRepository.save(actionLog);
-            log.debug("Saved DunningActionLog: Type={}, Invoice={}", actionType, invoiceId);
+            auditWriter.recordAction(actionType, invoiceId);
+            log.debug("Buffered DunningActionLog: Type={}, Invoice={}", actionType, invoiceId);
         } catch (Exception e) {
             log.error("Failed to save DunningActionLog for action {} on invoice {}: {}", actionType, invoiceId, e.getMessage(), e);
         }
@@ -1,79 +1,219 @@
 package com.project.credflow.service.impl;
 
+import com.project.credflow.exception.SmsThrottledException;
 import com.project.credflow.service.inter.SmsService;
-import com.twilio.Twilio;
-import com.twilio.rest.api.v2010.account.Message;
-import com.twilio.type.PhoneNumber;
+import com.project.credflow.sms.SmsGateway;
+import com.project.credflow.sms.SmsMessage;
+import com.project.credflow.sms.TokenBucket;
 import jakarta.annotation.PostConstruct; // Import PostConstruct
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value; // Import Value
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Rate-limited SMS pipeline: messages go into a bounded queue and are drained by a pool of
+ * virtual sender threads. Every send first takes a token from the {@link TokenBucket} of one of
+ * the sender numbers (providers limit throughput per number), and a throttling response pauses
+ * that number's bucket with exponential backoff before the message is retried.
+ */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class SmsServiceImpl implements SmsService {
 
-    @Value("${twilio.account-sid}")
-    private String accountSid;
-
-    @Value("${twilio.auth-token}")
-    private String authToken;
+    private final SmsGateway smsGateway;
 
     @Value("${twilio.phone-number}")
     private String twilioPhoneNumber;
 
-    // Initialize Twilio client when the service starts
+    // Comma-separated pool of sender numbers; defaults to the single Twilio number
+    @Value("${sms.sender-numbers:}")
+    private String[] senderNumbers;
+
+    // Long codes are limited to about 1 message/second per number
+    @Value("${sms.rate-per-second:1}")
+    private double ratePerSecond;
+
+    @Value("${sms.burst:1}")
+    private int burst;
+
+    @Value("${sms.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${sms.enqueue-timeout-ms:5000}")
+    private long enqueueTimeoutMs;
+
+    // How long sendSms waits for the outcome; on timeout the message is dropped and the send fails
+    @Value("${sms.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    @Value("${sms.sender-workers:32}")
+    private int senderWorkers;
+
+    @Value("${sms.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${sms.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    private record Sender(String number, TokenBucket bucket) {
+    }
+
+    private record OutgoingSms(String to, String body, CompletableFuture<Boolean> result) {
+    }
+
+    private final List<Sender> senders = new ArrayList<>();
+    private final AtomicInteger nextSender = new AtomicInteger();
+    private final List<Thread> workers = new ArrayList<>();
+    private BlockingQueue<OutgoingSms> queue;
+
     @PostConstruct
-    public void initTwilio() {
-        try {
-            Twilio.init(accountSid, authToken);
-            log.info("Twilio client initialized successfully with Account SID: {}", accountSid);
-        } catch (Exception e) {
-            log.error("Failed to initialize Twilio client: {}", e.getMessage(), e);
-            // Consider throwing an exception here if Twilio is critical
+    public void startSenders() {
+        String[] numbers = senderNumbers.length > 0 ? senderNumbers : new String[]{twilioPhoneNumber};
+        for (String number : numbers) {
+            senders.add(new Sender(number.trim(), new TokenBucket(ratePerSecond, burst)));
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < senderWorkers; i++) {
+            workers.add(Thread.ofVirtual().name("sms-sender-" + i).start(this::senderLoop));
+        }
+        log.info("SMS pipeline started: {} sender number(s) at {}/s each, queue capacity {}, {} workers.",
+                senders.size(), ratePerSecond, queueCapacity, senderWorkers);
+    }
+
+    @PreDestroy
+    public void stopSenders() {
+        workers.forEach(Thread::interrupt);
+        OutgoingSms pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().complete(false);
         }
     }
 
     @Override
     public boolean sendSms(String recipientPhoneNumber, String messageBody) {
+        CompletableFuture<Boolean> result = queueSms(recipientPhoneNumber, messageBody)
+                .orTimeout(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                log.error("SMS to {} not sent within {} ms; giving up on it.", recipientPhoneNumber, sendTimeoutMs);
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> queueSms(String recipientPhoneNumber, String messageBody) {
         if (recipientPhoneNumber == null || recipientPhoneNumber.isBlank()) {
             log.warn("Cannot send SMS: Recipient phone number is missing.");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
         if (messageBody == null || messageBody.isBlank()) {
             log.warn("Cannot send SMS to {}: Message body is empty.", recipientPhoneNumber);
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
         // Basic validation for E.164 format (starts with '+') - more robust validation could be added
         if (!recipientPhoneNumber.startsWith("+")) {
             log.warn("Cannot send SMS: Recipient phone number '{}' does not appear to be in E.164 format (missing '+').", recipientPhoneNumber);
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
-
+        OutgoingSms sms = new OutgoingSms(recipientPhoneNumber, messageBody, new CompletableFuture<>());
         try {
-            PhoneNumber to = new PhoneNumber(recipientPhoneNumber);
-            PhoneNumber from = new PhoneNumber(twilioPhoneNumber);
+            if (!queue.offer(sms, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.error("SMS queue full ({} messages); dropping SMS to {}.", queueCapacity, recipientPhoneNumber);
+                sms.result().complete(false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sms.result().complete(false);
+        }
+        return sms.result();
+    }
 
-            Message message = Message.creator(to, from, messageBody).create();
+    @Override
+    public List<CompletableFuture<Boolean>> queueBulk(List<SmsMessage> messages) {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(messages.size());
+        for (SmsMessage message : messages) {
+            results.add(queueSms(message.recipientPhoneNumber(), message.messageBody()));
+        }
+        return results;
+    }
 
-            log.info("SMS initiated to {}. SID: {}", recipientPhoneNumber, message.getSid());
-            // Check status (optional, usually 'queued' or 'sending' initially)
-            // log.debug("SMS status for SID {}: {}", message.getSid(), message.getStatus());
+    private void senderLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            OutgoingSms sms;
+            try {
+                sms = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (sms.result().isDone()) {
+                continue; // The caller stopped waiting (sendSms timed out)
+            }
+            try {
+                sms.result().complete(deliver(sms.to(), sms.body()));
+            } catch (Exception e) {
+                sms.result().complete(false);
+            }
+        }
+    }
 
-            // Consider statuses like 'failed' or 'undelivered' as failure later using callbacks if needed
-            return true; // Assume success if API call doesn't throw exception
+    private boolean deliver(String to, String body) {
+        for (int attempt = 0; ; attempt++) {
+            Sender sender = acquireSender();
+            if (sender == null) {
+                return false; // Interrupted while waiting for a token
+            }
+            try {
+                String sid = smsGateway.send(sender.number(), to, body);
+                log.info("SMS initiated to {}. SID: {}", to, sid);
+                return true; // Assume success if API call doesn't throw exception
+            } catch (SmsThrottledException e) {
+                if (attempt >= maxRetries) {
+                    log.error("Giving up on SMS to {} after {} throttled attempts: {}", to, attempt + 1, e.getMessage());
+                    return false;
+                }
+                long backoffMs = retryBackoffMs << Math.min(attempt, 16);
+                sender.bucket().pause(TimeUnit.MILLISECONDS.toNanos(backoffMs));
+                log.warn("SMS to {} throttled on {} (attempt {}), backing off {} ms.", to, sender.number(), attempt + 1, backoffMs);
+            } catch (Exception e) {
+                log.error("Unexpected error sending SMS to {}: {}", to, e.getMessage(), e);
+                return false;
+            }
+        }
+    }
 
-        } catch (com.twilio.exception.ApiException e) {
-            log.error("Failed to send SMS to {}. Twilio API Error: {} - {}", recipientPhoneNumber, e.getCode(), e.getMessage());
-            // Log more details if available
-            if (e.getMoreInfo() != null) {
-                log.error("Twilio More Info: {}", e.getMoreInfo());
+    /** Blocks (parking the virtual thread) until one of the sender numbers has a token. */
+    private Sender acquireSender() {
+        while (!Thread.currentThread().isInterrupted()) {
+            int start = Math.floorMod(nextSender.getAndIncrement(), senders.size());
+            long shortestWait = Long.MAX_VALUE;
+            for (int i = 0; i < senders.size(); i++) {
+                Sender sender = senders.get((start + i) % senders.size());
+                long wait = sender.bucket().tryAcquire();
+                if (wait == 0) {
+                    return sender;
+                }
+                shortestWait = Math.min(shortestWait, wait);
             }
-            return false;
-        } catch (Exception e) {
-            log.error("Unexpected error sending SMS to {}: {}", recipientPhoneNumber, e.getMessage(), e);
-            return false;
+            LockSupport.parkNanos(shortestWait);
         }
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package com.project.credflow.service.impl;
 import com.project.credflow.dto.CreateUserRequestDto;
 import com.project.credflow.dto.UserDto;
 import com.project.credflow.enums.RoleName;
+import com.project.credflow.event.CustomerProfileChangedEvent;
 import com.project.credflow.exception.ResourceNotFoundException;
 import com.project.credflow.exception.BadRequestException;
 import com.project.credflow.mapper.UserMapper;
@@ -10,9 +11,11 @@ import com.project.credflow.model.Role;
 import com.project.credflow.model.User;
 import com.project.credflow.repository.RoleRepository;
 import com.project.credflow.repository.UserRepository;
+import com.project.credflow.security.PrincipalCache;
 import com.project.credflow.service.inter.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -30,6 +33,8 @@ public class UserServiceImpl implements UserService {
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final UserMapper userMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PrincipalCache principalCache;
 
     @Override
     @Transactional(readOnly = true)
@@ -92,6 +97,7 @@ public class UserServiceImpl implements UserService {
 
         User existingUser = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+        principalCache.invalidate(existingUser.getEmail()); // Role, active flag and details may all change
 
         // Update basic fields
         existingUser.setFullName(userDto.getFullName());
@@ -104,6 +110,7 @@ public class UserServiceImpl implements UserService {
                 throw new BadRequestException("Email address already in use: " + userDto.getEmail());
             }
             existingUser.setEmail(userDto.getEmail());
+            principalCache.invalidate(userDto.getEmail());
             log.info("User {} email updated to {}", userId, userDto.getEmail());
         }
 
@@ -120,6 +127,7 @@ public class UserServiceImpl implements UserService {
         }
 
         User updatedUser = userRepository.save(existingUser);
+        eventPublisher.publishEvent(new CustomerProfileChangedEvent(userId)); // Name, email or phone may be searchable
         log.info("User {} updated successfully", userId);
         return userMapper.toUserDto(updatedUser);
     }
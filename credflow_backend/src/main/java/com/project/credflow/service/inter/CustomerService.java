@@ -22,5 +22,16 @@ public interface CustomerService {
 
     CustomerHistoryDto getCustomerDetailedHistory(UUID customerId);
 
-    List<CustomerDto> searchCustomers(String query);
+    // --- Paginated history: a summary header plus one cursor-paginated feed per section ---
+    CustomerHistorySummaryDto getCustomerHistorySummary(UUID customerId);
+
+    HistoryPageDto<InvoiceDto> getCustomerInvoicePage(UUID customerId, String cursor, int size);
+
+    HistoryPageDto<PaymentDto> getCustomerPaymentPage(UUID customerId, String cursor, int size);
+
+    HistoryPageDto<NotificationLogDto> getCustomerNotificationPage(UUID customerId, String cursor, int size);
+
+    HistoryPageDto<DunningActionLogDto> getCustomerDunningActionPage(UUID customerId, String cursor, int size);
+
+    List<CustomerDto> searchCustomers(String query, int page, int size);
 }
\ No newline at end of file
@@ -1,5 +1,20 @@
 package com.project.credflow.service.inter;
 
+import com.project.credflow.dto.DunningSimulationRequestDto;
+import com.project.credflow.dto.DunningSimulationResultDto;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
 public interface DunningEngineService {
     void runDunningProcess();
-}
\ No newline at end of file
+
+    /** Starts a run in the background and returns its id; throws LeaseUnavailableException if one is in progress. */
+    UUID startDunningProcess();
+
+    /** Streams the run's progress as server-sent events until it ends (see engine.RunProgressBroadcaster). */
+    SseEmitter streamRunProgress(UUID runId);
+
+    /** Evaluates a rule set over the current invoices without executing or recording any action. */
+    DunningSimulationResultDto simulateDunningRun(DunningSimulationRequestDto request);
+}
@@ -3,6 +3,18 @@ package com.project.credflow.service.inter;
 import com.project.credflow.model.Invoice;
 import com.project.credflow.model.NotificationTemplate;
 
+import java.util.List;
+
 public interface EmailService {
-    void sendDunningEmail(Invoice invoice, NotificationTemplate template);
+    /** Returns false if the email could not be sent (the failure is logged as a notification). */
+    boolean sendDunningEmail(Invoice invoice, NotificationTemplate template);
+
+    /**
+     * Sends many dunning emails over as few SMTP connections as possible and logs them in bulk.
+     * Returns one success flag per email, in the same order.
+     */
+    List<Boolean> sendDunningEmails(List<DunningEmail> emails);
+
+    record DunningEmail(Invoice invoice, NotificationTemplate template) {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.project.credflow.service.inter;
+
+import com.project.credflow.model.InvoiceAgingRun;
+
+public interface InvoiceAgingService {
+
+    /** Moves every PENDING invoice whose due date has passed to OVERDUE. */
+    InvoiceAgingRun ageInvoices();
+}
@@ -3,9 +3,15 @@ package com.project.credflow.service.inter;
 import com.project.credflow.enums.NotificationChannel;
 import com.project.credflow.enums.NotificationStatus;
 import com.project.credflow.model.Customer;
+import com.project.credflow.model.NotificationLog;
+
+import java.util.List;
 
 public interface NotificationLogService {
 
 
     void logNotification(Customer customer, NotificationChannel channel, String templateName, NotificationStatus status, String failureReason);
+
+    /** Saves a batch of log entries in one transaction (used by the batch email path). */
+    void logNotifications(List<NotificationLog> entries);
 }
\ No newline at end of file
@@ -1,8 +1,41 @@
 package com.project.credflow.service.inter;
 
+import com.project.credflow.enums.RuleActionType;
 import com.project.credflow.model.DunningRule;
 import com.project.credflow.model.Invoice;
 
+import java.util.List;
+
 public interface RuleActionService {
     void executeAction(DunningRule rule, Invoice invoice);
+
+    /**
+     * Same as {@link #executeAction}, but failures are thrown instead of swallowed so the
+     * caller (the action outbox dispatcher) can retry them. Runs without a surrounding
+     * transaction: the invoice must arrive with its account, customer and user loaded, and
+     * each write commits on its own.
+     */
+    void dispatchAction(DunningRule rule, Invoice invoice);
+
+    /**
+     * Batch form of {@link #dispatchAction} for SEND_EMAIL rules: the emails share SMTP
+     * connections. Returns one success flag per action, in the same order.
+     */
+    List<Boolean> dispatchEmailActions(List<RuleAction> actions);
+
+    /**
+     * Set-based form of {@link #executeAction} for the actions that only write to the database
+     * (see {@link #isBulkAction}): one UPDATE per account action type for all the accounts
+     * involved, and one JDBC batch for all the BPO tasks, with the dunning_action_logs rows
+     * buffered in the caller's transaction. Any other action type is rejected.
+     */
+    void applyBulkActions(List<RuleAction> actions);
+
+    static boolean isBulkAction(RuleActionType actionType) {
+        return actionType == RuleActionType.RESTRICT_SERVICE || actionType == RuleActionType.THROTTLE_SPEED
+                || actionType == RuleActionType.CREATE_BPO_TASK;
+    }
+
+    record RuleAction(DunningRule rule, Invoice invoice) {
+    }
 }
\ No newline at end of file
@@ -1,7 +1,24 @@
 package com.project.credflow.service.inter;
 
+import com.project.credflow.sms.SmsMessage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface SmsService {
 
 
+    /**
+     * Queues the message and waits for the outcome, at most {@code sms.send-timeout-ms}: a
+     * message still unsent by then is dropped and reported as failed.
+     */
     boolean sendSms(String recipientPhoneNumber, String messageBody);
-}
\ No newline at end of file
+
+    /**
+     * Queues the message for the rate-limited sender pool. The future completes with false if
+     * the message was invalid, the queue stayed full, or delivery failed after retries.
+     */
+    CompletableFuture<Boolean> queueSms(String recipientPhoneNumber, String messageBody);
+
+    List<CompletableFuture<Boolean>> queueBulk(List<SmsMessage> messages);
+}
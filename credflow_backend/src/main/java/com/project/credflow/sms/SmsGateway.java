@@ -0,0 +1,16 @@
+package com.project.credflow.sms;
+
+/**
+ * Hands a single SMS to a provider. Implementations are selected with {@code sms.gateway}
+ * ({@code twilio} by default, {@code stub} for offline load tests). Pacing and retries are
+ * done by the caller (SmsServiceImpl), not by the gateway.
+ */
+public interface SmsGateway {
+
+    /**
+     * Sends the message and returns the provider's message id.
+     * Throws {@link com.project.credflow.exception.SmsThrottledException} when the provider
+     * rate-limited the request; any other exception is treated as a permanent failure.
+     */
+    String send(String fromNumber, String toNumber, String body);
+}
@@ -0,0 +1,5 @@
+package com.project.credflow.sms;
+
+/** One outgoing SMS; the recipient must already be in E.164 format. */
+public record SmsMessage(String recipientPhoneNumber, String messageBody) {
+}
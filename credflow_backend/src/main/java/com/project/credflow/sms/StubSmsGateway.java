@@ -0,0 +1,65 @@
+package com.project.credflow.sms;
+
+import com.project.credflow.exception.SmsThrottledException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline gateway for load tests ({@code sms.gateway=stub}): nothing leaves the process.
+ * Each send sleeps for {@code sms.stub.latency-ms} to mimic the provider round trip, and a
+ * sender exceeding {@code sms.stub.max-per-second} is rejected as throttled, so the rate
+ * limiter and retry path can be exercised without a Twilio account.
+ */
+@Component
+@ConditionalOnProperty(name = "sms.gateway", havingValue = "stub")
+@Slf4j
+public class StubSmsGateway implements SmsGateway {
+
+    @Value("${sms.stub.latency-ms:50}")
+    private long latencyMs;
+
+    // 0 disables simulated throttling
+    @Value("${sms.stub.max-per-second:0}")
+    private int maxPerSecond;
+
+    private final Map<String, TokenBucket> providerLimits = new ConcurrentHashMap<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    @Override
+    public String send(String fromNumber, String toNumber, String body) {
+        if (maxPerSecond > 0) {
+            TokenBucket limit = providerLimits.computeIfAbsent(fromNumber, n -> new TokenBucket(maxPerSecond, maxPerSecond));
+            if (limit.tryAcquire() != 0) {
+                long count = throttled.incrementAndGet();
+                throw new SmsThrottledException("Stub rate limit hit for sender " + fromNumber + " (" + count + " throttled so far)");
+            }
+        }
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending stub SMS", e);
+        }
+        long count = sent.incrementAndGet();
+        if (count % 10_000 == 0) {
+            log.info("Stub SMS gateway: {} sent, {} throttled.", count, throttled.get());
+        }
+        return "STUB-" + UUID.randomUUID();
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+}
@@ -0,0 +1,61 @@
+package com.project.credflow.sms;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket holding up to {@code capacity} tokens, refilled at
+ * {@code tokensPerSecond}.
+ * <p>
+ * The state is a single {@link AtomicLong}: the "theoretical arrival time" of the generic cell
+ * rate algorithm, i.e. the instant at which the bucket would be full again. Taking a token
+ * moves it forward by one emission interval with a CAS, so concurrent senders never block
+ * each other and no refill thread is needed.
+ */
+public final class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final LongSupplier clock;
+    private final AtomicLong theoreticalArrivalTime;
+
+    public TokenBucket(double tokensPerSecond, int capacity) {
+        this(tokensPerSecond, capacity, System::nanoTime);
+    }
+
+    TokenBucket(double tokensPerSecond, int capacity, LongSupplier clock) {
+        if (tokensPerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("tokensPerSecond must be > 0 and capacity >= 1");
+        }
+        this.emissionIntervalNanos = Math.max(1L, (long) (1_000_000_000L / tokensPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (capacity - 1);
+        this.clock = clock;
+        this.theoreticalArrivalTime = new AtomicLong(clock.getAsLong()); // Starts full
+    }
+
+    /**
+     * Takes one token if available. Returns 0 on success, otherwise the number of
+     * nanoseconds until a token will be available (nothing is taken in that case).
+     */
+    public long tryAcquire() {
+        while (true) {
+            long now = clock.getAsLong();
+            long tat = theoreticalArrivalTime.get();
+            long wait = tat - burstToleranceNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            long next = (tat - now > 0 ? tat : now) + emissionIntervalNanos;
+            if (theoreticalArrivalTime.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /** Empties the bucket and withholds tokens for the given time (e.g. after a provider 429). */
+    public void pause(long nanos) {
+        long now = clock.getAsLong();
+        long until = now + nanos + burstToleranceNanos;
+        theoreticalArrivalTime.accumulateAndGet(until, (current, candidate) -> candidate - current > 0 ? candidate : current);
+    }
+}
@@ -0,0 +1,61 @@
+package com.project.credflow.sms;
+
+import com.project.credflow.exception.SmsThrottledException;
+import com.twilio.Twilio;
+import com.twilio.exception.ApiException;
+import com.twilio.rest.api.v2010.account.Message;
+import com.twilio.type.PhoneNumber;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "sms.gateway", havingValue = "twilio", matchIfMissing = true)
+@Slf4j
+public class TwilioSmsGateway implements SmsGateway {
+
+    // Twilio "Too Many Requests" error code; HTTP 429 is checked as well
+    private static final int TWILIO_TOO_MANY_REQUESTS = 20429;
+
+    @Value("${twilio.account-sid}")
+    private String accountSid;
+
+    @Value("${twilio.auth-token}")
+    private String authToken;
+
+    // Initialize Twilio client when the service starts
+    @PostConstruct
+    public void initTwilio() {
+        try {
+            Twilio.init(accountSid, authToken);
+            log.info("Twilio client initialized successfully with Account SID: {}", accountSid);
+        } catch (Exception e) {
+            log.error("Failed to initialize Twilio client: {}", e.getMessage(), e);
+            // Consider throwing an exception here if Twilio is critical
+        }
+    }
+
+    @Override
+    public String send(String fromNumber, String toNumber, String body) {
+        try {
+            Message message = Message.creator(new PhoneNumber(toNumber), new PhoneNumber(fromNumber), body).create();
+            return message.getSid();
+        } catch (ApiException e) {
+            if (isThrottled(e)) {
+                throw new SmsThrottledException("Twilio rate limit hit for sender " + fromNumber + ": " + e.getMessage());
+            }
+            log.error("Twilio API Error: {} - {}", e.getCode(), e.getMessage());
+            if (e.getMoreInfo() != null) {
+                log.error("Twilio More Info: {}", e.getMoreInfo());
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isThrottled(ApiException e) {
+        return (e.getCode() != null && e.getCode() == TWILIO_TOO_MANY_REQUESTS)
+                || (e.getStatusCode() != null && e.getStatusCode() == 429);
+    }
+}
@@ -0,0 +1,110 @@
+package com.project.credflow.template;
+
+import com.project.credflow.model.Account;
+import com.project.credflow.model.Invoice;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.temporal.ChronoUnit;
+
+/** {@code [Token]} placeholders used by email templates. */
+enum BracketField implements TemplateField {
+
+    CUSTOMER_NAME("CustomerName") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            if (values.user() != null && values.user().getFullName() != null) {
+                out.append(values.user().getFullName());
+            }
+            return true;
+        }
+    },
+    INVOICE_NUMBER("InvoiceNumber") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            out.append(values.invoice().getInvoiceNumber());
+            return true;
+        }
+    },
+    AMOUNT_DUE("AmountDue") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            appendAmount(out, values.invoice().getAmountDue());
+            return true;
+        }
+    },
+    DUE_DATE("DueDate") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            if (values.invoice().getDueDate() == null) {
+                return false;
+            }
+            out.append(values.invoice().getDueDate());
+            return true;
+        }
+    },
+    DAYS_OVERDUE("DaysOverdue") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            Invoice invoice = values.invoice();
+            long daysOverdue = 0;
+            if (invoice.getDueDate() != null && invoice.getDueDate().isBefore(values.today())) {
+                daysOverdue = ChronoUnit.DAYS.between(invoice.getDueDate(), values.today());
+            }
+            out.append(daysOverdue);
+            return true;
+        }
+    },
+    PORTAL_LINK("PortalLink") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            out.append("http://localhost:5173/customer/payments"); // Update link if needed
+            return true;
+        }
+    },
+    ACCOUNT_NUMBER("AccountNumber") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            Account account = values.invoice().getAccount();
+            if (account == null) {
+                return false;
+            }
+            out.append(account.getAccountNumber());
+            return true;
+        }
+    },
+    TOTAL_AMOUNT_DUE("TotalAmountDue") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            Account account = values.invoice().getAccount();
+            if (account == null) {
+                return false;
+            }
+            appendAmount(out, account.getCurrentBalance());
+            return true;
+        }
+    },
+    AMOUNT_PAID("AmountPaid") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            out.append("N/A");
+            return true;
+        }
+    };
+
+    private final String token;
+
+    BracketField(String token) {
+        this.token = token;
+    }
+
+    @Override
+    public String token() {
+        return token;
+    }
+
+    // Same output as String.format("%.2f", amount)
+    private static void appendAmount(StringBuilder out, BigDecimal amount) {
+        out.append(amount == null ? "null" : amount.setScale(2, RoundingMode.HALF_UP).toPlainString());
+    }
+}
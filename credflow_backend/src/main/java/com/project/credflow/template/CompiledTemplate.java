@@ -0,0 +1,94 @@
+package com.project.credflow.template;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A template parsed once into alternating literal and placeholder segments. Rendering walks
+ * the segments and appends into the caller's {@link StringBuilder}: one pass over the output,
+ * no intermediate strings, and nothing rescanned per placeholder.
+ */
+public final class CompiledTemplate {
+
+    // literals[i] precedes fields[i]; literals has one more entry than fields (the tail)
+    private final String[] literals;
+    private final TemplateField[] fields;
+    private final String[] rawTokens;
+    private final int literalLength;
+
+    private CompiledTemplate(String[] literals, TemplateField[] fields, String[] rawTokens) {
+        this.literals = literals;
+        this.fields = fields;
+        this.rawTokens = rawTokens;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static CompiledTemplate compile(String source, TemplateSyntax syntax) {
+        if (source == null) {
+            source = "";
+        }
+        List<String> literals = new ArrayList<>();
+        List<TemplateField> fields = new ArrayList<>();
+        List<String> rawTokens = new ArrayList<>();
+
+        String open = syntax.open();
+        String close = syntax.close();
+        StringBuilder literal = new StringBuilder();
+        int pos = 0;
+        while (pos < source.length()) {
+            int start = source.indexOf(open, pos);
+            if (start < 0) {
+                break;
+            }
+            int end = source.indexOf(close, start + open.length());
+            if (end < 0) {
+                break;
+            }
+            String token = source.substring(start + open.length(), end);
+            TemplateField field = syntax.field(token);
+            if (field == null) {
+                // Unknown placeholder: keep it as text and rescan from the next character
+                literal.append(source, pos, start + 1);
+                pos = start + 1;
+                continue;
+            }
+            literal.append(source, pos, start);
+            literals.add(literal.toString());
+            literal.setLength(0);
+            fields.add(field);
+            rawTokens.add(source.substring(start, end + close.length()));
+            pos = end + close.length();
+        }
+        literal.append(source, pos, source.length());
+        literals.add(literal.toString());
+
+        return new CompiledTemplate(literals.toArray(new String[0]), fields.toArray(new TemplateField[0]),
+                rawTokens.toArray(new String[0]));
+    }
+
+    /** Appends the rendered template to {@code out}. */
+    public void renderTo(StringBuilder out, TemplateValues values) {
+        for (int i = 0; i < fields.length; i++) {
+            out.append(literals[i]);
+            if (!fields[i].appendTo(out, values)) {
+                out.append(rawTokens[i]); // Value unavailable: leave the placeholder as written
+            }
+        }
+        out.append(literals[fields.length]);
+    }
+
+    public String render(TemplateValues values) {
+        StringBuilder out = new StringBuilder(estimatedLength());
+        renderTo(out, values);
+        return out.toString();
+    }
+
+    /** Literal text plus a typical width per placeholder, for sizing reusable builders. */
+    public int estimatedLength() {
+        return literalLength + 16 * fields.length;
+    }
+}
@@ -0,0 +1,59 @@
+package com.project.credflow.template;
+
+import com.project.credflow.model.Account;
+
+/** {@code {{token}}} placeholders used by SMS templates; missing values render as "N/A". */
+enum MustacheField implements TemplateField {
+
+    INVOICE_NUMBER("invoiceNumber") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            return appendOrNa(out, values.invoice().getInvoiceNumber());
+        }
+    },
+    AMOUNT_DUE("amountDue") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            return appendOrNa(out, values.invoice().getAmountDue() != null ? values.invoice().getAmountDue().toPlainString() : null);
+        }
+    },
+    DUE_DATE("dueDate") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            if (values.invoice().getDueDate() == null) {
+                return appendOrNa(out, null);
+            }
+            out.append(values.invoice().getDueDate());
+            return true;
+        }
+    },
+    USER_NAME("userName") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            return appendOrNa(out, values.user() != null ? values.user().getFullName() : null);
+        }
+    },
+    ACCOUNT_NUMBER("accountNumber") {
+        @Override
+        public boolean appendTo(StringBuilder out, TemplateValues values) {
+            Account account = values.invoice().getAccount();
+            return appendOrNa(out, account != null ? account.getAccountNumber() : null);
+        }
+    };
+
+    private final String token;
+
+    MustacheField(String token) {
+        this.token = token;
+    }
+
+    @Override
+    public String token() {
+        return token;
+    }
+
+    private static boolean appendOrNa(StringBuilder out, String value) {
+        out.append(value != null ? value : "N/A");
+        return true;
+    }
+}
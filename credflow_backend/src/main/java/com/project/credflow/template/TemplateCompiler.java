@@ -0,0 +1,49 @@
+package com.project.credflow.template;
+
+import com.project.credflow.model.NotificationTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles notification templates and caches the result per template id and syntax. An entry
+ * is reused as long as the template's {@code updatedAt} is unchanged, so an edited template is
+ * recompiled on its next use without any explicit eviction.
+ */
+@Component
+public class TemplateCompiler {
+
+    public record CompiledNotification(CompiledTemplate subject, CompiledTemplate body) {
+    }
+
+    private record CacheKey(UUID templateId, TemplateSyntax syntax) {
+    }
+
+    private record CacheEntry(LocalDateTime updatedAt, CompiledNotification compiled) {
+    }
+
+    private final Map<CacheKey, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    public CompiledNotification compile(NotificationTemplate template, TemplateSyntax syntax) {
+        if (template.getTemplateId() == null) {
+            return compileUncached(template, syntax); // Not persisted yet, nothing stable to key on
+        }
+        CacheKey key = new CacheKey(template.getTemplateId(), syntax);
+        CacheEntry entry = cache.get(key);
+        if (entry == null || !Objects.equals(entry.updatedAt(), template.getUpdatedAt())) {
+            entry = new CacheEntry(template.getUpdatedAt(), compileUncached(template, syntax));
+            cache.put(key, entry);
+        }
+        return entry.compiled();
+    }
+
+    private static CompiledNotification compileUncached(NotificationTemplate template, TemplateSyntax syntax) {
+        return new CompiledNotification(
+                CompiledTemplate.compile(template.getSubject(), syntax),
+                CompiledTemplate.compile(template.getBody(), syntax));
+    }
+}
@@ -0,0 +1,14 @@
+package com.project.credflow.template;
+
+/** A placeholder that can be resolved against {@link TemplateValues}. */
+interface TemplateField {
+
+    /** The placeholder name, without delimiters. */
+    String token();
+
+    /**
+     * Appends the value to {@code out}. Returns false, without appending, when the value is
+     * unavailable and the placeholder should be left in the output as written.
+     */
+    boolean appendTo(StringBuilder out, TemplateValues values);
+}
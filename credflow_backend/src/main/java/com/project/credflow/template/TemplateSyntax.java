@@ -0,0 +1,45 @@
+package com.project.credflow.template;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Placeholder syntaxes understood by {@link CompiledTemplate}. */
+public enum TemplateSyntax {
+
+    /** {@code [CustomerName]} - email templates. */
+    BRACKET("[", "]", fieldsByToken(BracketField.values())),
+
+    /** {@code {{userName}}} - SMS templates. */
+    MUSTACHE("{{", "}}", fieldsByToken(MustacheField.values()));
+
+    private final String open;
+    private final String close;
+    private final Map<String, TemplateField> fields;
+
+    TemplateSyntax(String open, String close, Map<String, TemplateField> fields) {
+        this.open = open;
+        this.close = close;
+        this.fields = fields;
+    }
+
+    String open() {
+        return open;
+    }
+
+    String close() {
+        return close;
+    }
+
+    /** Null for tokens this syntax doesn't know; those stay in the output verbatim. */
+    TemplateField field(String token) {
+        return fields.get(token);
+    }
+
+    private static Map<String, TemplateField> fieldsByToken(TemplateField[] values) {
+        Map<String, TemplateField> map = new HashMap<>();
+        for (TemplateField field : values) {
+            map.put(field.token(), field);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,10 @@
+package com.project.credflow.template;
+
+import com.project.credflow.model.Invoice;
+import com.project.credflow.model.User;
+
+import java.time.LocalDate;
+
+/** What a notification is rendered for. {@code user} may be null. */
+public record TemplateValues(Invoice invoice, User user, LocalDate today) {
+}
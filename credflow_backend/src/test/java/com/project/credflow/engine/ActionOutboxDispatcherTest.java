@@ -0,0 +1,199 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.enums.NotificationChannel;
+import com.project.credflow.enums.OutboxStatus;
+import com.project.credflow.enums.RuleActionType;
+import com.project.credflow.exception.ActionExecutionException;
+import com.project.credflow.model.DunningActionOutbox;
+import com.project.credflow.model.DunningRule;
+import com.project.credflow.model.Invoice;
+import com.project.credflow.repository.DunningActionOutboxRepository;
+import com.project.credflow.service.inter.RuleActionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActionOutboxDispatcherTest {
+
+    @Mock
+    private DunningActionOutboxRepository outboxRepository;
+
+    @Mock
+    private RuleActionService ruleActionService;
+
+    @Mock
+    private NotificationDispatcher notificationDispatcher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ActionOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new ActionOutboxDispatcher(outboxRepository, ruleActionService, notificationDispatcher,
+                new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 3);
+        ReflectionTestUtils.setField(dispatcher, "emailBatchSize", 50);
+        ReflectionTestUtils.setField(dispatcher, "smsBatchSize", 3);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffMs", 30_000L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffMs", 3_600_000L);
+        ReflectionTestUtils.setField(dispatcher, "claimTimeoutMs", 600_000L);
+        // Run dispatch tasks on the calling thread
+        lenient().when(notificationDispatcher.submit(any(NotificationChannel.class), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    @Test
+    void drain_DueEntry_ClaimedDispatchedAndMarkedDoneUnderItsClaim() {
+        // Given
+        DunningActionOutbox entry = entry(RuleActionType.SEND_SMS, 0);
+        when(outboxRepository.findDueForDispatch(any(), any())).thenReturn(List.of(entry));
+        when(outboxRepository.findForDispatch(entry.getOutboxId())).thenReturn(Optional.of(entry));
+        when(outboxRepository.markDoneIfClaimed(any(), any(), any())).thenReturn(1);
+
+        // When
+        dispatcher.drain();
+
+        // Then
+        assertEquals(OutboxStatus.IN_PROGRESS, entry.getStatus());
+        assertNotNull(entry.getClaimedAt());
+        verify(ruleActionService).dispatchAction(entry.getDunningRule(), entry.getInvoice());
+        verify(outboxRepository).markDoneIfClaimed(eq(entry.getOutboxId()), eq(entry.getClaimedAt()), any());
+    }
+
+    @Test
+    void drain_ClaimReleasedBeforeDispatch_NotSentAndNothingRecorded() {
+        // Given: by the time the entry is loaded another node has re-claimed it
+        DunningActionOutbox entry = entry(RuleActionType.SEND_SMS, 0);
+        DunningActionOutbox reclaimed = entry(RuleActionType.SEND_SMS, 0);
+        reclaimed.setOutboxId(entry.getOutboxId());
+        reclaimed.setStatus(OutboxStatus.IN_PROGRESS);
+        reclaimed.setClaimedAt(LocalDateTime.now().plusMinutes(11));
+        when(outboxRepository.findDueForDispatch(any(), any())).thenReturn(List.of(entry));
+        when(outboxRepository.findForDispatch(entry.getOutboxId())).thenReturn(Optional.of(reclaimed));
+
+        // When
+        dispatcher.drain();
+
+        // Then
+        verify(ruleActionService, never()).dispatchAction(any(), any());
+        verify(outboxRepository, never()).markDoneIfClaimed(any(), any(), any());
+        verify(outboxRepository, never()).markFailedIfClaimed(any(), any(), any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void drain_ClaimReleasedWhileSending_OutcomeNotOverwritten() {
+        // Given: the conditional update matches nothing
+        DunningActionOutbox entry = entry(RuleActionType.SEND_SMS, 0);
+        when(outboxRepository.findDueForDispatch(any(), any())).thenReturn(List.of(entry));
+        when(outboxRepository.findForDispatch(entry.getOutboxId())).thenReturn(Optional.of(entry));
+        when(outboxRepository.markDoneIfClaimed(any(), any(), any())).thenReturn(0);
+
+        // When
+        dispatcher.drain();
+
+        // Then: no unconditional write follows
+        verify(outboxRepository).markDoneIfClaimed(eq(entry.getOutboxId()), eq(entry.getClaimedAt()), any());
+        verify(outboxRepository, never()).save(any());
+    }
+
+    @Test
+    void drain_ActionFails_RescheduledWithBackoff() {
+        // Given
+        DunningActionOutbox entry = entry(RuleActionType.SEND_SMS, 0);
+        when(outboxRepository.findDueForDispatch(any(), any())).thenReturn(List.of(entry));
+        when(outboxRepository.findForDispatch(entry.getOutboxId())).thenReturn(Optional.of(entry));
+        doThrow(new ActionExecutionException("throttled")).when(ruleActionService).dispatchAction(any(), any());
+        when(outboxRepository.markFailedIfClaimed(any(), any(), any(), anyInt(), any(), any())).thenReturn(1);
+        LocalDateTime before = LocalDateTime.now();
+
+        // When
+        dispatcher.drain();
+
+        // Then
+        ArgumentCaptor<LocalDateTime> nextAttemptAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxRepository).markFailedIfClaimed(eq(entry.getOutboxId()), eq(entry.getClaimedAt()),
+                eq(OutboxStatus.PENDING), eq(1), nextAttemptAt.capture(), eq("throttled"));
+        assertFalse(nextAttemptAt.getValue().isBefore(before.plusSeconds(30)));
+    }
+
+    @Test
+    void drain_LastAttemptFails_DeadLettered() {
+        // Given
+        DunningActionOutbox entry = entry(RuleActionType.SEND_SMS, 2);
+        when(outboxRepository.findDueForDispatch(any(), any())).thenReturn(List.of(entry));
+        when(outboxRepository.findForDispatch(entry.getOutboxId())).thenReturn(Optional.of(entry));
+        doThrow(new ActionExecutionException("invalid number")).when(ruleActionService).dispatchAction(any(), any());
+        when(outboxRepository.markFailedIfClaimed(any(), any(), any(), anyInt(), any(), any())).thenReturn(1);
+
+        // When
+        dispatcher.drain();
+
+        // Then
+        verify(outboxRepository).markFailedIfClaimed(eq(entry.getOutboxId()), eq(entry.getClaimedAt()),
+                eq(OutboxStatus.DEAD_LETTER), eq(3), any(), anyString());
+    }
+
+    @Test
+    void drain_SmsCapSkipsPartOfFullPage_KeepsDraining() {
+        // Given: a full page of three SMS, only two of which fit in one batch
+        ReflectionTestUtils.setField(dispatcher, "smsBatchSize", 2);
+        DunningActionOutbox first = entry(RuleActionType.SEND_SMS, 0);
+        DunningActionOutbox second = entry(RuleActionType.SEND_SMS, 0);
+        DunningActionOutbox third = entry(RuleActionType.SEND_SMS, 0);
+        when(outboxRepository.findDueForDispatch(any(), any()))
+                .thenReturn(List.of(first, second, third))
+                .thenReturn(List.of(third));
+        for (DunningActionOutbox entry : List.of(first, second, third)) {
+            when(outboxRepository.findForDispatch(entry.getOutboxId())).thenReturn(Optional.of(entry));
+        }
+        when(outboxRepository.markDoneIfClaimed(any(), any(), any())).thenReturn(1);
+
+        // When
+        dispatcher.drain();
+
+        // Then
+        verify(outboxRepository, times(2)).findDueForDispatch(any(), any());
+        verify(ruleActionService, times(3)).dispatchAction(any(), any());
+    }
+
+    private static DunningActionOutbox entry(RuleActionType actionType, int attempts) {
+        DunningRule rule = new DunningRule();
+        rule.setRuleId(UUID.randomUUID());
+        rule.setActionType(actionType);
+        Invoice invoice = new Invoice();
+        invoice.setInvoiceId(UUID.randomUUID());
+        DunningActionOutbox entry = new DunningActionOutbox();
+        entry.setOutboxId(UUID.randomUUID());
+        entry.setDunningRule(rule);
+        entry.setInvoice(invoice);
+        entry.setActionType(actionType);
+        entry.setAttempts(attempts);
+        entry.setNextAttemptAt(LocalDateTime.now());
+        return entry;
+    }
+}
@@ -0,0 +1,227 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.enums.AccountType;
+import com.project.credflow.enums.InvoiceStatus;
+import com.project.credflow.enums.PlanType;
+import com.project.credflow.enums.RuleActionType;
+import com.project.credflow.enums.RuleConditionType;
+import com.project.credflow.model.Account;
+import com.project.credflow.model.DunningRule;
+import com.project.credflow.model.Invoice;
+import com.project.credflow.model.Plan;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledRuleIndexTest {
+
+    private LocalDate today;
+    private Account postpaidAccount;
+
+    @BeforeEach
+    void setUp() {
+        today = LocalDate.of(2025, 6, 15);
+
+        Plan postpaidPlan = new Plan();
+        postpaidPlan.setPlanType(PlanType.POSTPAID);
+
+        postpaidAccount = new Account();
+        postpaidAccount.setAccountId(UUID.randomUUID());
+        postpaidAccount.setAccountType(AccountType.BROADBAND);
+        postpaidAccount.setPlan(postpaidPlan);
+    }
+
+    @Test
+    void matchingRules_DaysOverdue_ReturnsSatisfiedThresholdsInPriorityOrder() {
+        // Given: priority order is 30d, 7d, 60d (list position)
+        DunningRule thirtyDays = rule("30d", PlanType.ALL, RuleConditionType.DAYS_OVERDUE, 30);
+        DunningRule sevenDays = rule("7d", PlanType.ALL, RuleConditionType.DAYS_OVERDUE, 7);
+        DunningRule sixtyDays = rule("60d", PlanType.ALL, RuleConditionType.DAYS_OVERDUE, 60);
+        CompiledRuleIndex index = CompiledRuleIndex.compile(List.of(thirtyDays, sevenDays, sixtyDays), today);
+
+        // When
+        List<DunningRule> matches = toList(index.matchingRules(invoice(InvoiceStatus.OVERDUE, today.minusDays(31), "10.00")));
+
+        // Then
+        assertEquals(List.of(thirtyDays, sevenDays), matches);
+    }
+
+    @Test
+    void matchingRules_DaysOverdueOnPendingInvoice_ReturnsNothing() {
+        // Given
+        DunningRule sevenDays = rule("7d", PlanType.ALL, RuleConditionType.DAYS_OVERDUE, 7);
+        CompiledRuleIndex index = CompiledRuleIndex.compile(List.of(sevenDays), today);
+
+        // When
+        List<DunningRule> matches = toList(index.matchingRules(invoice(InvoiceStatus.PENDING, today.minusDays(10), "10.00")));
+
+        // Then
+        assertTrue(matches.isEmpty());
+    }
+
+    @Test
+    void matchingRules_DaysUntilDue_MatchesWhenWithinWindow() {
+        // Given
+        DunningRule threeDays = rule("3d", PlanType.POSTPAID, RuleConditionType.DAYS_UNTIL_DUE, 3);
+        DunningRule oneDay = rule("1d", PlanType.POSTPAID, RuleConditionType.DAYS_UNTIL_DUE, 1);
+        CompiledRuleIndex index = CompiledRuleIndex.compile(List.of(oneDay, threeDays), today);
+
+        // When
+        List<DunningRule> twoDaysOut = toList(index.matchingRules(invoice(InvoiceStatus.PENDING, today.plusDays(2), "10.00")));
+        List<DunningRule> sameDay = toList(index.matchingRules(invoice(InvoiceStatus.PENDING, today, "10.00")));
+
+        // Then
+        assertEquals(List.of(threeDays), twoDaysOut);
+        assertEquals(List.of(oneDay, threeDays), sameDay);
+    }
+
+    @Test
+    void matchingRules_MixedConditions_MergedByPriority() {
+        // Given
+        DunningRule amount = rule("amount", PlanType.ALL, RuleConditionType.MIN_AMOUNT_DUE, null);
+        amount.setConditionValueDecimal(new BigDecimal("100.00"));
+        DunningRule broadband = rule("broadband", PlanType.POSTPAID, RuleConditionType.ACCOUNT_TYPE, null);
+        broadband.setConditionValueString("broadband");
+        DunningRule overdue = rule("overdue", PlanType.ALL, RuleConditionType.DAYS_OVERDUE, 1);
+        CompiledRuleIndex index = CompiledRuleIndex.compile(List.of(broadband, overdue, amount), today);
+
+        // When
+        List<DunningRule> matches = toList(index.matchingRules(invoice(InvoiceStatus.OVERDUE, today.minusDays(5), "150.00")));
+
+        // Then
+        assertEquals(List.of(broadband, overdue, amount), matches);
+    }
+
+    @Test
+    void matchingRules_ManyThresholds_EveryPrefixInPriorityOrder() {
+        // Given: 37 thresholds whose priority order is unrelated to their threshold order
+        List<DunningRule> rules = new ArrayList<>();
+        for (int i = 0; i < 37; i++) {
+            rules.add(rule("r" + i, PlanType.ALL, RuleConditionType.DAYS_OVERDUE, (i * 17) % 37));
+        }
+        CompiledRuleIndex index = CompiledRuleIndex.compile(rules, today);
+
+        for (int days = -1; days <= 37; days++) {
+            // When
+            List<DunningRule> matches = toList(index.matchingRules(invoice(InvoiceStatus.OVERDUE, today.minusDays(days), "10.00")));
+
+            // Then
+            int daysOverdue = days;
+            assertEquals(rules.stream().filter(r -> r.getConditionValueInteger() <= daysOverdue).toList(), matches);
+        }
+    }
+
+    @Test
+    void matchingRules_PlanTypeMismatch_SkipsRule() {
+        // Given
+        DunningRule prepaidOnly = rule("prepaid", PlanType.PREPAID, RuleConditionType.DAYS_OVERDUE, 1);
+        CompiledRuleIndex index = CompiledRuleIndex.compile(List.of(prepaidOnly), today);
+
+        // When
+        List<DunningRule> matches = toList(index.matchingRules(invoice(InvoiceStatus.OVERDUE, today.minusDays(5), "10.00")));
+
+        // Then
+        assertTrue(matches.isEmpty());
+    }
+
+    @Test
+    void compile_RuleWithoutConditionValue_IsNeverMatched() {
+        // Given
+        DunningRule incomplete = rule("incomplete", PlanType.ALL, RuleConditionType.DAYS_OVERDUE, null);
+        CompiledRuleIndex index = CompiledRuleIndex.compile(List.of(incomplete), today);
+
+        // When
+        List<DunningRule> matches = toList(index.matchingRules(invoice(InvoiceStatus.OVERDUE, today.minusDays(90), "10.00")));
+
+        // Then
+        assertTrue(matches.isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void nextEvaluationDate_UnreachedDaysOverdueThreshold_ReturnsDateItIsReached() {
+        // Given
+        DunningRule sevenDays = rule("7d", PlanType.ALL, RuleConditionType.DAYS_OVERDUE, 7);
+        DunningRule thirtyDays = rule("30d", PlanType.ALL, RuleConditionType.DAYS_OVERDUE, 30);
+        CompiledRuleIndex index = CompiledRuleIndex.compile(List.of(thirtyDays, sevenDays), today);
+        Invoice invoice = invoice(InvoiceStatus.OVERDUE, today.minusDays(10), "10.00");
+        ExecutedActionSet executed = new ExecutedActionSet(1);
+        executed.add(sevenDays.getRuleId(), invoice.getInvoiceId());
+
+        // When
+        LocalDate next = index.nextEvaluationDate(invoice, executed);
+
+        // Then: 30 days overdue is reached 20 days from today
+        assertEquals(today.plusDays(20), next);
+    }
+
+    @Test
+    void nextEvaluationDate_MatchingRuleNotYetExecuted_ReturnsTomorrow() {
+        // Given
+        DunningRule threeDays = rule("3d", PlanType.POSTPAID, RuleConditionType.DAYS_UNTIL_DUE, 3);
+        DunningRule oneDay = rule("1d", PlanType.POSTPAID, RuleConditionType.DAYS_UNTIL_DUE, 1);
+        CompiledRuleIndex index = CompiledRuleIndex.compile(List.of(oneDay, threeDays), today);
+        Invoice invoice = invoice(InvoiceStatus.PENDING, today.plusDays(1), "10.00");
+        ExecutedActionSet executed = new ExecutedActionSet(1);
+        executed.add(oneDay.getRuleId(), invoice.getInvoiceId());
+
+        // When
+        LocalDate next = index.nextEvaluationDate(invoice, executed);
+
+        // Then: the 3-day reminder still matches and runs on the next night
+        assertEquals(today.plusDays(1), next);
+    }
+
+    @Test
+    void nextEvaluationDate_AllThresholdsExecuted_ReturnsNoFurtherEvaluation() {
+        // Given
+        DunningRule sevenDays = rule("7d", PlanType.ALL, RuleConditionType.DAYS_OVERDUE, 7);
+        DunningRule minAmount = rule("amount", PlanType.ALL, RuleConditionType.MIN_AMOUNT_DUE, null);
+        minAmount.setConditionValueDecimal(new BigDecimal("500.00"));
+        CompiledRuleIndex index = CompiledRuleIndex.compile(List.of(sevenDays, minAmount), today);
+        Invoice invoice = invoice(InvoiceStatus.OVERDUE, today.minusDays(10), "10.00");
+        ExecutedActionSet executed = new ExecutedActionSet(1);
+        executed.add(sevenDays.getRuleId(), invoice.getInvoiceId());
+
+        // When
+        LocalDate next = index.nextEvaluationDate(invoice, executed);
+
+        // Then: the amount rule can only match after the invoice changes
+        assertEquals(CompiledRuleIndex.NO_FURTHER_EVALUATION, next);
+    }
+
+    private DunningRule rule(String name, PlanType appliesTo, RuleConditionType conditionType, Integer value) {
+        DunningRule rule = new DunningRule();
+        rule.setRuleId(UUID.randomUUID());
+        rule.setRuleName(name);
+        rule.setPriority(1);
+        rule.setAppliesToPlanType(appliesTo);
+        rule.setConditionType(conditionType);
+        rule.setConditionValueInteger(value);
+        rule.setActionType(RuleActionType.SEND_EMAIL);
+        return rule;
+    }
+
+    private Invoice invoice(InvoiceStatus status, LocalDate dueDate, String amountDue) {
+        Invoice invoice = new Invoice();
+        invoice.setInvoiceId(UUID.randomUUID());
+        invoice.setAccount(postpaidAccount);
+        invoice.setStatus(status);
+        invoice.setDueDate(dueDate);
+        invoice.setAmountDue(new BigDecimal(amountDue));
+        return invoice;
+    }
+
+    private static List<DunningRule> toList(Iterable<DunningRule> rules) {
+        List<DunningRule> list = new ArrayList<>();
+        rules.forEach(list::add);
+        return list;
+    }
+}
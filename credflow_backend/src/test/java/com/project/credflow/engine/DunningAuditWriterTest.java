@@ -0,0 +1,137 @@
+package com.project.credflow.engine;
+
+import com.project.credflow.enums.RuleActionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DunningAuditWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private DunningAuditWriter auditWriter;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(auditWriter, "batchSize", 500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(auditWriter);
+    }
+
+    @Test
+    void record_InTransaction_WrittenAsOneBatchBeforeCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        auditWriter.recordExecution(UUID.randomUUID(), UUID.randomUUID());
+        auditWriter.recordExecution(UUID.randomUUID(), UUID.randomUUID());
+        auditWriter.recordAction(RuleActionType.SEND_EMAIL, UUID.randomUUID());
+        verifyNoInteractions(jdbcTemplate);
+
+        // When
+        commit();
+
+        // Then
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO dunning_execution_logs"), argThatSize(2));
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO dunning_action_logs"), argThatSize(1));
+        verifyNoMoreInteractions(jdbcTemplate);
+        assertNull(TransactionSynchronizationManager.getResource(auditWriter));
+    }
+
+    @Test
+    void record_TransactionRolledBack_NothingWritten() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        auditWriter.recordExecution(UUID.randomUUID(), UUID.randomUUID());
+        auditWriter.enqueueAction(UUID.randomUUID(), UUID.randomUUID(), RuleActionType.SEND_SMS);
+
+        // When
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        // Then
+        verifyNoInteractions(jdbcTemplate);
+        assertNull(TransactionSynchronizationManager.getResource(auditWriter));
+    }
+
+    @Test
+    void record_OutsideTransaction_WrittenAtOnce() {
+        // When
+        auditWriter.recordAction(RuleActionType.SEND_SMS, UUID.randomUUID());
+
+        // Then
+        verify(jdbcTemplate).update(startsWith("INSERT INTO dunning_action_logs"), any(Object[].class));
+    }
+
+    @Test
+    void flush_BatchFails_NotRetriedAndCommitRefused() {
+        // Given: the batch may have partly applied, so its rows must not be written again
+        ReflectionTestUtils.setField(auditWriter, "batchSize", 2);
+        TransactionSynchronizationManager.initSynchronization();
+        doThrow(new DuplicateKeyException("duplicate log_id")).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        auditWriter.recordExecution(UUID.randomUUID(), UUID.randomUUID());
+
+        // When
+        assertThrows(DuplicateKeyException.class, () -> auditWriter.recordExecution(UUID.randomUUID(), UUID.randomUUID()));
+
+        // Then
+        assertThrows(IllegalStateException.class, () -> auditWriter.recordExecution(UUID.randomUUID(), UUID.randomUUID()));
+        assertThrows(IllegalStateException.class, this::commit);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void record_AfterCommitFlush_Rejected() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        auditWriter.recordExecution(UUID.randomUUID(), UUID.randomUUID());
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+        }
+
+        // When / Then: e.g. an afterCommit callback, whose row would otherwise be silently dropped
+        assertThrows(IllegalStateException.class, () -> auditWriter.recordAction(RuleActionType.SEND_SMS, UUID.randomUUID()));
+    }
+
+    private void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            synchronization.beforeCommit(false);
+        }
+        for (TransactionSynchronization synchronization : synchronizations) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+    }
+
+    private static List<Object[]> argThatSize(int size) {
+        return argThat(rows -> rows.size() == size);
+    }
+}
@@ -0,0 +1,51 @@
+package com.project.credflow.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentileNanos_Empty_ReturnsZero() {
+        // Given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // When / Then
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileNanos(0.99));
+    }
+
+    @Test
+    void percentileNanos_UniformSamples_WithinFivePercent() {
+        // Given: 1..1000 microseconds
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+
+        // When
+        long p50 = histogram.percentileNanos(0.5);
+        long p99 = histogram.percentileNanos(0.99);
+
+        // Then
+        assertEquals(1000, histogram.count());
+        assertEquals(500_000, p50, 500_000 * 0.05);
+        assertEquals(990_000, p99, 990_000 * 0.05);
+    }
+
+    @Test
+    void percentileNanos_SlowOutlier_OnlyMovesTail() {
+        // Given: 99 fast invoices and one that took 2 seconds
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(200_000);
+        }
+        histogram.record(2_000_000_000L);
+
+        // When / Then
+        assertEquals(200_000, histogram.percentileNanos(0.5), 200_000 * 0.05);
+        assertEquals(200_000, histogram.percentileNanos(0.99), 200_000 * 0.05);
+        assertEquals(2_000_000_000L, histogram.percentileNanos(1.0), 2_000_000_000L * 0.05);
+    }
+}
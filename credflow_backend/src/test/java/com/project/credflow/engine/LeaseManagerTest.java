@@ -0,0 +1,119 @@
+package com.project.credflow.engine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LeaseManagerTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private LeaseManager leaseManager;
+
+    @BeforeEach
+    void setUp() {
+        leaseManager = new LeaseManager(jdbcTemplate, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(leaseManager, "nodeId", "node-a");
+        ReflectionTestUtils.setField(leaseManager, "ttlMs", 60_000L);
+    }
+
+    @Test
+    void tryAcquire_LeaseFreeOrExpired_HeldWithNewFencingToken() {
+        // Given
+        when(jdbcTemplate.update(startsWith("INSERT IGNORE INTO engine_leases"), any(SqlParameterSource.class))).thenReturn(0);
+        when(jdbcTemplate.update(startsWith("UPDATE engine_leases SET owner_id = :ownerId"), any(SqlParameterSource.class))).thenReturn(1);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT fencing_token"), any(SqlParameterSource.class), eq(Long.class))).thenReturn(7L);
+
+        // When
+        Optional<Lease> lease = leaseManager.tryAcquire("dunning-partition-3");
+
+        // Then
+        assertEquals(Optional.of(new Lease("dunning-partition-3", "node-a", 7L)), lease);
+        assertTrue(leaseManager.isHeld(lease.get()));
+    }
+
+    @Test
+    void tryAcquire_HeldByLiveNode_ReturnsEmpty() {
+        // Given
+        when(jdbcTemplate.update(startsWith("INSERT IGNORE INTO engine_leases"), any(SqlParameterSource.class))).thenReturn(0);
+        when(jdbcTemplate.update(startsWith("UPDATE engine_leases SET owner_id = :ownerId"), any(SqlParameterSource.class))).thenReturn(0);
+
+        // When
+        Optional<Lease> lease = leaseManager.tryAcquire("dunning-partition-3");
+
+        // Then
+        assertTrue(lease.isEmpty());
+        verify(jdbcTemplate, never()).queryForObject(any(String.class), any(SqlParameterSource.class), eq(Long.class));
+    }
+
+    @Test
+    void heartbeat_LeaseTakenOver_NoLongerHeld() {
+        // Given
+        Lease lease = acquire("dunning-engine", 4L);
+        when(jdbcTemplate.update(startsWith("UPDATE engine_leases SET heartbeat_at"), any(SqlParameterSource.class))).thenReturn(0);
+
+        // When
+        ReflectionTestUtils.invokeMethod(leaseManager, "renewAll");
+
+        // Then
+        assertFalse(leaseManager.isHeld(lease));
+    }
+
+    @Test
+    void heartbeat_DatabaseError_StillHeldUntilExpiry() {
+        // Given
+        Lease lease = acquire("dunning-engine", 4L);
+        when(jdbcTemplate.update(startsWith("UPDATE engine_leases SET heartbeat_at"), any(SqlParameterSource.class)))
+                .thenThrow(new QueryTimeoutException("lock wait timeout"));
+
+        // When
+        ReflectionTestUtils.invokeMethod(leaseManager, "renewAll");
+
+        // Then
+        assertTrue(leaseManager.isHeld(lease));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void currentHolder_NoLiveOwner_ReturnsEmpty() {
+        // Given: released or expired leases are filtered out by the query
+        when(jdbcTemplate.query(startsWith("SELECT owner_id, fencing_token"), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of());
+
+        // When
+        Optional<Lease> holder = leaseManager.currentHolder("dunning-engine");
+
+        // Then
+        assertTrue(holder.isEmpty());
+    }
+
+    private Lease acquire(String leaseName, long fencingToken) {
+        when(jdbcTemplate.update(startsWith("INSERT IGNORE INTO engine_leases"), any(SqlParameterSource.class))).thenReturn(0);
+        when(jdbcTemplate.update(startsWith("UPDATE engine_leases SET owner_id = :ownerId"), any(SqlParameterSource.class))).thenReturn(1);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT fencing_token"), any(SqlParameterSource.class), eq(Long.class))).thenReturn(fencingToken);
+        return leaseManager.tryAcquire(leaseName).orElseThrow();
+    }
+}
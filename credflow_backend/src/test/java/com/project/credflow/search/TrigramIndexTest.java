@@ -0,0 +1,126 @@
+package com.project.credflow.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    @Test
+    void search_SubstringOfAnyField_MatchesIgnoringCase() {
+        // Given
+        TrigramIndex index = new TrigramIndex();
+        UUID asha = UUID.randomUUID();
+        UUID ravi = UUID.randomUUID();
+        index.put(asha, "Asha Rao", "asha.rao@example.com", "9876543210", List.of("ACC-1001"));
+        index.put(ravi, "Ravi Kumar", "ravi@example.com", "9123456780", List.of("ACC-2002", "ACC-3003"));
+
+        // When / Then
+        assertEquals(List.of(asha), index.search("RAO", 0, 10).customerIds());
+        assertEquals(List.of(ravi), index.search("3456", 0, 10).customerIds());
+        assertEquals(List.of(ravi), index.search("acc-300", 0, 10).customerIds());
+        assertEquals(2, index.search("example.com", 0, 10).total());
+        assertEquals(0, index.search("zzz", 0, 10).total());
+    }
+
+    @Test
+    void search_SharedTrigramsButNoSubstring_NoMatch() {
+        // Given: "abcab" has every trigram of "bcabc" but "bcabc" is not a substring of it
+        TrigramIndex index = new TrigramIndex();
+        index.put(UUID.randomUUID(), "abcab", null, null, List.of());
+
+        // When / Then
+        assertEquals(0, index.search("abcabc", 0, 10).total());
+        assertEquals(1, index.search("bcab", 0, 10).total());
+    }
+
+    @Test
+    void search_RanksExactThenPrefixThenWordThenAnywhere() {
+        // Given
+        TrigramIndex index = new TrigramIndex();
+        UUID anywhere = UUID.randomUUID();
+        UUID word = UUID.randomUUID();
+        UUID prefix = UUID.randomUUID();
+        UUID exact = UUID.randomUUID();
+        index.put(anywhere, "Amarnath", null, null, List.of());
+        index.put(word, "Priya Nath", null, null, List.of());
+        index.put(prefix, "Nathan", null, null, List.of());
+        index.put(exact, "Nath", null, null, List.of());
+
+        // When
+        TrigramIndex.Result result = index.search("nath", 0, 10);
+
+        // Then
+        assertEquals(List.of(exact, prefix, word, anywhere), result.customerIds());
+    }
+
+    @Test
+    void search_Paged_ReturnsRequestedSliceAndTotal() {
+        // Given: same score, so ordered by name
+        TrigramIndex index = new TrigramIndex();
+        UUID[] ids = new UUID[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+            index.put(ids[i], "Customer " + i, null, null, List.of());
+        }
+
+        // When
+        TrigramIndex.Result second = index.search("customer", 2, 2);
+
+        // Then
+        assertEquals(5, second.total());
+        assertEquals(List.of(ids[2], ids[3]), second.customerIds());
+    }
+
+    @Test
+    void put_SameCustomerAgain_ReplacesOldValues() {
+        // Given
+        TrigramIndex index = new TrigramIndex();
+        UUID customer = UUID.randomUUID();
+        index.put(customer, "Old Name", "old@example.com", null, List.of());
+
+        // When
+        index.put(customer, "New Name", "new@example.com", null, List.of());
+
+        // Then
+        assertEquals(0, index.search("old", 0, 10).total());
+        assertEquals(List.of(customer), index.search("new name", 0, 10).customerIds());
+        assertEquals(1, index.size());
+        assertEquals(1, index.retiredCount());
+    }
+
+    @Test
+    void search_ShortQuery_MatchesWordPrefixes() {
+        // Given
+        TrigramIndex index = new TrigramIndex();
+        UUID customer = UUID.randomUUID();
+        UUID jones = UUID.randomUUID();
+        index.put(customer, "Jo", null, "55", List.of());
+        index.put(jones, "Mary Jones", null, null, List.of());
+        index.put(UUID.randomUUID(), "Amit", null, null, List.of());
+        index.put(UUID.randomUUID(), "Tojo", null, "9551", List.of());
+
+        // When / Then: only words starting with the query, never mid-word
+        assertEquals(List.of(customer, jones), index.search("j", 0, 10).customerIds());
+        assertEquals(List.of(customer, jones), index.search("jo", 0, 10).customerIds());
+        assertEquals(List.of(customer), index.search("55", 0, 10).customerIds());
+    }
+
+    @Test
+    void search_ShortQuery_SkipsReindexedValues() {
+        // Given
+        TrigramIndex index = new TrigramIndex();
+        UUID customer = UUID.randomUUID();
+        index.put(customer, "Jo", null, null, List.of());
+
+        // When
+        index.put(customer, "Amit", null, null, List.of());
+
+        // Then
+        assertEquals(0, index.search("jo", 0, 10).total());
+        assertEquals(List.of(customer), index.search("am", 0, 10).customerIds());
+    }
+}
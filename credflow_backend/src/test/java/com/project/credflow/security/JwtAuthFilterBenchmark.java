@@ -0,0 +1,106 @@
+package com.project.credflow.security;
+
+import com.project.credflow.enums.RoleName;
+import com.project.credflow.repository.UserRepository;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link JwtAuthFilter} authenticating a request that carries the same token
+ * every time, as a logged-in browser does, with the verified-claims cache off
+ * ({@code claimsCacheSize=0}: signature check and JSON parse on every request) and on.
+ * The principal comes from {@link PrincipalCache} in both cases; the database is stubbed.
+ * <p>
+ * Not part of the test run. Run {@code main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp target/test-classes:target/classes:<test classpath> com.project.credflow.security.JwtAuthFilterBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-0123456789";
+    private static final String EMAIL = "asha@example.com";
+
+    @Param({"0", "10000"})
+    public int claimsCacheSize;
+
+    private JwtAuthFilter filter;
+    private MockHttpServletRequest request;
+    private final FilterChain chain = (req, res) -> {
+    };
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtUtil, "claimsCacheSize", claimsCacheSize);
+        jwtUtil.init();
+
+        PrincipalSnapshot principal = new PrincipalSnapshot(UUID.randomUUID(), EMAIL, "hash", "Asha Rao",
+                "9876543210", true, null, 1, RoleName.CUSTOMER);
+        PrincipalCache principalCache = new PrincipalCache(userRepository(principal));
+        ReflectionTestUtils.setField(principalCache, "ttlMs", TimeUnit.MINUTES.toMillis(5));
+        ReflectionTestUtils.setField(principalCache, "maxSize", 10_000);
+
+        filter = new JwtAuthFilter(jwtUtil, principalCache);
+        request = new MockHttpServletRequest("GET", "/api/profile");
+        request.addHeader("Authorization", "Bearer " + jwtUtil.generateToken(principal.toUser()));
+    }
+
+    @Benchmark
+    public Authentication authenticateRequest() throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        if (authentication == null) {
+            throw new IllegalStateException("Request was not authenticated");
+        }
+        return authentication;
+    }
+
+    // Answers findPrincipalByEmail only
+    private static UserRepository userRepository(PrincipalSnapshot principal) {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findPrincipalByEmail")) {
+                        return Optional.of(principal);
+                    }
+                    if (method.getName().equals("toString")) {
+                        return "UserRepository stub";
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtAuthFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
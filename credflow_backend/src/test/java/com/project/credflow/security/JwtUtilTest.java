@@ -0,0 +1,73 @@
+package com.project.credflow.security;
+
+import com.project.credflow.enums.RoleName;
+import com.project.credflow.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret-0123456789";
+
+    private JwtUtil jwtUtil;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = jwtUtil(SECRET, 60_000);
+        user = new PrincipalSnapshot(UUID.randomUUID(), "asha@example.com", "hash", "Asha Rao", null,
+                true, null, 1, RoleName.CUSTOMER).toUser();
+    }
+
+    @Test
+    void verify_SameTokenTwice_ParsedOnce() {
+        // Given
+        String token = jwtUtil.generateToken(user);
+
+        // When
+        Claims first = jwtUtil.verify(token);
+        Claims second = jwtUtil.verify(token);
+
+        // Then
+        assertEquals("asha@example.com", first.getSubject());
+        assertSame(first, second);
+        assertTrue(jwtUtil.isTokenFor(second, user));
+    }
+
+    @Test
+    void verify_TokenSignedWithOtherKey_ThrowsSignatureException() {
+        // Given
+        String forged = jwtUtil("other-secret-other-secret-other-secret-other-secret-012345", 60_000).generateToken(user);
+
+        // When / Then
+        assertThrows(SignatureException.class, () -> jwtUtil.verify(forged));
+    }
+
+    @Test
+    void verify_ExpiredToken_ThrowsExpiredJwtException() {
+        // Given
+        JwtUtil expiring = jwtUtil(SECRET, -1_000);
+        String token = expiring.generateToken(user);
+
+        // When / Then
+        assertThrows(ExpiredJwtException.class, () -> expiring.verify(token));
+        assertThrows(ExpiredJwtException.class, () -> expiring.verify(token));
+    }
+
+    private static JwtUtil jwtUtil(String secret, long expirationMs) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", secret);
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", expirationMs);
+        ReflectionTestUtils.setField(jwtUtil, "claimsCacheSize", 100);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+}
@@ -0,0 +1,81 @@
+package com.project.credflow.security;
+
+import com.project.credflow.enums.RoleName;
+import com.project.credflow.model.User;
+import com.project.credflow.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PrincipalCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private PrincipalCache principalCache;
+
+    private PrincipalSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(principalCache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(principalCache, "maxSize", 100);
+        snapshot = new PrincipalSnapshot(UUID.randomUUID(), "asha@example.com", "hash", "Asha Rao", "9876543210",
+                true, null, 1, RoleName.CUSTOMER);
+    }
+
+    @Test
+    void load_SecondRequest_ServedFromCacheAsNewUser() {
+        // Given
+        when(userRepository.findPrincipalByEmail("asha@example.com")).thenReturn(Optional.of(snapshot));
+
+        // When
+        User first = principalCache.load("asha@example.com");
+        User second = principalCache.load("asha@example.com");
+
+        // Then
+        verify(userRepository, times(1)).findPrincipalByEmail("asha@example.com");
+        assertNotSame(first, second);
+        assertEquals(snapshot.userId(), second.getUserId());
+        assertEquals("ROLE_CUSTOMER", second.getAuthorities().iterator().next().getAuthority());
+        assertNull(second.getProfilePicture());
+    }
+
+    @Test
+    void load_AfterInvalidate_ReadsAgain() {
+        // Given
+        when(userRepository.findPrincipalByEmail("asha@example.com")).thenReturn(Optional.of(snapshot));
+        principalCache.load("asha@example.com");
+
+        // When
+        principalCache.invalidate("asha@example.com");
+        principalCache.load("asha@example.com");
+
+        // Then
+        verify(userRepository, times(2)).findPrincipalByEmail("asha@example.com");
+    }
+
+    @Test
+    void load_UnknownEmail_ThrowsAndIsNotCached() {
+        // Given
+        when(userRepository.findPrincipalByEmail("ghost@example.com")).thenReturn(Optional.empty());
+
+        // When / Then
+        assertThrows(UsernameNotFoundException.class, () -> principalCache.load("ghost@example.com"));
+        assertThrows(UsernameNotFoundException.class, () -> principalCache.load("ghost@example.com"));
+        verify(userRepository, times(2)).findPrincipalByEmail("ghost@example.com");
+    }
+}
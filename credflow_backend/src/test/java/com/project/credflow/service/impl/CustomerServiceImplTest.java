@@ -1,19 +1,27 @@
 package com.project.credflow.service.impl;
 
 import com.project.credflow.dto.AccountDto;
+import com.project.credflow.dto.CustomerHistoryDto;
+import com.project.credflow.dto.HistoryPageDto;
+import com.project.credflow.dto.InvoiceDto;
 import com.project.credflow.enums.AccountStatus;
 import com.project.credflow.enums.AccountType;
 import com.project.credflow.exception.ResourceNotFoundException;
 import com.project.credflow.mapper.AccountMapper;
 import com.project.credflow.mapper.CustomerMapper;
+import com.project.credflow.mapper.DunningActionLogMapper;
 import com.project.credflow.mapper.InvoiceMapper;
+import com.project.credflow.mapper.NotificationLogMapper;
 import com.project.credflow.mapper.PaymentMapper;
 import com.project.credflow.model.Account;
 import com.project.credflow.model.Customer;
+import com.project.credflow.model.Invoice;
 import com.project.credflow.model.User;
 import com.project.credflow.repository.AccountRepository;
 import com.project.credflow.repository.CustomerRepository;
+import com.project.credflow.repository.DunningActionLogRepository;
 import com.project.credflow.repository.InvoiceRepository;
+import com.project.credflow.repository.NotificationLogRepository;
 import com.project.credflow.repository.PaymentRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,7 +29,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -59,6 +70,18 @@ class CustomerServiceImplTest {
     @Mock
     private PaymentMapper paymentMapper;
 
+    @Mock
+    private NotificationLogRepository notificationLogRepository;
+
+    @Mock
+    private DunningActionLogRepository dunningActionLogRepository;
+
+    @Mock
+    private NotificationLogMapper notificationLogMapper;
+
+    @Mock
+    private DunningActionLogMapper dunningActionLogMapper;
+
     @InjectMocks
     private CustomerServiceImpl customerService;
 
@@ -212,4 +235,109 @@ class CustomerServiceImplTest {
         verify(accountRepository).findByCustomer_CustomerId(testCustomer.getCustomerId());
         verify(accountMapper).toAccountDto(testAccount1);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getCustomerDetailedHistory_ManyInvoices_OneQueryPerEntityType() {
+        // Given: invoices come back from the database already sorted
+        UUID customerId = testCustomer.getCustomerId();
+        Invoice later = new Invoice();
+        later.setInvoiceId(UUID.randomUUID());
+        Invoice earlier = new Invoice();
+        earlier.setInvoiceId(UUID.randomUUID());
+        InvoiceDto laterDto = new InvoiceDto();
+        laterDto.setInvoiceId(later.getInvoiceId());
+        InvoiceDto earlierDto = new InvoiceDto();
+        earlierDto.setInvoiceId(earlier.getInvoiceId());
+        when(customerRepository.findById(customerId)).thenReturn(Optional.of(testCustomer));
+        when(accountRepository.findWithPlanByCustomerId(customerId)).thenReturn(Arrays.asList(testAccount1, testAccount2));
+        when(invoiceRepository.findByCustomerIdOrderByDueDateDesc(customerId)).thenReturn(Arrays.asList(later, earlier));
+        when(paymentRepository.findByCustomerIdOrderByCreatedAtDesc(customerId)).thenReturn(Collections.emptyList());
+        when(invoiceMapper.toInvoiceDto(later)).thenReturn(laterDto);
+        when(invoiceMapper.toInvoiceDto(earlier)).thenReturn(earlierDto);
+
+        // When
+        CustomerHistoryDto history = customerService.getCustomerDetailedHistory(customerId);
+
+        // Then
+        assertEquals(2, history.getAccounts().size());
+        assertEquals(List.of(laterDto, earlierDto), history.getInvoices());
+        assertTrue(history.getPayments().isEmpty());
+        verify(invoiceRepository).findByCustomerIdOrderByDueDateDesc(customerId);
+        verify(paymentRepository).findByCustomerIdOrderByCreatedAtDesc(customerId);
+        verify(invoiceRepository, never()).findByAccount_AccountId(any());
+        verify(paymentRepository, never()).findByInvoice_InvoiceId(any());
+    }
+
+    @Test
+    void getCustomerInvoicePage_MoreRowsThanSize_ReturnsCursorForNextPage() {
+        // Given: two invoices requested, the repository returns the extra third row
+        UUID customerId = testCustomer.getCustomerId();
+        ReflectionTestUtils.setField(customerService, "maxHistoryPageSize", 200);
+        Invoice first = new Invoice();
+        first.setInvoiceId(UUID.randomUUID());
+        first.setDueDate(LocalDate.of(2025, 3, 1));
+        Invoice second = new Invoice();
+        second.setInvoiceId(UUID.randomUUID());
+        second.setDueDate(LocalDate.of(2025, 2, 1));
+        Invoice third = new Invoice();
+        third.setInvoiceId(UUID.randomUUID());
+        third.setDueDate(LocalDate.of(2025, 1, 1));
+        when(customerRepository.existsById(customerId)).thenReturn(true);
+        when(invoiceRepository.findFirstHistoryPage(customerId, PageRequest.of(0, 3)))
+                .thenReturn(Arrays.asList(first, second, third));
+        when(invoiceMapper.toInvoiceDto(any())).thenReturn(new InvoiceDto());
+
+        // When
+        HistoryPageDto<InvoiceDto> page = customerService.getCustomerInvoicePage(customerId, null, 2);
+
+        // Then
+        assertEquals(2, page.getItems().size());
+        HistoryCursor next = HistoryCursor.decode(page.getNextCursor());
+        assertEquals(second.getInvoiceId(), next.id());
+        assertEquals(second.getDueDate(), next.dueDate());
+        verify(invoiceMapper, never()).toInvoiceDto(third);
+        verify(invoiceRepository, never()).findFirstUndatedHistoryPage(any(), any());
+    }
+
+    @Test
+    void getCustomerInvoicePage_DatedInvoicesRunOut_ContinuesWithUndatedOnes() {
+        // Given: one dated invoice left, then two undated ones
+        UUID customerId = testCustomer.getCustomerId();
+        ReflectionTestUtils.setField(customerService, "maxHistoryPageSize", 200);
+        Invoice dated = new Invoice();
+        dated.setInvoiceId(UUID.randomUUID());
+        dated.setDueDate(LocalDate.of(2025, 3, 1));
+        Invoice undated = new Invoice();
+        undated.setInvoiceId(UUID.randomUUID());
+        Invoice lastUndated = new Invoice();
+        lastUndated.setInvoiceId(UUID.randomUUID());
+        when(customerRepository.existsById(customerId)).thenReturn(true);
+        when(invoiceRepository.findFirstHistoryPage(customerId, PageRequest.of(0, 3))).thenReturn(List.of(dated));
+        when(invoiceRepository.findFirstUndatedHistoryPage(customerId, PageRequest.of(0, 2))).thenReturn(List.of(undated, lastUndated));
+        when(invoiceRepository.findUndatedHistoryPageAfter(customerId, undated.getInvoiceId(), PageRequest.of(0, 3)))
+                .thenReturn(List.of(lastUndated));
+        when(invoiceMapper.toInvoiceDto(any())).thenReturn(new InvoiceDto());
+
+        // When
+        HistoryPageDto<InvoiceDto> first = customerService.getCustomerInvoicePage(customerId, null, 2);
+        HistoryPageDto<InvoiceDto> second = customerService.getCustomerInvoicePage(customerId, first.getNextCursor(), 2);
+
+        // Then: the cursor after an undated invoice stays among the undated ones
+        assertEquals(2, first.getItems().size());
+        assertTrue(HistoryCursor.decode(first.getNextCursor()).undated());
+        assertEquals(1, second.getItems().size());
+        assertNull(second.getNextCursor());
+        verify(invoiceRepository, never()).findHistoryPageAfter(any(), any(), any(), any());
+    }
+
+    @Test
+    void getCustomerInvoicePage_UnknownCustomer_ThrowsResourceNotFoundException() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        when(customerRepository.existsById(customerId)).thenReturn(false);
+
+        // When / Then
+        assertThrows(ResourceNotFoundException.class, () -> customerService.getCustomerInvoicePage(customerId, null, 50));
+        verifyNoInteractions(invoiceRepository);
+    }
+}
@@ -0,0 +1,194 @@
+package com.project.credflow.service.impl;
+
+import com.project.credflow.engine.ChunkCursor;
+import com.project.credflow.engine.DunningAuditWriter;
+import com.project.credflow.engine.DunningSimulator;
+import com.project.credflow.engine.EngineTelemetry;
+import com.project.credflow.engine.EvaluationSchedule;
+import com.project.credflow.engine.InvoiceCandidateSource;
+import com.project.credflow.engine.Lease;
+import com.project.credflow.engine.LeaseManager;
+import com.project.credflow.engine.RuleQueryPlanner;
+import com.project.credflow.engine.RunProgressBroadcaster;
+import com.project.credflow.enums.EngineRunStatus;
+import com.project.credflow.model.DunningEngineRun;
+import com.project.credflow.model.DunningRunPartition;
+import com.project.credflow.repository.DunningEngineRunRepository;
+import com.project.credflow.repository.DunningExecutionLogRepository;
+import com.project.credflow.repository.DunningRuleRepository;
+import com.project.credflow.repository.DunningRunPartitionRepository;
+import com.project.credflow.repository.InvoiceRepository;
+import com.project.credflow.service.inter.RuleActionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DunningEngineServiceImplTest {
+
+    @Mock
+    private InvoiceCandidateSource invoiceCandidateSource;
+    @Mock
+    private RuleQueryPlanner ruleQueryPlanner;
+    @Mock
+    private InvoiceRepository invoiceRepository;
+    @Mock
+    private DunningRuleRepository dunningRuleRepository;
+    @Mock
+    private DunningExecutionLogRepository logRepository;
+    @Mock
+    private RuleActionService ruleActionService;
+    @Mock
+    private DunningEngineRunRepository dunningEngineRunRepository;
+    @Mock
+    private DunningRunPartitionRepository partitionRepository;
+    @Mock
+    private DunningAuditWriter auditWriter;
+    @Mock
+    private EvaluationSchedule evaluationSchedule;
+    @Mock
+    private LeaseManager leaseManager;
+    @Mock
+    private DunningSimulator dunningSimulator;
+    @Mock
+    private EngineTelemetry engineTelemetry;
+    @Mock
+    private RunProgressBroadcaster runProgressBroadcaster;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ExecutorService partitionExecutor;
+
+    @InjectMocks
+    private DunningEngineServiceImpl dunningEngineService;
+
+    private DunningEngineRun run;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dunningEngineService, "parallelism", 2);
+        ReflectionTestUtils.setField(dunningEngineService, "partitionCount", 4);
+        ReflectionTestUtils.setField(dunningEngineService, "remoteWorkers", true);
+        ReflectionTestUtils.setField(dunningEngineService, "partitionExecutor", partitionExecutor);
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        run = new DunningEngineRun();
+        run.setRunId(UUID.randomUUID());
+        run.setRunDate(LocalDate.of(2025, 6, 15));
+        run.setPartitionCount(4);
+        run.setCoordinatorNode("node-a");
+        run.setFencingToken(5L);
+        when(dunningEngineRunRepository.findTopByStatusAndPartitionCountGreaterThanOrderByStartTimeDesc(EngineRunStatus.RUNNING, 0))
+                .thenReturn(Optional.of(run));
+    }
+
+    @Test
+    void joinActiveRun_CoordinatorLeaseExpired_DoesNotClaimPartitions() {
+        // Given: the coordinator crashed and its lease ran out
+        when(leaseManager.currentHolder("dunning-engine")).thenReturn(Optional.empty());
+
+        // When
+        dunningEngineService.joinActiveRun();
+
+        // Then
+        verifyNoInteractions(partitionRepository, partitionExecutor);
+        verify(leaseManager, never()).tryAcquire(anyString());
+    }
+
+    @Test
+    void joinActiveRun_CoordinatorLeaseTakenOverSinceRunOpened_DoesNotClaimPartitions() {
+        // Given: another coordinator holds the lease but has not resumed this run (yet)
+        when(leaseManager.currentHolder("dunning-engine")).thenReturn(Optional.of(new Lease("dunning-engine", "node-b", 6L)));
+
+        // When
+        dunningEngineService.joinActiveRun();
+
+        // Then
+        verifyNoInteractions(partitionRepository, partitionExecutor);
+        verify(leaseManager, never()).tryAcquire(anyString());
+    }
+
+    @Test
+    void joinActiveRun_LiveCoordinator_ClaimsOpenPartitionsWhoseLeaseIsFree() {
+        // Given: partition 1 is still being worked on by a live node
+        when(leaseManager.currentHolder("dunning-engine")).thenReturn(Optional.of(new Lease("dunning-engine", "node-a", 5L)));
+        DunningRunPartition first = partition(0);
+        DunningRunPartition second = partition(1);
+        when(partitionRepository.findByEngineRun_RunIdAndStatusInOrderByPartitionIndexAsc(eq(run.getRunId()), any()))
+                .thenReturn(List.of(first, second));
+        when(leaseManager.tryAcquire("dunning-partition-0")).thenReturn(Optional.of(new Lease("dunning-partition-0", "node-c", 3L)));
+        when(leaseManager.tryAcquire("dunning-partition-1")).thenReturn(Optional.empty());
+        when(partitionRepository.claim(eq(first.getPartitionId()), eq("node-c"), eq(3L), any())).thenReturn(1);
+
+        // When
+        dunningEngineService.joinActiveRun();
+
+        // Then
+        verify(partitionRepository).claim(eq(first.getPartitionId()), eq("node-c"), eq(3L), any(LocalDateTime.class));
+        verify(partitionRepository, never()).claim(eq(second.getPartitionId()), anyString(), anyLong(), any());
+        verify(partitionExecutor, times(1)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void joinActiveRun_PartitionOfCrashedWorker_ResumedFromItsLastCheckpoint() {
+        // Given: partition 2 was RUNNING on a node whose lease expired after its last checkpoint
+        when(leaseManager.currentHolder("dunning-engine")).thenReturn(Optional.of(new Lease("dunning-engine", "node-a", 5L)));
+        DunningRunPartition orphaned = partition(2);
+        orphaned.setStatus(EngineRunStatus.RUNNING);
+        orphaned.setOwnerNode("node-crashed");
+        orphaned.setFencingToken(8L);
+        orphaned.setLastDueDate(LocalDate.of(2025, 5, 1));
+        orphaned.setLastInvoiceId(UUID.randomUUID());
+        when(partitionRepository.findByEngineRun_RunIdAndStatusInOrderByPartitionIndexAsc(eq(run.getRunId()), any()))
+                .thenReturn(List.of(orphaned));
+        Lease lease = new Lease("dunning-partition-2", "node-c", 9L);
+        when(leaseManager.tryAcquire("dunning-partition-2")).thenReturn(Optional.of(lease));
+        when(partitionRepository.claim(eq(orphaned.getPartitionId()), eq("node-c"), eq(9L), any())).thenReturn(1);
+        when(partitionRepository.findById(orphaned.getPartitionId())).thenReturn(Optional.of(orphaned));
+
+        // When
+        dunningEngineService.joinActiveRun();
+        ArgumentCaptor<Runnable> worker = ArgumentCaptor.forClass(Runnable.class);
+        verify(partitionExecutor).execute(worker.capture());
+        worker.getValue().run();
+
+        // Then
+        ArgumentCaptor<ChunkCursor> resumeAfter = ArgumentCaptor.forClass(ChunkCursor.class);
+        verify(invoiceCandidateSource).forEachChunk(any(), any(), any(), resumeAfter.capture(), any());
+        assertEquals(ChunkCursor.of(orphaned.getLastDueDate(), orphaned.getLastInvoiceId()), resumeAfter.getValue());
+        verify(partitionRepository).finish(eq(orphaned.getPartitionId()), eq(9L), eq(EngineRunStatus.COMPLETED), isNull(), any());
+        verify(leaseManager).release(lease);
+    }
+
+    private DunningRunPartition partition(int index) {
+        DunningRunPartition partition = new DunningRunPartition();
+        partition.setPartitionId(UUID.randomUUID());
+        partition.setEngineRun(run);
+        partition.setPartitionIndex(index);
+        return partition;
+    }
+}
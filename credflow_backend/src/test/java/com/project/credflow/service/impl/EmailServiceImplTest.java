@@ -0,0 +1,156 @@
+package com.project.credflow.service.impl;
+
+import com.project.credflow.enums.NotificationStatus;
+import com.project.credflow.model.Account;
+import com.project.credflow.model.Customer;
+import com.project.credflow.model.Invoice;
+import com.project.credflow.model.NotificationLog;
+import com.project.credflow.model.NotificationTemplate;
+import com.project.credflow.model.User;
+import com.project.credflow.service.inter.EmailService.DunningEmail;
+import com.project.credflow.service.inter.NotificationLogService;
+import com.project.credflow.template.TemplateCompiler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailServiceImplTest {
+
+    @Mock
+    private NotificationLogService notificationLogService;
+
+    private SmtpStubServer smtpServer;
+    private EmailServiceImpl emailService;
+    private NotificationTemplate template;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        smtpServer = new SmtpStubServer();
+
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpServer.getPort());
+
+        emailService = new EmailServiceImpl(mailSender, notificationLogService, new TemplateCompiler());
+        ReflectionTestUtils.setField(emailService, "fromEmail", "dunning@credflow.test");
+        ReflectionTestUtils.setField(emailService, "batchSize", 50);
+
+        template = new NotificationTemplate();
+        template.setTemplateName("Overdue Reminder");
+        template.setSubject("Invoice [InvoiceNumber] is overdue");
+        template.setBody("Dear [CustomerName], please pay [AmountDue].");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        smtpServer.close();
+    }
+
+    @Test
+    void sendDunningEmails_ValidRecipients_SendsAllOverOneConnection() {
+        // Given
+        List<DunningEmail> emails = List.of(
+                email("a@credflow.test"), email("b@credflow.test"), email("c@credflow.test"));
+
+        // When
+        List<Boolean> results = emailService.sendDunningEmails(emails);
+
+        // Then
+        assertEquals(List.of(true, true, true), results);
+        assertEquals(1, smtpServer.getConnectionCount());
+        assertEquals(List.of("a@credflow.test", "b@credflow.test", "c@credflow.test"), smtpServer.getAcceptedRecipients());
+        assertEquals(List.of(NotificationStatus.SENT, NotificationStatus.SENT, NotificationStatus.SENT), loggedStatuses());
+    }
+
+    @Test
+    void sendDunningEmails_RejectedRecipient_FailsOnlyThatMessage() {
+        // Given
+        List<DunningEmail> emails = List.of(
+                email("a@credflow.test"), email("reject@credflow.test"), email("c@credflow.test"));
+
+        // When
+        List<Boolean> results = emailService.sendDunningEmails(emails);
+
+        // Then
+        assertEquals(List.of(true, false, true), results);
+        assertEquals(1, smtpServer.getConnectionCount());
+        assertEquals(List.of("a@credflow.test", "c@credflow.test"), smtpServer.getAcceptedRecipients());
+        assertEquals(List.of(NotificationStatus.SENT, NotificationStatus.FAILED, NotificationStatus.SENT), loggedStatuses());
+    }
+
+    @Test
+    void sendDunningEmails_MissingRecipient_FailsWithoutConnecting() {
+        // Given
+        List<DunningEmail> emails = List.of(email(null));
+
+        // When
+        List<Boolean> results = emailService.sendDunningEmails(emails);
+
+        // Then
+        assertEquals(List.of(false), results);
+        assertEquals(0, smtpServer.getConnectionCount());
+        assertEquals(List.of(NotificationStatus.FAILED), loggedStatuses());
+    }
+
+    @Test
+    void sendDunningEmails_MoreThanBatchSize_OpensOneConnectionPerBatch() {
+        // Given
+        ReflectionTestUtils.setField(emailService, "batchSize", 2);
+        List<DunningEmail> emails = List.of(
+                email("a@credflow.test"), email("b@credflow.test"), email("c@credflow.test"),
+                email("d@credflow.test"), email("e@credflow.test"));
+
+        // When
+        List<Boolean> results = emailService.sendDunningEmails(emails);
+
+        // Then
+        assertEquals(List.of(true, true, true, true, true), results);
+        assertEquals(3, smtpServer.getConnectionCount());
+        assertEquals(5, smtpServer.getAcceptedRecipients().size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<NotificationStatus> loggedStatuses() {
+        ArgumentCaptor<List<NotificationLog>> captor = ArgumentCaptor.forClass(List.class);
+        verify(notificationLogService).logNotifications(captor.capture());
+        return captor.getValue().stream().map(NotificationLog::getStatus).toList();
+    }
+
+    private DunningEmail email(String recipient) {
+        User user = new User();
+        user.setFullName("Test Customer");
+        user.setEmail(recipient);
+
+        Customer customer = new Customer();
+        customer.setCustomerId(UUID.randomUUID());
+        customer.setUser(user);
+
+        Account account = new Account();
+        account.setAccountNumber("ACC-1");
+        account.setCustomer(customer);
+
+        Invoice invoice = new Invoice();
+        invoice.setInvoiceId(UUID.randomUUID());
+        invoice.setInvoiceNumber("INV-" + recipient);
+        invoice.setAmountDue(new BigDecimal("99.50"));
+        invoice.setDueDate(LocalDate.now().minusDays(5));
+        invoice.setAccount(account);
+
+        return new DunningEmail(invoice, template);
+    }
+}
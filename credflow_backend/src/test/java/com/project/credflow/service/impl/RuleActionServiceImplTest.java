@@ -0,0 +1,127 @@
+package com.project.credflow.service.impl;
+
+import com.project.credflow.engine.BpoTaskWriter;
+import com.project.credflow.engine.DunningAuditWriter;
+import com.project.credflow.enums.BpoTaskPriority;
+import com.project.credflow.enums.RuleActionType;
+import com.project.credflow.model.Account;
+import com.project.credflow.model.DunningRule;
+import com.project.credflow.model.Invoice;
+import com.project.credflow.repository.AccountRepository;
+import com.project.credflow.repository.InvoiceRepository;
+import com.project.credflow.service.inter.RuleActionService.RuleAction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RuleActionServiceImplTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private DunningAuditWriter auditWriter;
+
+    @Mock
+    private InvoiceRepository invoiceRepository;
+
+    @Mock
+    private BpoTaskWriter bpoTaskWriter;
+
+    @InjectMocks
+    private RuleActionServiceImpl ruleActionService;
+
+    @Test
+    void applyBulkActions_MixedActions_OneUpdatePerTypeAndOneLogPerInvoice() {
+        // Given: two invoices of the same account restricted, one other account throttled
+        Account restricted = account();
+        Account throttled = account();
+        DunningRule restrict = rule(RuleActionType.RESTRICT_SERVICE);
+        DunningRule throttle = rule(RuleActionType.THROTTLE_SPEED);
+        Invoice first = invoice(restricted);
+        Invoice second = invoice(restricted);
+        Invoice third = invoice(throttled);
+        when(accountRepository.restrictAll(any())).thenReturn(1);
+        when(accountRepository.throttleAll(any())).thenReturn(1);
+
+        // When
+        ruleActionService.applyBulkActions(List.of(
+                new RuleAction(restrict, first), new RuleAction(restrict, second), new RuleAction(throttle, third)));
+
+        // Then
+        verify(accountRepository).restrictAll(Set.of(restricted.getAccountId()));
+        verify(accountRepository).throttleAll(Set.of(throttled.getAccountId()));
+        verify(accountRepository, never()).save(any());
+        verify(auditWriter).recordAction(RuleActionType.RESTRICT_SERVICE, first.getInvoiceId());
+        verify(auditWriter).recordAction(RuleActionType.RESTRICT_SERVICE, second.getInvoiceId());
+        verify(auditWriter).recordAction(RuleActionType.THROTTLE_SPEED, third.getInvoiceId());
+    }
+
+    @Test
+    void applyBulkActions_BpoTasks_OneNameQueryAndOneBatchInsert() {
+        // Given
+        DunningRule createTask = rule(RuleActionType.CREATE_BPO_TASK);
+        createTask.setBpoTaskPriority(BpoTaskPriority.HIGH);
+        Invoice first = invoice(account());
+        first.setInvoiceNumber("INV-1");
+        Invoice second = invoice(account());
+        second.setInvoiceNumber("INV-2");
+        UUID customerId = UUID.randomUUID();
+        when(invoiceRepository.findCustomerNamesForInvoices(List.of(first.getInvoiceId(), second.getInvoiceId()))).thenReturn(List.of(
+                Map.of("invoiceId", first.getInvoiceId(), "customerId", customerId, "fullName", "Asha Rao"),
+                Map.of("invoiceId", second.getInvoiceId(), "customerId", customerId)));
+
+        // When
+        ruleActionService.applyBulkActions(List.of(new RuleAction(createTask, first), new RuleAction(createTask, second)));
+
+        // Then
+        verify(bpoTaskWriter).insertAll(List.of(
+                new BpoTaskWriter.NewTask(customerId, first.getInvoiceId(), BpoTaskPriority.HIGH, "Follow up on overdue invoice INV-1 for Asha Rao."),
+                new BpoTaskWriter.NewTask(customerId, second.getInvoiceId(), BpoTaskPriority.HIGH, "Follow up on overdue invoice INV-2 for Unknown Customer.")));
+        verify(auditWriter).recordAction(RuleActionType.CREATE_BPO_TASK, first.getInvoiceId());
+        verify(auditWriter).recordAction(RuleActionType.CREATE_BPO_TASK, second.getInvoiceId());
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void applyBulkActions_EmailRule_ThrowsIllegalArgumentException() {
+        // Given
+        RuleAction email = new RuleAction(rule(RuleActionType.SEND_EMAIL), invoice(account()));
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> ruleActionService.applyBulkActions(List.of(email)));
+        verifyNoInteractions(accountRepository);
+    }
+
+    private static Account account() {
+        Account account = new Account();
+        account.setAccountId(UUID.randomUUID());
+        return account;
+    }
+
+    private static DunningRule rule(RuleActionType actionType) {
+        DunningRule rule = new DunningRule();
+        rule.setRuleId(UUID.randomUUID());
+        rule.setActionType(actionType);
+        return rule;
+    }
+
+    private static Invoice invoice(Account account) {
+        Invoice invoice = new Invoice();
+        invoice.setInvoiceId(UUID.randomUUID());
+        invoice.setAccount(account);
+        return invoice;
+    }
+}
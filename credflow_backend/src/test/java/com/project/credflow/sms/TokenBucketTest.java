@@ -0,0 +1,102 @@
+package com.project.credflow.sms;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private AtomicLong clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1000));
+    }
+
+    @Test
+    void tryAcquire_FullBucket_AllowsBurstThenReportsWait() {
+        // Given: 10 tokens/s, capacity 3
+        TokenBucket bucket = new TokenBucket(10, 3, clock::get);
+
+        // When / Then
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.tryAcquire());
+    }
+
+    @Test
+    void tryAcquire_AfterEmissionInterval_RefillsOneToken() {
+        // Given
+        TokenBucket bucket = new TokenBucket(10, 1, clock::get);
+        assertEquals(0, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+
+        // When
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+
+        // Then
+        assertEquals(0, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+    }
+
+    @Test
+    void tryAcquire_LongIdle_DoesNotExceedCapacity() {
+        // Given
+        TokenBucket bucket = new TokenBucket(10, 2, clock::get);
+
+        // When
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+
+        // Then
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+    }
+
+    @Test
+    void pause_WithholdsTokensForTheGivenTime() {
+        // Given
+        TokenBucket bucket = new TokenBucket(10, 5, clock::get);
+
+        // When
+        bucket.pause(TimeUnit.SECONDS.toNanos(2));
+
+        // Then
+        assertEquals(TimeUnit.SECONDS.toNanos(2), bucket.tryAcquire());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0, bucket.tryAcquire());
+    }
+
+    @Test
+    void tryAcquire_ConcurrentCallers_NeverHandOutMoreThanCapacity() throws Exception {
+        // Given: frozen clock, so only the initial capacity is available
+        TokenBucket bucket = new TokenBucket(1, 100, clock::get);
+        AtomicInteger granted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+
+        // When
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryAcquire() == 0) {
+                        granted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        assertEquals(100, granted.get());
+    }
+}
@@ -0,0 +1,137 @@
+package com.project.credflow.template;
+
+import com.project.credflow.model.Account;
+import com.project.credflow.model.Invoice;
+import com.project.credflow.model.NotificationTemplate;
+import com.project.credflow.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateCompilerTest {
+
+    private TemplateCompiler templateCompiler;
+    private Invoice invoice;
+    private User user;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        templateCompiler = new TemplateCompiler();
+        today = LocalDate.of(2025, 6, 15);
+
+        user = new User();
+        user.setFullName("Asha Rao");
+
+        Account account = new Account();
+        account.setAccountNumber("ACC-42");
+        account.setCurrentBalance(new BigDecimal("1200.5"));
+
+        invoice = new Invoice();
+        invoice.setInvoiceNumber("INV-7");
+        invoice.setAmountDue(new BigDecimal("99.456"));
+        invoice.setDueDate(today.minusDays(12));
+        invoice.setAccount(account);
+    }
+
+    @Test
+    void render_BracketSyntax_ReplacesAllKnownTokens() {
+        // Given
+        CompiledTemplate template = CompiledTemplate.compile(
+                "Dear [CustomerName], invoice [InvoiceNumber] for [AmountDue] was due [DueDate] "
+                        + "([DaysOverdue] days). Account [AccountNumber] owes [TotalAmountDue]. Paid: [AmountPaid]. [PortalLink]",
+                TemplateSyntax.BRACKET);
+
+        // When
+        String rendered = template.render(new TemplateValues(invoice, user, today));
+
+        // Then
+        assertEquals("Dear Asha Rao, invoice INV-7 for 99.46 was due 2025-06-03 (12 days). "
+                + "Account ACC-42 owes 1200.50. Paid: N/A. http://localhost:5173/customer/payments", rendered);
+    }
+
+    @Test
+    void render_MustacheSyntax_UsesNaForMissingValues() {
+        // Given
+        invoice.setDueDate(null);
+        CompiledTemplate template = CompiledTemplate.compile(
+                "Hi {{userName}}, {{invoiceNumber}} ({{amountDue}}) due {{dueDate}} on {{accountNumber}}",
+                TemplateSyntax.MUSTACHE);
+
+        // When
+        String rendered = template.render(new TemplateValues(invoice, null, today));
+
+        // Then
+        assertEquals("Hi N/A, INV-7 (99.456) due N/A on ACC-42", rendered);
+    }
+
+    @Test
+    void render_UnknownOrUnavailableTokens_AreLeftAsWritten() {
+        // Given
+        invoice.setDueDate(null);
+        CompiledTemplate template = CompiledTemplate.compile(
+                "[Unknown] [DueDate] {{userName}} [[InvoiceNumber]] [Open", TemplateSyntax.BRACKET);
+
+        // When
+        String rendered = template.render(new TemplateValues(invoice, user, today));
+
+        // Then
+        assertEquals("[Unknown] [DueDate] {{userName}} [INV-7] [Open", rendered);
+    }
+
+    @Test
+    void renderTo_ReusedBuilder_AppendsAfterExistingContent() {
+        // Given
+        CompiledTemplate template = CompiledTemplate.compile("#[InvoiceNumber]", TemplateSyntax.BRACKET);
+        StringBuilder out = new StringBuilder("prefix ");
+
+        // When
+        template.renderTo(out, new TemplateValues(invoice, user, today));
+
+        // Then
+        assertEquals("prefix #INV-7", out.toString());
+    }
+
+    @Test
+    void compile_SameUpdatedAt_ReturnsCachedTemplate() {
+        // Given
+        NotificationTemplate template = template("Hello [CustomerName]", LocalDateTime.of(2025, 1, 1, 10, 0));
+
+        // When
+        TemplateCompiler.CompiledNotification first = templateCompiler.compile(template, TemplateSyntax.BRACKET);
+        TemplateCompiler.CompiledNotification second = templateCompiler.compile(template, TemplateSyntax.BRACKET);
+
+        // Then
+        assertSame(first, second);
+    }
+
+    @Test
+    void compile_ChangedUpdatedAt_Recompiles() {
+        // Given
+        NotificationTemplate template = template("Hello [CustomerName]", LocalDateTime.of(2025, 1, 1, 10, 0));
+        templateCompiler.compile(template, TemplateSyntax.BRACKET);
+
+        // When
+        template.setBody("Bye [CustomerName]");
+        template.setUpdatedAt(LocalDateTime.of(2025, 1, 2, 10, 0));
+        TemplateCompiler.CompiledNotification recompiled = templateCompiler.compile(template, TemplateSyntax.BRACKET);
+
+        // Then
+        assertEquals("Bye Asha Rao", recompiled.body().render(new TemplateValues(invoice, user, today)));
+    }
+
+    private NotificationTemplate template(String body, LocalDateTime updatedAt) {
+        NotificationTemplate template = new NotificationTemplate();
+        template.setTemplateId(UUID.randomUUID());
+        template.setSubject("Reminder");
+        template.setBody(body);
+        template.setUpdatedAt(updatedAt);
+        return template;
+    }
+}